@@ -0,0 +1,40 @@
+package com.unibuddy.collegeBuddy.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unibuddy.collegeBuddy.service.ClusterCacheInvalidator;
+import com.unibuddy.collegeBuddy.service.ClusterFanout;
+import com.unibuddy.collegeBuddy.service.ClusterTransport;
+import com.unibuddy.collegeBuddy.service.PostgresNotifyTransport;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.MessageChannel;
+
+import javax.sql.DataSource;
+
+/**
+ * Cross-node STOMP fan-out, for running more than one instance behind the load balancer.
+ * The transport is chosen with {@code app.cluster.transport}; {@code postgres} is the only one so far.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.transport", havingValue = "postgres", matchIfMissing = true)
+    public ClusterTransport postgresNotifyTransport(DataSource dataSource,
+                                                    @Value("${app.cluster.channel:chat_broadcast}") String channel) {
+        return new PostgresNotifyTransport(dataSource, channel);
+    }
+
+    // The broker channel is built from WebSocketConfig, which registers this interceptor on it
+    @Bean
+    public ClusterFanout clusterFanout(ClusterTransport transport, ObjectMapper objectMapper,
+                                       @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                                       ClusterCacheInvalidator clusterCacheInvalidator) {
+        return new ClusterFanout(transport, objectMapper, brokerChannel, clusterCacheInvalidator::onRemoteBroadcast);
+    }
+}
@@ -45,7 +45,10 @@ public class SecurityConfig {
                                 "/api/health/**",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
-                                "/swagger-ui.html"
+                                "/swagger-ui.html",
+                                // Browsers cannot set headers on the handshake; STOMP CONNECT carries the token
+                                "/ws/**",
+                                "/ws-native"
                         ).permitAll()
                         .anyRequest().authenticated()
                 )
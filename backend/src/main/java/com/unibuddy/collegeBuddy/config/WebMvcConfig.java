@@ -0,0 +1,30 @@
+package com.unibuddy.collegeBuddy.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-EntityManager-in-view, as Spring Boot registers it, except on the chat message endpoints.
+ * The view's EntityManager keeps the first connection it touches until the response is written,
+ * and a write-behind send waits there for the writer thread, which needs a connection from the
+ * same pool to commit. Those endpoints map everything inside their own transactions.
+ * <p>
+ * Declaring the interceptor bean makes Boot's own registration back off.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        return new OpenEntityManagerInViewInterceptor();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addWebRequestInterceptor(openEntityManagerInViewInterceptor())
+                .excludePathPatterns("/api/conversations/*/messages", "/api/global-chats/*/messages");
+    }
+}
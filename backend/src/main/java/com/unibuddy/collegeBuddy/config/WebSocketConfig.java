@@ -1,27 +1,135 @@
 package com.unibuddy.collegeBuddy.config;
 
+import com.unibuddy.collegeBuddy.security.StompAuthenticationInterceptor;
+import com.unibuddy.collegeBuddy.security.SubscriptionAuthorizationInterceptor;
+import com.unibuddy.collegeBuddy.service.ClusterFanout;
+import com.unibuddy.collegeBuddy.service.CompactWireFormat;
+import com.unibuddy.collegeBuddy.service.PresenceRegistry;
+import com.unibuddy.collegeBuddy.service.SharedFrameStompEncoder;
+import com.unibuddy.collegeBuddy.service.SlowConsumerGuard;
+import com.unibuddy.collegeBuddy.service.StompChannelExecutors;
+import com.unibuddy.collegeBuddy.service.WebSocketTransportMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final ObjectProvider<ClusterFanout> clusterFanout;
+    private final StompAuthenticationInterceptor stompAuthenticationInterceptor;
+    private final SubscriptionAuthorizationInterceptor subscriptionAuthorizationInterceptor;
+    private final CompactWireFormat compactWireFormat;
+    private final PresenceRegistry presenceRegistry;
+    private final StompChannelExecutors stompChannelExecutors;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final WebSocketTransportMetrics webSocketTransportMetrics;
+
+    @Value("${app.chat.channels.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.chat.channels.send-buffer-size-limit:262144}")
+    private int sendBufferSizeLimit;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    // Defined by the broker configuration this class contributes to, hence lazy
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/user");
+        // Heartbeats let presence tell a quiet client from a vanished one
+        config.enableSimpleBroker("/topic", "/queue", "/user")
+                .setHeartbeatValue(new long[] {10000, 10000})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        // Compact frames carry per-session sender refs and timestamp deltas, which only decode in order
+        config.setPreservePublishOrder(true);
+        // Present when app.cluster.enabled is set
+        clusterFanout.ifAvailable(fanout -> config.configureBrokerChannel().interceptors(fanout));
     }
 
+    // Authentication goes first so the others see the session's principal, then refused
+    // subscriptions are dropped before presence can count them. The wire format sees CONNECT and
+    // DISCONNECT on the way in and rewrites chat frames for compact sessions on the way out;
+    // presence counts every inbound frame as a sign of life
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        registration.taskExecutor(stompChannelExecutors.inbound());
+        registration.interceptors(stompAuthenticationInterceptor, subscriptionAuthorizationInterceptor,
+                compactWireFormat, presenceRegistry);
+    }
+
+    // Frames for sessions being evicted are dropped before the wire format spends time on them
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        registration.taskExecutor(stompChannelExecutors.outbound());
+        registration.interceptors(slowConsumerGuard, compactWireFormat);
+    }
+
+    // Spring's per-session limits cover sends that overlap a write in progress; the guard covers
+    // the frames that ordered publishing holds back while one is stuck
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .addDecoratorFactory(slowConsumerGuard)
+                .addDecoratorFactory(webSocketTransportMetrics);
+    }
+
+    // Clients try the plain WebSocket endpoint first: no SockJS info request or JSON framing, and
+    // Tomcat accepts the permessage-deflate that browsers offer on the upgrade. SockJS stays for
+    // networks whose proxies refuse the upgrade
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*");
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    @Bean
+    public SharedFrameStompEncoder sharedFrameStompEncoder() {
+        return new SharedFrameStompEncoder();
+    }
+
+    // The STOMP handler is added to the WebSocket handler by the endpoint registry, so it is
+    // only reachable once every singleton exists
+    @Bean
+    public SmartInitializingSingleton sharedFrameEncoderInstaller(
+            @Qualifier("subProtocolWebSocketHandler") WebSocketHandler webSocketHandler,
+            SharedFrameStompEncoder sharedFrameStompEncoder) {
+        return () -> {
+            if (webSocketHandler instanceof SubProtocolWebSocketHandler subProtocolHandler) {
+                subProtocolHandler.getProtocolHandlers().stream()
+                        .filter(StompSubProtocolHandler.class::isInstance)
+                        .map(StompSubProtocolHandler.class::cast)
+                        .forEach(stompHandler -> stompHandler.setEncoder(sharedFrameStompEncoder));
+            }
+        };
+    }
 }
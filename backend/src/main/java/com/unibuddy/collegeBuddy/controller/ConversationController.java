@@ -1,6 +1,9 @@
 package com.unibuddy.collegeBuddy.controller;
 
 import com.unibuddy.collegeBuddy.dto.conversation.ConversationResponse;
+import com.unibuddy.collegeBuddy.dto.conversation.MarkReadRequest;
+import com.unibuddy.collegeBuddy.dto.conversation.UnreadCountsResponse;
+import com.unibuddy.collegeBuddy.dto.message.MessageHistoryResponse;
 import com.unibuddy.collegeBuddy.dto.message.MessageResponse;
 import com.unibuddy.collegeBuddy.dto.message.SendMessageRequest;
 import com.unibuddy.collegeBuddy.entity.User;
@@ -35,14 +38,21 @@ public class ConversationController {
         return ResponseEntity.ok(conversations);
     }
 
+    @GetMapping("/unread")
+    public ResponseEntity<UnreadCountsResponse> getUnreadCounts(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(conversationService.getUnreadCounts(user.getId()));
+    }
+
     @GetMapping("/{id}/messages")
-    public ResponseEntity<Page<MessageResponse>> getConversationMessages(
+    public ResponseEntity<MessageHistoryResponse<MessageResponse>> getConversationMessages(
             @PathVariable UUID id,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) UUID before,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Long sinceSeq,
             @RequestParam(defaultValue = "50") int size,
             @AuthenticationPrincipal User user) {
         
-        Page<MessageResponse> messages = conversationService.getConversationMessages(id, user.getId(), page, size);
+        MessageHistoryResponse<MessageResponse> messages = conversationService.getConversationMessages(id, user.getId(), before, after, sinceSeq, size);
         return ResponseEntity.ok(messages);
     }
 
@@ -56,6 +66,16 @@ public class ConversationController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/{id}/read")
+    public ResponseEntity<Void> markRead(
+            @PathVariable UUID id,
+            @Valid @RequestBody MarkReadRequest request,
+            @AuthenticationPrincipal User user) {
+
+        conversationService.markRead(id, request.getMessageId(), user);
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/start/{listingId}")
     public ResponseEntity<ConversationResponse> startConversation(
             @PathVariable UUID listingId,
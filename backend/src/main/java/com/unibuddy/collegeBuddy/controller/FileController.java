@@ -1,54 +1,163 @@
 package com.unibuddy.collegeBuddy.controller;
 
 import com.unibuddy.collegeBuddy.service.FileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/files")
 @RequiredArgsConstructor
 public class FileController {
 
+    // Stored files are UUID-named and never rewritten, so clients may cache them forever
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    // Tomcat request attributes for handing the body to the connector's sendfile/transferTo path
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // Below this size a buffered copy is cheaper than setting up sendfile (matches Tomcat's default)
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
     private final FileStorageService fileStorageService;
 
-    @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
-        try {
-            Path filePath = fileStorageService.getFilePath(filename);
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = getContentType(filename);
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
+    @GetMapping({"/{filename:.+}", "/{folder}/{filename:.+}"})
+    public ResponseEntity<Resource> serveFile(
+            @PathVariable(required = false) String folder,
+            @PathVariable String filename,
+            ServletWebRequest webRequest) throws IOException {
+        String key = folder != null ? folder + "/" + filename : filename;
+        Optional<Path> storedFile = fileStorageService.findStoredFile(key);
+        if (storedFile.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Path filePath = storedFile.get();
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+
+        // Written straight to the servlet response so 304s carry it too;
+        // checkNotModified does the same for ETag and Last-Modified
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE.getHeaderValue());
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        HttpServletRequest request = webRequest.getRequest();
+        if (length >= SENDFILE_MIN_SIZE
+                && HttpMethod.GET.matches(request.getMethod())
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            List<HttpRange> ranges = getRequestedRanges(request, etag);
+            if (ranges.size() <= 1) {
+                return sendfile(request, filePath, filename, etag, lastModified, length, ranges);
             }
-        } catch (Exception ex) {
-            return ResponseEntity.internalServerError().build();
+        }
+
+        // Spring turns Range requests on a Resource body into ResourceRegion responses
+        return fileHeaders(ResponseEntity.ok(), filename, etag, lastModified)
+                .body(new FileSystemResource(filePath));
+    }
+
+    /**
+     * Headers every full or partial file response carries
+     */
+    private ResponseEntity.BodyBuilder fileHeaders(ResponseEntity.BodyBuilder response, String filename,
+                                                   String etag, long lastModified) {
+        return response
+                .contentType(getContentType(filename))
+                .eTag(etag)
+                .lastModified(lastModified)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
+    }
+
+    /**
+     * Let the connector write the file (or a single range of it) from the kernel page cache
+     */
+    private ResponseEntity<Resource> sendfile(HttpServletRequest request, Path filePath, String filename,
+                                              String etag, long lastModified, long length, List<HttpRange> ranges) {
+        long start = 0;
+        long end = length;
+        ResponseEntity.BodyBuilder response;
+
+        if (ranges.isEmpty()) {
+            response = fileHeaders(ResponseEntity.ok(), filename, etag, lastModified);
+        } else {
+            HttpRange range = ranges.get(0);
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length) + 1;
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            response = fileHeaders(ResponseEntity.status(HttpStatus.PARTIAL_CONTENT), filename, etag, lastModified)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+        }
+
+        request.setAttribute(SENDFILE_FILENAME_ATTR, filePath.toString());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        request.setAttribute(SENDFILE_END_ATTR, end);
+
+        return response.contentLength(end - start).build();
+    }
+
+    /**
+     * Parse the Range header, ignoring it when an If-Range validator no longer matches
+     */
+    private List<HttpRange> getRequestedRanges(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && ifRange.startsWith("\"") && !ifRange.equals(etag)) {
+            return List.of();
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException ex) {
+            // Malformed ranges are ignored and the full file is served (RFC 9110, section 14.2)
+            return List.of();
         }
     }
 
-    private String getContentType(String filename) {
+    private MediaType getContentType(String filename) {
         String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
         return switch (extension) {
-            case "jpg", "jpeg" -> "image/jpeg";
-            case "png" -> "image/png";
-            case "webp" -> "image/webp";
-            default -> "application/octet-stream";
+            case "jpg", "jpeg" -> MediaType.IMAGE_JPEG;
+            case "png" -> MediaType.IMAGE_PNG;
+            case "webp" -> MediaType.parseMediaType("image/webp");
+            default -> MediaType.APPLICATION_OCTET_STREAM;
         };
     }
 }
@@ -3,11 +3,11 @@ package com.unibuddy.collegeBuddy.controller;
 import com.unibuddy.collegeBuddy.dto.globalchat.GlobalChatResponse;
 import com.unibuddy.collegeBuddy.dto.globalchat.GlobalMessageResponse;
 import com.unibuddy.collegeBuddy.dto.globalchat.SendGlobalMessageRequest;
+import com.unibuddy.collegeBuddy.dto.message.MessageHistoryResponse;
 import com.unibuddy.collegeBuddy.entity.User;
 import com.unibuddy.collegeBuddy.service.GlobalChatService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -33,13 +33,15 @@ public class GlobalChatController {
     }
 
     @GetMapping("/{id}/messages")
-    public ResponseEntity<Page<GlobalMessageResponse>> getGlobalChatMessages(
+    public ResponseEntity<MessageHistoryResponse<GlobalMessageResponse>> getGlobalChatMessages(
             @PathVariable UUID id,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) UUID before,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Long sinceSeq,
             @RequestParam(defaultValue = "50") int size,
             @AuthenticationPrincipal User user) {
         
-        Page<GlobalMessageResponse> messages = globalChatService.getGlobalChatMessages(id, user, page, size);
+        MessageHistoryResponse<GlobalMessageResponse> messages = globalChatService.getGlobalChatMessages(id, user, before, after, sinceSeq, size);
         return ResponseEntity.ok(messages);
     }
 
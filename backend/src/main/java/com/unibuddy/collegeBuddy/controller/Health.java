@@ -1,5 +1,20 @@
 package com.unibuddy.collegeBuddy.controller;
 
+import com.unibuddy.collegeBuddy.security.SubscriptionAuthorizationInterceptor;
+import com.unibuddy.collegeBuddy.service.BroadcastCoalescer;
+import com.unibuddy.collegeBuddy.service.ClusterFanout;
+import com.unibuddy.collegeBuddy.service.CompactWireFormat;
+import com.unibuddy.collegeBuddy.service.GlobalChatDirectory;
+import com.unibuddy.collegeBuddy.service.MessageWriteBehindQueue;
+import com.unibuddy.collegeBuddy.service.PresenceRegistry;
+import com.unibuddy.collegeBuddy.service.RecentMessageCache;
+import com.unibuddy.collegeBuddy.service.SharedFrameStompEncoder;
+import com.unibuddy.collegeBuddy.service.SlowConsumerGuard;
+import com.unibuddy.collegeBuddy.service.StompChannelExecutors;
+import com.unibuddy.collegeBuddy.service.WebSocketTransportMetrics;
+import com.unibuddy.collegeBuddy.service.StorageCircuitBreaker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -11,8 +26,23 @@ import java.util.Map;
 
 @RestController
 @RequestMapping("/api/health")
+@RequiredArgsConstructor
 public class Health {
 
+    private final StorageCircuitBreaker storageCircuitBreaker;
+    private final RecentMessageCache recentMessageCache;
+    private final MessageWriteBehindQueue messageWriteBehindQueue;
+    private final GlobalChatDirectory globalChatDirectory;
+    private final ObjectProvider<ClusterFanout> clusterFanout;
+    private final BroadcastCoalescer broadcastCoalescer;
+    private final SharedFrameStompEncoder sharedFrameStompEncoder;
+    private final CompactWireFormat compactWireFormat;
+    private final PresenceRegistry presenceRegistry;
+    private final SubscriptionAuthorizationInterceptor subscriptionAuthorizationInterceptor;
+    private final StompChannelExecutors stompChannelExecutors;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final WebSocketTransportMetrics webSocketTransportMetrics;
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> healthCheck() {
         Map<String, Object> response = new HashMap<>();
@@ -45,6 +75,19 @@ public class Health {
         system.put("totalMemory", Runtime.getRuntime().totalMemory());
 
         response.put("system", system);
+        response.put("storage", storageCircuitBreaker.getMetrics());
+        response.put("chatCache", recentMessageCache.getMetrics());
+        response.put("messageWriteBehind", messageWriteBehindQueue.getMetrics());
+        response.put("chatDirectory", globalChatDirectory.getMetrics());
+        response.put("broadcastCoalescing", broadcastCoalescer.getMetrics());
+        response.put("frameEncoding", sharedFrameStompEncoder.getMetrics());
+        response.put("wireFormat", compactWireFormat.getMetrics());
+        response.put("presence", presenceRegistry.getMetrics());
+        response.put("subscriptions", subscriptionAuthorizationInterceptor.getMetrics());
+        response.put("stompChannels", stompChannelExecutors.getMetrics());
+        response.put("slowConsumers", slowConsumerGuard.getMetrics());
+        response.put("webSocketTransports", webSocketTransportMetrics.getMetrics());
+        clusterFanout.ifAvailable(fanout -> response.put("cluster", fanout.getMetrics()));
         response.put("uptime", System.currentTimeMillis());
 
         return ResponseEntity.ok(response);
@@ -1,59 +1,131 @@
 package com.unibuddy.collegeBuddy.controller;
 
+import com.unibuddy.collegeBuddy.dto.conversation.MarkReadRequest;
 import com.unibuddy.collegeBuddy.dto.globalchat.SendGlobalMessageRequest;
 import com.unibuddy.collegeBuddy.dto.message.SendMessageRequest;
+import com.unibuddy.collegeBuddy.dto.presence.PresenceUpdate;
+import com.unibuddy.collegeBuddy.dto.presence.TypingRequest;
 import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.exception.BadRequestException;
+import com.unibuddy.collegeBuddy.exception.UnauthorizedException;
+import com.unibuddy.collegeBuddy.security.StompPrincipal;
 import com.unibuddy.collegeBuddy.service.ConversationService;
 import com.unibuddy.collegeBuddy.service.GlobalChatService;
+import com.unibuddy.collegeBuddy.service.PresenceRegistry;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.handler.annotation.support.MethodArgumentNotValidException;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
+import org.springframework.validation.ObjectError;
 
+import java.security.Principal;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Controller
 @RequiredArgsConstructor
+@Slf4j
 public class WebSocketController {
 
     private final ConversationService conversationService;
     private final GlobalChatService globalChatService;
+    private final PresenceRegistry presenceRegistry;
 
+    // Sends run as the user authenticated on CONNECT; see StompAuthenticationInterceptor
     @MessageMapping("/conversations/{conversationId}")
     public void sendMessage(
             @DestinationVariable UUID conversationId,
-            @Payload SendMessageRequest message,
-            SimpMessageHeaderAccessor headerAccessor) {
-        
-        // Get user from session (this would need proper WebSocket authentication setup)
-        var sessionAttributes = headerAccessor.getSessionAttributes();
-        if (sessionAttributes != null) {
-            User user = (User) sessionAttributes.get("user");
-            
-            if (user != null) {
-                conversationService.sendMessage(conversationId, message, user);
-                // Message is automatically sent via WebSocket in the service
-            }
-        }
+            @Valid @Payload SendMessageRequest message,
+            Principal principal) {
+        conversationService.sendMessage(conversationId, message, sender(principal));
+        // Message is automatically sent via WebSocket in the service
+    }
+
+    @MessageMapping("/conversations/{conversationId}/read")
+    public void markRead(
+            @DestinationVariable UUID conversationId,
+            @Valid @Payload MarkReadRequest request,
+            Principal principal) {
+        conversationService.markRead(conversationId, request.getMessageId(), sender(principal));
+        // Receipt is broadcast to /topic/conversations/{id}/read by the service
     }
 
     @MessageMapping("/global-chat/{globalChatId}")
     public void sendGlobalMessage(
             @DestinationVariable UUID globalChatId,
-            @Payload SendGlobalMessageRequest message,
-            SimpMessageHeaderAccessor headerAccessor) {
-        
-        // Get user from session (this would need proper WebSocket authentication setup)
-        var sessionAttributes = headerAccessor.getSessionAttributes();
-        if (sessionAttributes != null) {
-            User user = (User) sessionAttributes.get("user");
-            
-            if (user != null) {
-                globalChatService.sendGlobalMessage(globalChatId, message, user);
-                // Message is automatically sent via WebSocket in the service
-            }
+            @Valid @Payload SendGlobalMessageRequest message,
+            Principal principal) {
+        globalChatService.sendGlobalMessage(globalChatId, message, sender(principal));
+        // Message is automatically sent via WebSocket in the service
+    }
+
+    // A failed send is reported to the sending session only; unexpected failures do not leak their message
+    @MessageExceptionHandler
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public Map<String, String> handleException(Exception ex) {
+        String message;
+        if (ex instanceof UnauthorizedException || ex instanceof BadRequestException) {
+            log.debug("WebSocket message rejected: {}", ex.getMessage());
+            message = ex.getMessage();
+        } else if (ex instanceof MethodArgumentNotValidException invalid && invalid.getBindingResult() != null) {
+            log.debug("WebSocket message invalid: {}", ex.getMessage());
+            message = invalid.getBindingResult().getAllErrors().stream()
+                    .map(ObjectError::getDefaultMessage)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.joining(", "));
+        } else {
+            log.warn("WebSocket message failed", ex);
+            message = null;
+        }
+        return Map.of("message", message != null && !message.isEmpty() ? message : "Message could not be processed");
+    }
+
+    // Presence snapshots go to the subscriber alone; changes follow on /topic/{room}/presence
+    @SubscribeMapping("/conversations/{conversationId}/presence")
+    public PresenceUpdate conversationPresence(@DestinationVariable UUID conversationId) {
+        return presenceRegistry.snapshot("conversations/" + conversationId);
+    }
+
+    @SubscribeMapping("/global-chat/{globalChatId}/presence")
+    public PresenceUpdate globalChatPresence(@DestinationVariable UUID globalChatId) {
+        return presenceRegistry.snapshot("global-chat/" + globalChatId);
+    }
+
+    @MessageMapping("/conversations/{conversationId}/typing")
+    public void conversationTyping(
+            @DestinationVariable UUID conversationId,
+            @Payload TypingRequest request,
+            Principal principal) {
+        typing("conversations/" + conversationId, request, principal);
+    }
+
+    @MessageMapping("/global-chat/{globalChatId}/typing")
+    public void globalChatTyping(
+            @DestinationVariable UUID globalChatId,
+            @Payload TypingRequest request,
+            Principal principal) {
+        typing("global-chat/" + globalChatId, request, principal);
+    }
+
+    private void typing(String room, TypingRequest request, Principal principal) {
+        if (principal != null) {
+            presenceRegistry.typing(room, UUID.fromString(principal.getName()), request.isTyping());
+        }
+    }
+
+    private static User sender(Principal principal) {
+        if (!(principal instanceof StompPrincipal stompPrincipal)) {
+            throw new UnauthorizedException("Not authenticated");
         }
+        return stompPrincipal.toUser();
     }
 }
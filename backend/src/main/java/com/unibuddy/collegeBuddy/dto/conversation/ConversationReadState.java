@@ -0,0 +1,25 @@
+package com.unibuddy.collegeBuddy.dto.conversation;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read pointers and recomputed unread counts for both participants of a conversation,
+ * loaded by {@code UnreadCounterService} the first time it sees the conversation.
+ */
+public interface ConversationReadState {
+    UUID getConversationId();
+    UUID getBuyerId();
+    UUID getSellerId();
+
+    UUID getBuyerLastReadMessageId();
+    UUID getSellerLastReadMessageId();
+    LocalDateTime getBuyerLastReadAt();
+    LocalDateTime getSellerLastReadAt();
+
+    Long getBuyerUnreadCount();
+    Long getSellerUnreadCount();
+
+    UUID getLastMessageId();
+    LocalDateTime getLastMessageAt();
+}
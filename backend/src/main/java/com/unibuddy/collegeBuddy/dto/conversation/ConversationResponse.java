@@ -11,6 +11,7 @@ public class ConversationResponse {
     private ListingInfo listing;
     private UserInfo otherUser;
     private MessageInfo lastMessage;
+    private int unreadCount;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
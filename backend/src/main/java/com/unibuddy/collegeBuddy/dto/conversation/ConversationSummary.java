@@ -0,0 +1,30 @@
+package com.unibuddy.collegeBuddy.dto.conversation;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Flat inbox row read by {@code ConversationRepository.findInboxByUserId}: one row per
+ * conversation with the listing and the other participant joined in, and the latest message
+ * and unread count taken from the conversation's summary columns. Starting a conversation
+ * returns the same shape, seen from the buyer's side.
+ */
+public interface ConversationSummary {
+    UUID getId();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+
+    UUID getListingId();
+    String getListingTitle();
+    String getListingFirstImage();
+
+    UUID getOtherUserId();
+    String getOtherUserName();
+    String getOtherUserAvatarUrl();
+
+    String getLastMessageText();
+    LocalDateTime getLastMessageAt();
+    UUID getLastMessageSenderId();
+
+    Integer getUnreadCount();
+}
@@ -0,0 +1,12 @@
+package com.unibuddy.collegeBuddy.dto.conversation;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class MarkReadRequest {
+    @NotNull(message = "Message id is required")
+    private UUID messageId;
+}
@@ -0,0 +1,18 @@
+package com.unibuddy.collegeBuddy.dto.conversation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceiptResponse {
+    private UUID conversationId;
+    private UUID userId;
+    private UUID lastReadMessageId;
+    private LocalDateTime readAt;
+}
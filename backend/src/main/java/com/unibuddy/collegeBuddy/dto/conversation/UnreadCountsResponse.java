@@ -0,0 +1,17 @@
+package com.unibuddy.collegeBuddy.dto.conversation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountsResponse {
+    private int totalUnread;
+    // Only conversations with unread messages are listed
+    private Map<UUID, Integer> conversations;
+}
@@ -0,0 +1,44 @@
+package com.unibuddy.collegeBuddy.dto.message;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One window of chat history, oldest first. Use the first message's id as the
+ * {@code before} cursor to scroll back and the last one's as {@code after} to catch up.
+ */
+@Data
+public class MessageHistoryResponse<T> {
+    private List<T> content;
+    private boolean hasOlder;
+    private boolean hasNewer;
+
+    public enum Direction {
+        LATEST, BEFORE, AFTER
+    }
+
+    /**
+     * Build a window from rows fetched with {@code LIMIT size + 1} in index order: newest first
+     * for LATEST and BEFORE, oldest first for AFTER. The extra row only signals that more exist.
+     */
+    public static <E, T> MessageHistoryResponse<T> of(List<E> rows, int size, Direction direction, Function<E, T> mapper) {
+        boolean more = rows.size() > size;
+        List<T> content = new ArrayList<>(Math.min(rows.size(), size));
+        for (E row : rows.subList(0, Math.min(rows.size(), size))) {
+            content.add(mapper.apply(row));
+        }
+        if (direction != Direction.AFTER) {
+            Collections.reverse(content);
+        }
+
+        MessageHistoryResponse<T> response = new MessageHistoryResponse<>();
+        response.setContent(content);
+        response.setHasOlder(direction == Direction.AFTER || more);
+        response.setHasNewer(direction == Direction.BEFORE || (direction == Direction.AFTER && more));
+        return response;
+    }
+}
@@ -8,6 +8,7 @@ import java.util.UUID;
 @Data
 public class MessageResponse {
     private UUID id;
+    private Long seq;
     private String messageText;
     private String imageUrl;
     private SenderInfo sender;
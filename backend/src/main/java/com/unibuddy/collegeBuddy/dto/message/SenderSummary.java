@@ -0,0 +1,15 @@
+package com.unibuddy.collegeBuddy.dto.message;
+
+import com.unibuddy.collegeBuddy.entity.User;
+
+import java.util.UUID;
+
+/**
+ * The sender columns a chat message response shows, fetched for a whole history page at once
+ */
+public record SenderSummary(UUID id, String name, String avatarUrl, Short year) {
+
+    public static SenderSummary of(User user) {
+        return new SenderSummary(user.getId(), user.getName(), user.getAvatarUrl(), user.getYear());
+    }
+}
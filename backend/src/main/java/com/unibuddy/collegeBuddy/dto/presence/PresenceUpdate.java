@@ -0,0 +1,18 @@
+package com.unibuddy.collegeBuddy.dto.presence;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Who is in a chat room and who is typing. A snapshot lists everyone and is sent to one new
+ * subscriber; every other update only carries the changes since the previous one for the room.
+ */
+public record PresenceUpdate(boolean snapshot, int count,
+                             Collection<UUID> online, Collection<UUID> offline,
+                             Collection<UUID> typing, Collection<UUID> stoppedTyping) {
+
+    public static PresenceUpdate snapshot(int count, Collection<UUID> online, Collection<UUID> typing) {
+        return new PresenceUpdate(true, count, online, List.of(), typing, List.of());
+    }
+}
@@ -0,0 +1,8 @@
+package com.unibuddy.collegeBuddy.dto.presence;
+
+import lombok.Data;
+
+@Data
+public class TypingRequest {
+    private boolean typing;
+}
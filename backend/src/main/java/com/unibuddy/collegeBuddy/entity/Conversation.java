@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"listing_id", "buyer_id"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,4 +41,34 @@ public class Conversation {
     @UpdateTimestamp
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+
+    // Inbox summary, updated in the same statement as updatedAt whenever a message is sent
+    @Column(name = "last_message_text", columnDefinition = "TEXT")
+    private String lastMessageText;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "last_sender_id", columnDefinition = "uuid")
+    private UUID lastSenderId;
+
+    @Column(name = "buyer_unread_count", nullable = false)
+    private Integer buyerUnreadCount = 0;
+
+    @Column(name = "seller_unread_count", nullable = false)
+    private Integer sellerUnreadCount = 0;
+
+    // Read state is owned by UnreadCounterService and only written back in batches
+    @Column(name = "buyer_last_read_message_id", columnDefinition = "uuid")
+    private UUID buyerLastReadMessageId;
+
+    @Column(name = "seller_last_read_message_id", columnDefinition = "uuid")
+    private UUID sellerLastReadMessageId;
+
+    // Sent time of the pointer messages, which may since have been archived
+    @Column(name = "buyer_last_read_at")
+    private LocalDateTime buyerLastReadAt;
+
+    @Column(name = "seller_last_read_at")
+    private LocalDateTime sellerLastReadAt;
 }
@@ -33,6 +33,10 @@ public class GlobalChat {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
 
+    // Written only by GlobalChatMessageCounter's flush, never by entity updates
+    @Column(name = "message_count", nullable = false, updatable = false)
+    private Long messageCount = 0L;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -34,6 +34,10 @@ public class Message {
     @Column(name = "image_url", length = 500)
     private String imageUrl;
 
+    // Dense per-room order, assigned by RoomSequenceAllocator
+    @Column(nullable = false, updatable = false)
+    private Long seq;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,7 @@
+package com.unibuddy.collegeBuddy.exception;
+
+public class StorageUnavailableException extends RuntimeException {
+    public StorageUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -1,13 +1,18 @@
 package com.unibuddy.collegeBuddy.repository;
 
+import com.unibuddy.collegeBuddy.dto.conversation.ConversationReadState;
+import com.unibuddy.collegeBuddy.dto.conversation.ConversationSummary;
 import com.unibuddy.collegeBuddy.entity.Conversation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -21,12 +26,179 @@ public interface ConversationRepository extends JpaRepository<Conversation, UUID
         """)
     Page<Conversation> findByUserInvolved(@Param("userId") UUID userId, Pageable pageable);
 
+    // One statement per inbox page. Each UNION ALL branch is a top-N read of the
+    // (buyer_id, updated_at) or (seller_id, updated_at) index, which an OR filter cannot use
+    // for ordering; the latest message comes from the conversation's summary columns.
+    @Query(value = """
+        SELECT c.id AS "id",
+               CAST(c.created_at AS timestamp) AS "createdAt",
+               CAST(c.updated_at AS timestamp) AS "updatedAt",
+               l.id AS "listingId",
+               l.title AS "listingTitle",
+               l.images ->> 0 AS "listingFirstImage",
+               u.id AS "otherUserId",
+               u.name AS "otherUserName",
+               u.avatar_url AS "otherUserAvatarUrl",
+               c.last_message_text AS "lastMessageText",
+               CAST(c.last_message_at AS timestamp) AS "lastMessageAt",
+               c.last_sender_id AS "lastMessageSenderId",
+               GREATEST(CASE WHEN c.buyer_id = :userId THEN c.buyer_unread_count ELSE c.seller_unread_count END, 0) AS "unreadCount"
+        FROM (
+            (SELECT * FROM conversations WHERE buyer_id = :userId ORDER BY updated_at DESC LIMIT :limit + :offset)
+            UNION ALL
+            (SELECT * FROM conversations WHERE seller_id = :userId ORDER BY updated_at DESC LIMIT :limit + :offset)
+        ) c
+        JOIN listings l ON l.id = c.listing_id
+        JOIN users u ON u.id = CASE WHEN c.buyer_id = :userId THEN c.seller_id ELSE c.buyer_id END
+        ORDER BY c.updated_at DESC
+        LIMIT :limit OFFSET :offset
+        """, nativeQuery = true)
+    List<ConversationSummary> findInboxByUserId(@Param("userId") UUID userId,
+                                                @Param("limit") int limit,
+                                                @Param("offset") long offset);
+
+    @Query(value = """
+        SELECT (SELECT COUNT(*) FROM conversations WHERE buyer_id = :userId)
+             + (SELECT COUNT(*) FROM conversations WHERE seller_id = :userId)
+        """, nativeQuery = true)
+    long countInboxByUserId(@Param("userId") UUID userId);
+
+    // Unread counts are kept by UnreadCounterService and flushed separately
+    @Modifying
+    @Query("""
+        UPDATE Conversation c
+        SET c.lastMessageText = :messageText,
+            c.lastMessageAt = :sentAt,
+            c.lastSenderId = :senderId,
+            c.updatedAt = :sentAt
+        WHERE c.id = :conversationId
+        """)
+    int recordMessage(@Param("conversationId") UUID conversationId,
+                      @Param("senderId") UUID senderId,
+                      @Param("messageText") String messageText,
+                      @Param("sentAt") LocalDateTime sentAt);
+
     Optional<Conversation> findByListingIdAndBuyerId(UUID listingId, UUID buyerId);
 
+    // Insert-or-get in one round trip, with the listing and seller read from the same statement.
+    // No row means the listing does not exist; a row with a null id means the buyer is the seller,
+    // or a concurrent start committed after this statement's snapshot and findStarted will see it.
+    @Query(value = """
+        WITH listing AS (
+            SELECT l.id, l.title, l.images ->> 0 AS first_image, l.seller_id, u.name, u.avatar_url
+            FROM listings l
+            JOIN users u ON u.id = l.seller_id
+            WHERE l.id = :listingId
+        ), inserted AS (
+            INSERT INTO conversations (id, listing_id, buyer_id, seller_id, created_at, updated_at,
+                                       buyer_unread_count, seller_unread_count)
+            SELECT gen_random_uuid(), l.id, :buyerId, l.seller_id, now(), now(), 0, 0
+            FROM listing l
+            WHERE l.seller_id <> :buyerId
+            ON CONFLICT (listing_id, buyer_id) DO NOTHING
+            RETURNING *
+        )
+        SELECT c.id AS "id",
+               CAST(c.created_at AS timestamp) AS "createdAt",
+               CAST(c.updated_at AS timestamp) AS "updatedAt",
+               l.id AS "listingId",
+               l.title AS "listingTitle",
+               l.first_image AS "listingFirstImage",
+               l.seller_id AS "otherUserId",
+               l.name AS "otherUserName",
+               l.avatar_url AS "otherUserAvatarUrl",
+               c.last_message_text AS "lastMessageText",
+               CAST(c.last_message_at AS timestamp) AS "lastMessageAt",
+               c.last_sender_id AS "lastMessageSenderId",
+               c.buyer_unread_count AS "unreadCount"
+        FROM listing l
+        LEFT JOIN LATERAL (
+            SELECT * FROM inserted
+            UNION ALL
+            SELECT * FROM conversations WHERE listing_id = l.id AND buyer_id = :buyerId
+            LIMIT 1
+        ) c ON true
+        """, nativeQuery = true)
+    Optional<ConversationSummary> startConversation(@Param("listingId") UUID listingId, @Param("buyerId") UUID buyerId);
+
+    @Query(value = """
+        SELECT c.id AS "id",
+               CAST(c.created_at AS timestamp) AS "createdAt",
+               CAST(c.updated_at AS timestamp) AS "updatedAt",
+               l.id AS "listingId",
+               l.title AS "listingTitle",
+               l.images ->> 0 AS "listingFirstImage",
+               u.id AS "otherUserId",
+               u.name AS "otherUserName",
+               u.avatar_url AS "otherUserAvatarUrl",
+               c.last_message_text AS "lastMessageText",
+               CAST(c.last_message_at AS timestamp) AS "lastMessageAt",
+               c.last_sender_id AS "lastMessageSenderId",
+               c.buyer_unread_count AS "unreadCount"
+        FROM conversations c
+        JOIN listings l ON l.id = c.listing_id
+        JOIN users u ON u.id = c.seller_id
+        WHERE c.listing_id = :listingId AND c.buyer_id = :buyerId
+        """, nativeQuery = true)
+    Optional<ConversationSummary> findStarted(@Param("listingId") UUID listingId, @Param("buyerId") UUID buyerId);
+
+    // Every conversation a user is in, for the subscription membership cache; one index read per side
+    @Query(value = """
+        SELECT id FROM conversations WHERE buyer_id = :userId
+        UNION ALL
+        SELECT id FROM conversations WHERE seller_id = :userId
+        """, nativeQuery = true)
+    List<UUID> findIdsByUserInvolved(@Param("userId") UUID userId);
+
+    @Query("""
+        SELECT COUNT(c) > 0 FROM Conversation c
+        WHERE c.id = :conversationId
+        AND (c.buyer.id = :userId OR c.seller.id = :userId)
+        """)
+    boolean existsByIdAndUserInvolved(@Param("conversationId") UUID conversationId, @Param("userId") UUID userId);
+
     @Query("""
         SELECT c FROM Conversation c 
         WHERE c.id = :conversationId 
         AND (c.buyer.id = :userId OR c.seller.id = :userId)
         """)
     Optional<Conversation> findByIdAndUserInvolved(@Param("conversationId") UUID conversationId, @Param("userId") UUID userId);
+
+    // Unread counts are recomputed from the read pointers rather than trusted from the
+    // counter columns, so a crash before the last flush can only over-report, never lose, unread messages.
+    // The pointers' timestamps are stored alongside them, as the pointer message may have been archived.
+    String READ_STATE_SELECT = """
+        SELECT c.id AS "conversationId",
+               c.buyer_id AS "buyerId",
+               c.seller_id AS "sellerId",
+               c.buyer_last_read_message_id AS "buyerLastReadMessageId",
+               c.seller_last_read_message_id AS "sellerLastReadMessageId",
+               CAST(c.buyer_last_read_at AS timestamp) AS "buyerLastReadAt",
+               CAST(c.seller_last_read_at AS timestamp) AS "sellerLastReadAt",
+               (SELECT COUNT(*) FROM messages m
+                WHERE m.conversation_id = c.id AND m.sender_id <> c.buyer_id AND m.id <> :excludeMessageId
+                  AND (c.buyer_last_read_at IS NULL OR m.created_at > c.buyer_last_read_at)) AS "buyerUnreadCount",
+               (SELECT COUNT(*) FROM messages m
+                WHERE m.conversation_id = c.id AND m.sender_id <> c.seller_id AND m.id <> :excludeMessageId
+                  AND (c.seller_last_read_at IS NULL OR m.created_at > c.seller_last_read_at)) AS "sellerUnreadCount",
+               lm.id AS "lastMessageId",
+               CAST(lm.created_at AS timestamp) AS "lastMessageAt"
+        FROM conversations c
+        LEFT JOIN LATERAL (
+            SELECT m.id, m.created_at FROM messages m
+            WHERE m.conversation_id = c.id AND m.id <> :excludeMessageId
+            ORDER BY m.created_at DESC
+            LIMIT 1
+        ) lm ON true
+        """;
+
+    @Query(value = READ_STATE_SELECT + "WHERE c.id = :conversationId", nativeQuery = true)
+    Optional<ConversationReadState> findReadState(@Param("conversationId") UUID conversationId,
+                                                  @Param("excludeMessageId") UUID excludeMessageId);
+
+    // One index read per side, like findIdsByUserInvolved
+    @Query(value = READ_STATE_SELECT + "WHERE c.buyer_id = :userId UNION ALL "
+            + READ_STATE_SELECT + "WHERE c.seller_id = :userId", nativeQuery = true)
+    List<ConversationReadState> findReadStatesByUserId(@Param("userId") UUID userId,
+                                                       @Param("excludeMessageId") UUID excludeMessageId);
 }
@@ -2,13 +2,19 @@ package com.unibuddy.collegeBuddy.repository;
 
 import com.unibuddy.collegeBuddy.entity.GlobalChat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface GlobalChatRepository extends JpaRepository<GlobalChat, UUID> {
     List<GlobalChat> findByCollegeIdAndIsActiveTrue(Long collegeId);
     List<GlobalChat> findByCollegeIdOrderByCreatedAtAsc(Long collegeId);
+
+    @Query("SELECT g.college.id FROM GlobalChat g WHERE g.id = :globalChatId")
+    Optional<Long> findCollegeIdById(@Param("globalChatId") UUID globalChatId);
 }
@@ -1,20 +1,61 @@
 package com.unibuddy.collegeBuddy.repository;
 
 import com.unibuddy.collegeBuddy.entity.GlobalMessage;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface GlobalMessageRepository extends JpaRepository<GlobalMessage, UUID> {
     
-    Page<GlobalMessage> findByGlobalChatIdOrderByCreatedAtAsc(UUID globalChatId, Pageable pageable);
+    // Keyset pagination on (global_chat_id, created_at, id); cursors are message ids resolved in the same statement.
+    // The explicit created_at bound on cursor reads lets the executor prune monthly partitions on the far side
+    @Query(value = """
+        SELECT * FROM global_messages m
+        WHERE m.global_chat_id = :globalChatId
+        ORDER BY m.created_at DESC, m.id DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<GlobalMessage> findLatest(@Param("globalChatId") UUID globalChatId, @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT * FROM global_messages m
+        WHERE m.global_chat_id = :globalChatId
+          AND m.created_at <= (SELECT c.created_at FROM global_messages c WHERE c.id = :cursor)
+          AND (m.created_at, m.id) < (SELECT c.created_at, c.id FROM global_messages c WHERE c.id = :cursor)
+        ORDER BY m.created_at DESC, m.id DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<GlobalMessage> findBefore(@Param("globalChatId") UUID globalChatId, @Param("cursor") UUID cursor, @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT * FROM global_messages m
+        WHERE m.global_chat_id = :globalChatId
+          AND m.created_at >= (SELECT c.created_at FROM global_messages c WHERE c.id = :cursor)
+          AND (m.created_at, m.id) > (SELECT c.created_at, c.id FROM global_messages c WHERE c.id = :cursor)
+        ORDER BY m.created_at ASC, m.id ASC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<GlobalMessage> findAfter(@Param("globalChatId") UUID globalChatId, @Param("cursor") UUID cursor, @Param("limit") int limit);
+
+    // Continues an archived page forward into the database
+    @Query(value = """
+        SELECT * FROM global_messages m
+        WHERE m.global_chat_id = :globalChatId
+        ORDER BY m.created_at ASC, m.id ASC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<GlobalMessage> findOldest(@Param("globalChatId") UUID globalChatId, @Param("limit") int limit);
 
     @Query("""
         SELECT m FROM GlobalMessage m 
@@ -24,5 +65,20 @@ public interface GlobalMessageRepository extends JpaRepository<GlobalMessage, UU
         """)
     Optional<GlobalMessage> findLatestByGlobalChatId(@Param("globalChatId") UUID globalChatId);
 
+    @Query(value = """
+        SELECT * FROM global_messages m
+        WHERE m.global_chat_id = :globalChatId AND m.seq > :sinceSeq
+        ORDER BY m.seq
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<GlobalMessage> findSinceSeq(@Param("globalChatId") UUID globalChatId, @Param("sinceSeq") long sinceSeq, @Param("limit") int limit);
+
+    @Query(value = "SELECT COALESCE(MAX(m.seq), 0) FROM global_messages m WHERE m.global_chat_id = :globalChatId", nativeQuery = true)
+    long findMaxSeq(@Param("globalChatId") UUID globalChatId);
+
     long countBySenderIdAndCreatedAtAfter(UUID senderId, java.time.LocalDateTime since);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT m.imageUrl FROM GlobalMessage m WHERE m.imageUrl IS NOT NULL")
+    Stream<String> streamImageUrls();
 }
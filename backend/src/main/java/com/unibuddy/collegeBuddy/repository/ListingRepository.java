@@ -1,15 +1,20 @@
 package com.unibuddy.collegeBuddy.repository;
 
 import com.unibuddy.collegeBuddy.entity.Listing;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ListingRepository extends JpaRepository<Listing, UUID> {
@@ -42,4 +47,9 @@ public interface ListingRepository extends JpaRepository<Listing, UUID> {
     );
 
     Page<Listing> findBySellerIdAndStatus(UUID sellerId, Listing.Status status, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT jsonb_array_elements_text(l.images) FROM listings l WHERE l.images IS NOT NULL",
+        nativeQuery = true)
+    Stream<String> streamImageUrls();
 }
@@ -1,20 +1,61 @@
 package com.unibuddy.collegeBuddy.repository;
 
 import com.unibuddy.collegeBuddy.entity.Message;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, UUID> {
     
-    Page<Message> findByConversationIdOrderByCreatedAtAsc(UUID conversationId, Pageable pageable);
+    // Keyset pagination on (conversation_id, created_at, id); cursors are message ids resolved in the same statement.
+    // The explicit created_at bound on cursor reads lets the executor prune monthly partitions on the far side
+    @Query(value = """
+        SELECT * FROM messages m
+        WHERE m.conversation_id = :conversationId
+        ORDER BY m.created_at DESC, m.id DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Message> findLatest(@Param("conversationId") UUID conversationId, @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT * FROM messages m
+        WHERE m.conversation_id = :conversationId
+          AND m.created_at <= (SELECT c.created_at FROM messages c WHERE c.id = :cursor)
+          AND (m.created_at, m.id) < (SELECT c.created_at, c.id FROM messages c WHERE c.id = :cursor)
+        ORDER BY m.created_at DESC, m.id DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Message> findBefore(@Param("conversationId") UUID conversationId, @Param("cursor") UUID cursor, @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT * FROM messages m
+        WHERE m.conversation_id = :conversationId
+          AND m.created_at >= (SELECT c.created_at FROM messages c WHERE c.id = :cursor)
+          AND (m.created_at, m.id) > (SELECT c.created_at, c.id FROM messages c WHERE c.id = :cursor)
+        ORDER BY m.created_at ASC, m.id ASC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Message> findAfter(@Param("conversationId") UUID conversationId, @Param("cursor") UUID cursor, @Param("limit") int limit);
+
+    // Continues an archived page forward into the database
+    @Query(value = """
+        SELECT * FROM messages m
+        WHERE m.conversation_id = :conversationId
+        ORDER BY m.created_at ASC, m.id ASC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Message> findOldest(@Param("conversationId") UUID conversationId, @Param("limit") int limit);
 
     @Query("""
         SELECT m FROM Message m 
@@ -24,5 +65,23 @@ public interface MessageRepository extends JpaRepository<Message, UUID> {
         """)
     Optional<Message> findLatestByConversationId(@Param("conversationId") UUID conversationId);
 
+    long countByConversationIdAndSenderIdNotAndCreatedAtAfter(UUID conversationId, UUID senderId, java.time.LocalDateTime after);
+
+    @Query(value = """
+        SELECT * FROM messages m
+        WHERE m.conversation_id = :conversationId AND m.seq > :sinceSeq
+        ORDER BY m.seq
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Message> findSinceSeq(@Param("conversationId") UUID conversationId, @Param("sinceSeq") long sinceSeq, @Param("limit") int limit);
+
+    @Query(value = "SELECT COALESCE(MAX(m.seq), 0) FROM messages m WHERE m.conversation_id = :conversationId", nativeQuery = true)
+    long findMaxSeq(@Param("conversationId") UUID conversationId);
+
     long countBySenderIdAndCreatedAtAfter(UUID senderId, java.time.LocalDateTime since);
+
+    // Without a fetch size the Postgres driver buffers the whole result before the stream starts
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT m.imageUrl FROM Message m WHERE m.imageUrl IS NOT NULL")
+    Stream<String> streamImageUrls();
 }
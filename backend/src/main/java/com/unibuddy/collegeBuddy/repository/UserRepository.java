@@ -1,9 +1,12 @@
 package com.unibuddy.collegeBuddy.repository;
 
+import com.unibuddy.collegeBuddy.dto.message.SenderSummary;
 import com.unibuddy.collegeBuddy.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -13,4 +16,7 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByVerificationToken(String verificationToken);
     Optional<User> findByResetPasswordToken(String resetPasswordToken);
     boolean existsByEmail(String email);
+
+    // One IN query for every distinct sender on a history page
+    List<SenderSummary> findSendersByIdIn(Collection<UUID> ids);
 }
@@ -0,0 +1,69 @@
+package com.unibuddy.collegeBuddy.security;
+
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import com.unibuddy.collegeBuddy.util.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Authenticates a STOMP session once, from the {@code Authorization: Bearer} header of its
+ * CONNECT frame, and attaches a {@link StompPrincipal} that every later frame of the session
+ * carries. Connections without a valid token are refused; sends after the token has expired are
+ * rejected until the client reconnects with a fresh one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StompAuthenticationInterceptor implements ChannelInterceptor {
+
+    private final JwtUtils jwtUtils;
+    private final UserRepository userRepository;
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand()) || StompCommand.STOMP.equals(accessor.getCommand())) {
+            accessor.setUser(authenticate(message, accessor.getFirstNativeHeader("Authorization")));
+        } else if (StompCommand.SEND.equals(accessor.getCommand())
+                && accessor.getUser() instanceof StompPrincipal principal && principal.isExpired()) {
+            throw new MessageDeliveryException(message, "Access token expired, reconnect to continue");
+        }
+        return message;
+    }
+
+    private StompPrincipal authenticate(Message<?> message, String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new MessageDeliveryException(message, "Missing access token");
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtils.extractClaim(authHeader.substring(7), Function.identity());
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.debug("Rejected STOMP CONNECT: {}", ex.getMessage());
+            throw new MessageDeliveryException(message, "Invalid access token");
+        }
+
+        User user = userRepository.findByEmail(claims.getSubject())
+                .orElseThrow(() -> new MessageDeliveryException(message, "Invalid access token"));
+        return StompPrincipal.of(user, claims.getExpiration().toInstant());
+    }
+}
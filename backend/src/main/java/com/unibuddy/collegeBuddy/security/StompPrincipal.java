@@ -0,0 +1,51 @@
+package com.unibuddy.collegeBuddy.security;
+
+import com.unibuddy.collegeBuddy.entity.College;
+import com.unibuddy.collegeBuddy.entity.User;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The user behind a STOMP session, captured once on CONNECT. Its name is the user id, which is
+ * what presence and user destinations key on. Sends use {@link #toUser()} instead of loading
+ * the user again, so a message costs no authentication work.
+ */
+public record StompPrincipal(UUID id, String email, String displayName, String avatarUrl, Short year,
+                             boolean emailVerified, Long collegeId, Instant expiresAt) implements Principal {
+
+    public static StompPrincipal of(User user, Instant expiresAt) {
+        return new StompPrincipal(user.getId(), user.getEmail(), user.getName(), user.getAvatarUrl(), user.getYear(),
+                Boolean.TRUE.equals(user.getEmailVerified()),
+                user.getCollege() != null ? user.getCollege().getId() : null, expiresAt);
+    }
+
+    @Override
+    public String getName() {
+        return id.toString();
+    }
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(Instant.now());
+    }
+
+    /**
+     * A detached user holding what the chat services read; associations only carry ids
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setName(displayName);
+        user.setAvatarUrl(avatarUrl);
+        user.setYear(year);
+        user.setEmailVerified(emailVerified);
+        if (collegeId != null) {
+            College college = new College();
+            college.setId(collegeId);
+            user.setCollege(college);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,89 @@
+package com.unibuddy.collegeBuddy.security;
+
+import com.unibuddy.collegeBuddy.service.ChatMembershipCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lets a session SUBSCRIBE only to rooms its user belongs to: a conversation's topics (messages,
+ * read receipts, presence) to its buyer and seller, and a global chat's topics and the college
+ * chat list to students of that college. User destinations are always allowed, since the broker
+ * resolves them to the subscribing session; everything else is refused.
+ * <p>
+ * A refused subscription is dropped rather than answered with an ERROR frame, which would close
+ * the connection and send the client into a reconnect loop resubscribing to the same room.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriptionAuthorizationInterceptor implements ChannelInterceptor {
+
+    private static final String UUID_PATTERN = "([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})";
+    // Presence snapshots are subscriptions to /app, answered by @SubscribeMapping
+    private static final Pattern CONVERSATION = Pattern.compile("/(?:topic|app)/conversations/" + UUID_PATTERN + "(?:/read|/presence)?");
+    private static final Pattern GLOBAL_CHAT = Pattern.compile("/(?:topic|app)/global-chat/" + UUID_PATTERN + "(?:/presence)?");
+    private static final Pattern COLLEGE_CHATS = Pattern.compile("/topic/colleges/(\\d+)/global-chats");
+
+    private final ChatMembershipCache membershipCache;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination != null && accessor.getUser() instanceof StompPrincipal principal
+                && isAllowed(principal, destination)) {
+            allowed.increment();
+            return message;
+        }
+
+        denied.increment();
+        log.debug("Refused subscription to {} for session {}", destination, accessor.getSessionId());
+        return null;
+    }
+
+    private boolean isAllowed(StompPrincipal principal, String destination) {
+        if (destination.startsWith("/user/")) {
+            return true;
+        }
+        Matcher matcher;
+        if ((matcher = CONVERSATION.matcher(destination)).matches()) {
+            return membershipCache.isConversationMember(UUID.fromString(matcher.group(1)), principal.id());
+        }
+        if ((matcher = GLOBAL_CHAT.matcher(destination)).matches()) {
+            return membershipCache.isGlobalChatInCollege(UUID.fromString(matcher.group(1)), principal.collegeId());
+        }
+        if ((matcher = COLLEGE_CHATS.matcher(destination)).matches()) {
+            return matcher.group(1).equals(String.valueOf(principal.collegeId()));
+        }
+        return false;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>(membershipCache.getMetrics());
+        metrics.put("allowed", allowed.sum());
+        metrics.put("denied", denied.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,199 @@
+package com.unibuddy.collegeBuddy.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges bursts of broadcasts to one destination into a single frame holding a JSON array, so a
+ * busy room costs one serialization and one frame per subscriber per window instead of per message.
+ * <p>
+ * A message to a room that has been quiet for the current window goes out at once, as a plain
+ * object. Messages arriving within the window wait for its end, or for {@code max-batch} of them.
+ * The window doubles, up to {@code max-window-ms}, after every flush that merged messages and
+ * halves, down to {@code min-window-ms}, after every one that did not.
+ * <p>
+ * A room with nothing pending that has sent nothing for {@code idle-ms} is dropped; its next
+ * message starts a fresh room, which only forgets how far the window had grown.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BroadcastCoalescer {
+
+    private final SharedPayloadBroadcaster broadcaster;
+
+    @Value("${app.chat.coalescing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.chat.coalescing.min-window-ms:20}")
+    private long minWindowMs;
+
+    @Value("${app.chat.coalescing.max-window-ms:50}")
+    private long maxWindowMs;
+
+    @Value("${app.chat.coalescing.max-batch:50}")
+    private int maxBatch;
+
+    @Value("${app.chat.coalescing.idle-ms:60000}")
+    private long idleMs;
+
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    private static final class Room {
+        private final List<Object> pending = new ArrayList<>();
+        private long windowNanos;
+        private long lastSentNanos;
+        private boolean flushScheduled;
+
+        private Room(long windowNanos) {
+            this.windowNanos = windowNanos;
+            this.lastSentNanos = System.nanoTime() - windowNanos;
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "broadcast-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::pruneIdleRooms, idleMs, idleMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            rooms.forEach(this::flush);
+        }
+    }
+
+    /**
+     * Send once the surrounding transaction commits
+     */
+    public void sendAfterCommit(String destination, Object payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(destination, payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(destination, payload);
+            }
+        });
+    }
+
+    public void send(String destination, Object payload) {
+        messages.increment();
+        if (!enabled) {
+            broadcaster.send(destination, payload);
+            frames.increment();
+            return;
+        }
+
+        // Frames are sent under the room's lock, so a destination's messages never overtake each other.
+        // A room pruned meanwhile is simply created again.
+        while (true) {
+            Room room = rooms.computeIfAbsent(destination, key -> new Room(TimeUnit.MILLISECONDS.toNanos(minWindowMs)));
+            synchronized (room) {
+                if (rooms.get(destination) != room) {
+                    continue;
+                }
+                enqueue(destination, room, payload);
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("rooms", rooms.size());
+        metrics.put("messages", messages.sum());
+        metrics.put("frames", frames.sum());
+        return metrics;
+    }
+
+    void pruneIdleRooms() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMs);
+        long now = System.nanoTime();
+        rooms.forEach((destination, room) -> {
+            synchronized (room) {
+                if (room.pending.isEmpty() && !room.flushScheduled && now - room.lastSentNanos >= idleNanos) {
+                    rooms.remove(destination, room);
+                }
+            }
+        });
+    }
+
+    // Called holding the room's lock
+    private void enqueue(String destination, Room room, Object payload) {
+        long now = System.nanoTime();
+        if (room.pending.isEmpty() && now - room.lastSentNanos >= room.windowNanos) {
+            room.pending.add(payload);
+            sendPending(destination, room, now);
+            return;
+        }
+
+        room.pending.add(payload);
+        if (room.pending.size() >= maxBatch) {
+            sendPending(destination, room, now);
+        } else if (!room.flushScheduled) {
+            room.flushScheduled = true;
+            long delay = Math.max(0, room.lastSentNanos + room.windowNanos - now);
+            flusher.schedule(() -> flush(destination, room), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush(String destination, Room room) {
+        try {
+            synchronized (room) {
+                room.flushScheduled = false;
+                if (!room.pending.isEmpty()) {
+                    sendPending(destination, room, System.nanoTime());
+                }
+            }
+        } catch (Exception ex) {
+            log.error("Failed to flush coalesced broadcasts to {}", destination, ex);
+        }
+    }
+
+    private void sendPending(String destination, Room room, long now) {
+        List<Object> batch = List.copyOf(room.pending);
+        room.pending.clear();
+        room.lastSentNanos = now;
+
+        long minWindow = TimeUnit.MILLISECONDS.toNanos(minWindowMs);
+        long maxWindow = TimeUnit.MILLISECONDS.toNanos(maxWindowMs);
+        room.windowNanos = batch.size() > 1
+                ? Math.min(maxWindow, room.windowNanos * 2)
+                : Math.max(minWindow, room.windowNanos / 2);
+
+        // A lone message keeps the plain object shape that non-batching clients expect
+        broadcaster.send(destination, batch.size() == 1 ? batch.get(0) : batch);
+        frames.increment();
+    }
+}
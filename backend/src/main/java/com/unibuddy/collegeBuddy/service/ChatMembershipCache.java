@@ -0,0 +1,201 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.repository.ConversationRepository;
+import com.unibuddy.collegeBuddy.repository.GlobalChatRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Who may see which chat room, for authorizing STOMP subscriptions. A user's conversations are
+ * loaded in one query the first time they subscribe to any of them, and a global chat's college
+ * the first time anyone subscribes to it, so a client resubscribing to all its rooms on every
+ * reconnect costs no queries at all after the first.
+ * <p>
+ * Both maps are LRU-bounded. Conversations started here are added as they are created; one
+ * started on another node is found by a single lookup on the first miss. Participants and a
+ * chat's college never change, so nothing else needs invalidating.
+ * <p>
+ * Refusals are remembered for {@code denied-ttl-ms}, so a client retrying a conversation it is
+ * not part of costs one lookup per interval rather than one per attempt. Conversation ids are
+ * random and handed out only once the row exists, so a remembered refusal cannot hide a
+ * conversation started afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatMembershipCache {
+
+    private final ConversationRepository conversationRepository;
+    private final GlobalChatRepository globalChatRepository;
+
+    @Value("${app.chat.membership.max-users:20000}")
+    private int maxUsers;
+
+    @Value("${app.chat.membership.max-global-chats:5000}")
+    private int maxGlobalChats;
+
+    @Value("${app.chat.membership.denied-ttl-ms:30000}")
+    private long deniedTtlMs;
+
+    @Value("${app.chat.membership.max-denied:20000}")
+    private int maxDenied;
+
+    // Access-ordered, so the users who reconnected longest ago are dropped first
+    private final Map<UUID, Conversations> conversations = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Conversations> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    private final Map<UUID, Long> globalChatColleges = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+            return size() > maxGlobalChats;
+        }
+    };
+
+    // Expiry, in System.nanoTime(), of each refused (conversation, user) pair
+    private final Map<Denial, Long> denied = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Denial, Long> eldest) {
+            return size() > maxDenied;
+        }
+    };
+
+    private record Denial(UUID conversationId, UUID userId) {}
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder deniedHits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+
+    // Loaded once per user; the sessions of one user subscribing in parallel wait for the same load
+    private final class Conversations {
+        private final UUID userId;
+        private volatile Set<UUID> ids;
+
+        private Conversations(UUID userId) {
+            this.userId = userId;
+        }
+
+        private Set<UUID> ids() {
+            Set<UUID> loaded = ids;
+            if (loaded == null) {
+                synchronized (this) {
+                    loaded = ids;
+                    if (loaded == null) {
+                        loads.increment();
+                        loaded = ConcurrentHashMap.newKeySet();
+                        loaded.addAll(conversationRepository.findIdsByUserInvolved(userId));
+                        ids = loaded;
+                    }
+                }
+            }
+            return loaded;
+        }
+    }
+
+    public boolean isConversationMember(UUID conversationId, UUID userId) {
+        Conversations cached;
+        synchronized (conversations) {
+            cached = conversations.computeIfAbsent(userId, Conversations::new);
+        }
+        Set<UUID> ids = cached.ids();
+        if (ids.contains(conversationId)) {
+            hits.increment();
+            return true;
+        }
+
+        Denial denial = new Denial(conversationId, userId);
+        synchronized (denied) {
+            Long expiresAt = denied.get(denial);
+            if (expiresAt != null) {
+                if (expiresAt - System.nanoTime() > 0) {
+                    deniedHits.increment();
+                    return false;
+                }
+                denied.remove(denial);
+            }
+        }
+
+        // Started on another node since the load, or not this user's conversation
+        lookups.increment();
+        if (conversationRepository.existsByIdAndUserInvolved(conversationId, userId)) {
+            ids.add(conversationId);
+            return true;
+        }
+        synchronized (denied) {
+            denied.put(denial, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deniedTtlMs));
+        }
+        return false;
+    }
+
+    public boolean isGlobalChatInCollege(UUID globalChatId, Long collegeId) {
+        if (collegeId == null) {
+            return false;
+        }
+        Long cached;
+        synchronized (globalChatColleges) {
+            cached = globalChatColleges.get(globalChatId);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached.equals(collegeId);
+        }
+
+        lookups.increment();
+        Long chatCollege = globalChatRepository.findCollegeIdById(globalChatId).orElse(null);
+        if (chatCollege == null) {
+            return false;
+        }
+        synchronized (globalChatColleges) {
+            globalChatColleges.put(globalChatId, chatCollege);
+        }
+        return chatCollege.equals(collegeId);
+    }
+
+    /**
+     * Add a conversation to its participants' cached memberships. Adding one whose insert
+     * later rolls back is harmless: nothing is ever broadcast to it.
+     */
+    public void conversationStarted(UUID conversationId, UUID buyerId, UUID sellerId) {
+        for (UUID userId : new UUID[] {buyerId, sellerId}) {
+            Conversations cached;
+            synchronized (conversations) {
+                cached = conversations.get(userId);
+            }
+            Set<UUID> ids = cached != null ? cached.ids : null;
+            if (ids != null) {
+                ids.add(conversationId);
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        synchronized (conversations) {
+            metrics.put("users", conversations.size());
+        }
+        synchronized (globalChatColleges) {
+            metrics.put("globalChats", globalChatColleges.size());
+        }
+        synchronized (denied) {
+            metrics.put("denied", denied.size());
+        }
+        metrics.put("hits", hits.sum());
+        metrics.put("deniedHits", deniedHits.sum());
+        metrics.put("loads", loads.sum());
+        metrics.put("lookups", lookups.sum());
+        return metrics;
+    }
+}
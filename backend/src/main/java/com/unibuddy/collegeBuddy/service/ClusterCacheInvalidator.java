@@ -0,0 +1,35 @@
+package com.unibuddy.collegeBuddy.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drops this node's cached view of a room when another node broadcasts to it, since the
+ * message behind that broadcast was written without passing through this node's caches
+ */
+@Component
+@RequiredArgsConstructor
+public class ClusterCacheInvalidator {
+
+    private static final Pattern CONVERSATION = Pattern.compile("/topic/conversations/([0-9a-f-]{36})");
+    private static final Pattern GLOBAL_CHAT = Pattern.compile("/topic/global-chat/([0-9a-f-]{36})");
+    private static final Pattern COLLEGE_CHATS = Pattern.compile("/topic/colleges/(\\d+)/global-chats");
+
+    private final RecentMessageCache recentMessageCache;
+    private final GlobalChatDirectory globalChatDirectory;
+
+    public void onRemoteBroadcast(String destination) {
+        Matcher matcher;
+        if ((matcher = CONVERSATION.matcher(destination)).matches()) {
+            recentMessageCache.invalidate(RecentMessageCache.conversationRoom(UUID.fromString(matcher.group(1))));
+        } else if ((matcher = GLOBAL_CHAT.matcher(destination)).matches()) {
+            recentMessageCache.invalidate(RecentMessageCache.globalChatRoom(UUID.fromString(matcher.group(1))));
+        } else if ((matcher = COLLEGE_CHATS.matcher(destination)).matches()) {
+            globalChatDirectory.invalidate(Long.parseLong(matcher.group(1)));
+        }
+    }
+}
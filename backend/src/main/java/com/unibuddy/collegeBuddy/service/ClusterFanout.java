@@ -0,0 +1,200 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Broker channel interceptor that relays every {@code /topic} broadcast to the other application
+ * nodes through a {@link ClusterTransport}, and hands theirs to the local broker, so subscribers
+ * on any node see messages sent on any node. Local subscribers are still served directly.
+ * <p>
+ * Each frame carries the publishing node and a frame id: a node drops its own frames when the
+ * transport echoes them back, and any frame id it has already delivered. The STOMP native headers
+ * travel with the payload, so remote subscribers see the same {@code message-id} as local ones.
+ */
+@Slf4j
+public class ClusterFanout implements ChannelInterceptor, SmartLifecycle {
+
+    static final String RELAYED_HEADER = "clusterRelayedFrom";
+
+    private static final int SEEN_FRAMES = 10_000;
+    private static final int MAX_PENDING_PUBLISHES = 10_000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ClusterTransport transport;
+    private final ObjectMapper objectMapper;
+    private final MessageChannel localBroker;
+    private final Consumer<String> remoteBroadcasts;
+
+    // One thread keeps this node's frames in order and the database round trip off the sender's thread
+    private final ThreadPoolExecutor publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_PENDING_PUBLISHES), runnable -> {
+                Thread thread = new Thread(runnable, "cluster-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Map<UUID, Boolean> seen = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+            return size() > SEEN_FRAMES;
+        }
+    };
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running;
+
+    public record Frame(String node, UUID id, String destination, String contentType,
+                        Map<String, List<String>> nativeHeaders, String payload) {
+    }
+
+    /**
+     * @param remoteBroadcasts told the destination of every frame delivered from another node
+     */
+    public ClusterFanout(ClusterTransport transport, ObjectMapper objectMapper, MessageChannel localBroker,
+                         Consumer<String> remoteBroadcasts) {
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+        this.localBroker = localBroker;
+        this.remoteBroadcasts = remoteBroadcasts;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (!running || headers.containsKey(RELAYED_HEADER)
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || destination == null || !destination.startsWith("/topic/")
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        @SuppressWarnings("unchecked")
+        Map<String, List<String>> nativeHeaders =
+                (Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        Frame frame = new Frame(nodeId, UUID.randomUUID(), destination,
+                contentType != null ? contentType.toString() : null, nativeHeaders,
+                Base64.getEncoder().encodeToString(payload));
+        try {
+            publisher.execute(() -> publish(frame));
+        } catch (RuntimeException ex) {
+            // The transport is far behind; local subscribers still get the message
+            dropped.increment();
+        }
+        return message;
+    }
+
+    void receive(String json) {
+        Frame frame;
+        try {
+            frame = objectMapper.readValue(json, Frame.class);
+        } catch (JsonProcessingException ex) {
+            log.warn("Ignoring malformed cluster frame", ex);
+            return;
+        }
+        if (nodeId.equals(frame.node())) {
+            return;
+        }
+        synchronized (seen) {
+            if (seen.put(frame.id(), Boolean.TRUE) != null) {
+                duplicates.increment();
+                return;
+            }
+        }
+
+        remoteBroadcasts.accept(frame.destination());
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(frame.destination());
+        if (frame.contentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(frame.contentType()));
+        }
+        if (frame.nativeHeaders() != null) {
+            frame.nativeHeaders().forEach((name, values) ->
+                    values.forEach(value -> accessor.addNativeHeader(name, value)));
+        }
+        // Marks the message so this interceptor does not relay it again
+        accessor.setHeader(RELAYED_HEADER, frame.node());
+        localBroker.send(MessageBuilder.createMessage(Base64.getDecoder().decode(frame.payload()),
+                accessor.getMessageHeaders()));
+        delivered.increment();
+    }
+
+    private void publish(Frame frame) {
+        try {
+            transport.publish(objectMapper.writeValueAsString(frame));
+            published.increment();
+        } catch (Exception ex) {
+            dropped.increment();
+            log.warn("Failed to relay broadcast to {} to the cluster", frame.destination(), ex);
+        }
+    }
+
+    @Override
+    public void start() {
+        transport.start(this::receive);
+        running = true;
+        log.info("Cluster fan-out started as node {}", nodeId);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        transport.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("nodeId", nodeId);
+        metrics.put("published", published.sum());
+        metrics.put("pendingPublishes", publisher.getQueue().size());
+        metrics.put("delivered", delivered.sum());
+        metrics.put("duplicates", duplicates.sum());
+        metrics.put("dropped", dropped.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,16 @@
+package com.unibuddy.collegeBuddy.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries broadcast frames between application nodes for {@link ClusterFanout}. Delivery is at
+ * most once, and a frame also comes back to the node that published it.
+ */
+public interface ClusterTransport {
+
+    void start(Consumer<String> receiver);
+
+    void publish(String frame);
+
+    void stop();
+}
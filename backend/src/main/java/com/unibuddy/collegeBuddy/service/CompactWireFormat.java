@@ -0,0 +1,229 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compact encoding of chat message frames, negotiated per STOMP session with a
+ * {@code wire-format: compact} CONNECT header. A compact frame holds an array of messages, each
+ * {@code [id, seq, text, imageUrl, millis, sender]}: UUIDs as 22 base64url characters, the
+ * timestamp as milliseconds since the session's previous message, and the sender as
+ * {@code [ref, id, name, avatarUrl, year]} the first time the session sees them and as the bare
+ * {@code ref} after that. Other broadcasts, and sessions that did not ask, keep plain JSON.
+ * <p>
+ * Sender refs and timestamp deltas only decode in delivery order, which relies on the broker
+ * preserving publish order per session.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CompactWireFormat implements ChannelInterceptor {
+
+    public static final String WIRE_FORMAT_HEADER = "wire-format";
+    public static final MimeType CONTENT_TYPE = MimeType.valueOf("application/vnd.unibuddy.compact+json");
+
+    private static final int RECENT_PAYLOADS = 16;
+    // Refs restart from zero past this; the client overwrites them, since a definition always comes first
+    private static final int MAX_SENDERS_PER_SESSION = 1024;
+    private static final Base64.Encoder UUID_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.chat.compact-wire.enabled:true}")
+    private boolean enabled;
+
+    private final ConcurrentHashMap<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    // Parsed once per broadcast, keyed by payload identity like the shared frames; empty when not chat messages
+    private final Map<byte[], List<Entry>> recent = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<byte[], List<Entry>> eldest) {
+            return size() > RECENT_PAYLOADS;
+        }
+    };
+
+    private final LongAdder framesCompacted = new LongAdder();
+    private final LongAdder jsonBytes = new LongAdder();
+    private final LongAdder compactBytes = new LongAdder();
+
+    private static final class SessionState {
+        private final Map<UUID, Integer> senderRefs = new HashMap<>();
+        private long lastMillis;
+    }
+
+    private record Entry(String id, JsonNode seq, String text, String imageUrl, long millis,
+                         UUID senderId, String senderKey, String name, String avatarUrl, JsonNode year) {
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (type == null || sessionId == null) {
+            return message;
+        }
+
+        switch (type) {
+            case CONNECT -> {
+                if (enabled && "compact".equals(StompHeaderAccessor.wrap(message).getFirstNativeHeader(WIRE_FORMAT_HEADER))) {
+                    sessions.put(sessionId, new SessionState());
+                }
+            }
+            case DISCONNECT -> sessions.remove(sessionId);
+            case MESSAGE -> {
+                SessionState session = sessions.get(sessionId);
+                if (session != null && message.getPayload() instanceof byte[] json) {
+                    return compact(message, json, session);
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("compactSessions", sessions.size());
+        metrics.put("framesCompacted", framesCompacted.sum());
+        metrics.put("jsonBytes", jsonBytes.sum());
+        metrics.put("compactBytes", compactBytes.sum());
+        return metrics;
+    }
+
+    private Message<?> compact(Message<?> message, byte[] json, SessionState session) {
+        List<Entry> entries;
+        synchronized (recent) {
+            entries = recent.computeIfAbsent(json, this::parse);
+        }
+        if (entries.isEmpty()) {
+            return message;
+        }
+
+        byte[] payload;
+        try {
+            // Sends to one session arrive in order, this only guards against a misconfigured channel
+            synchronized (session) {
+                payload = write(entries, session);
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to write compact frame, sending JSON instead", ex);
+            return message;
+        }
+
+        framesCompacted.increment();
+        jsonBytes.add(json.length);
+        compactBytes.add(payload.length);
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(CONTENT_TYPE);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private byte[] write(List<Entry> entries, SessionState session) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * entries.size());
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (Entry entry : entries) {
+                generator.writeStartArray();
+                generator.writeString(entry.id());
+                generator.writeTree(entry.seq());
+                generator.writeString(entry.text());
+                generator.writeString(entry.imageUrl());
+                generator.writeNumber(entry.millis() - session.lastMillis);
+                session.lastMillis = entry.millis();
+
+                Integer ref = session.senderRefs.get(entry.senderId());
+                if (ref != null) {
+                    generator.writeNumber(ref);
+                } else {
+                    if (session.senderRefs.size() >= MAX_SENDERS_PER_SESSION) {
+                        session.senderRefs.clear();
+                    }
+                    ref = session.senderRefs.size();
+                    session.senderRefs.put(entry.senderId(), ref);
+                    generator.writeStartArray();
+                    generator.writeNumber(ref);
+                    generator.writeString(entry.senderKey());
+                    generator.writeString(entry.name());
+                    generator.writeString(entry.avatarUrl());
+                    generator.writeTree(entry.year());
+                    generator.writeEndArray();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    // Chat messages, alone or in a coalesced array; anything else stays JSON
+    private List<Entry> parse(byte[] json) {
+        try {
+            JsonNode root = objectMapper.readTree(json);
+            List<Entry> entries = new ArrayList<>();
+            for (JsonNode node : root.isArray() ? root : List.of(root)) {
+                Entry entry = toEntry(node);
+                if (entry == null) {
+                    return List.of();
+                }
+                entries.add(entry);
+            }
+            return entries;
+        } catch (IOException | IllegalArgumentException | DateTimeParseException ex) {
+            return List.of();
+        }
+    }
+
+    private static Entry toEntry(JsonNode node) {
+        JsonNode sender = node.path("sender");
+        if (!node.path("id").isTextual() || !node.path("createdAt").isTextual() || !sender.path("id").isTextual()) {
+            return null;
+        }
+        // Missing numbers come out as null, keeping every position in place
+        UUID senderId = UUID.fromString(sender.get("id").asText());
+        // Epoch millis of the local timestamp read as UTC, so clients rebuild the very same string
+        long millis = LocalDateTime.parse(node.get("createdAt").asText()).toInstant(ZoneOffset.UTC).toEpochMilli();
+        return new Entry(shortUuid(UUID.fromString(node.get("id").asText())), node.get("seq"),
+                node.path("messageText").textValue(), node.path("imageUrl").textValue(), millis,
+                senderId, shortUuid(senderId), sender.path("name").textValue(),
+                sender.path("avatarUrl").textValue(), sender.get("year"));
+    }
+
+    private static String shortUuid(UUID uuid) {
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        bytes.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        return UUID_ENCODER.encodeToString(bytes.array());
+    }
+}
@@ -1,26 +1,44 @@
 package com.unibuddy.collegeBuddy.service;
 
 import com.unibuddy.collegeBuddy.dto.conversation.ConversationResponse;
+import com.unibuddy.collegeBuddy.dto.conversation.ConversationSummary;
+import com.unibuddy.collegeBuddy.dto.conversation.ReadReceiptResponse;
+import com.unibuddy.collegeBuddy.dto.conversation.UnreadCountsResponse;
+import com.unibuddy.collegeBuddy.dto.message.MessageHistoryResponse;
 import com.unibuddy.collegeBuddy.dto.message.MessageResponse;
 import com.unibuddy.collegeBuddy.dto.message.SendMessageRequest;
+import com.unibuddy.collegeBuddy.dto.message.SenderSummary;
 import com.unibuddy.collegeBuddy.entity.Conversation;
-import com.unibuddy.collegeBuddy.entity.Listing;
 import com.unibuddy.collegeBuddy.entity.Message;
 import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.exception.BadRequestException;
 import com.unibuddy.collegeBuddy.repository.ConversationRepository;
-import com.unibuddy.collegeBuddy.repository.ListingRepository;
 import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import com.unibuddy.collegeBuddy.util.TimeOrderedUuid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,33 +47,77 @@ public class ConversationService {
 
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
-    private final ListingRepository listingRepository;
     private final FileStorageService fileStorageService;
     private final ProfanityFilterService profanityFilterService;
     private final RateLimitService rateLimitService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final SharedPayloadBroadcaster broadcaster;
+    private final UnreadCounterService unreadCounterService;
+    private final RecentMessageCache recentMessageCache;
+    private final MessageWriteBehindQueue messageWriteBehindQueue;
+    private final RoomSequenceAllocator roomSequenceAllocator;
+    private final MessageArchive messageArchive;
+    private final UserRepository userRepository;
+    private final ChatMembershipCache chatMembershipCache;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
 
     @Transactional(readOnly = true)
     public Page<ConversationResponse> getUserConversations(UUID userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Conversation> conversations = conversationRepository.findByUserInvolved(userId, pageable);
-        
-        return conversations.map(conversation -> mapToResponse(conversation, userId));
+        List<ConversationSummary> conversations = conversationRepository.findInboxByUserId(userId, size, pageable.getOffset());
+
+        // Only counts when the page alone cannot tell the total
+        return PageableExecutionUtils.getPage(conversations, pageable, () -> conversationRepository.countInboxByUserId(userId))
+                .map(summary -> mapToResponse(summary, userId));
     }
 
     @Transactional(readOnly = true)
-    public Page<MessageResponse> getConversationMessages(UUID conversationId, UUID userId, int page, int size) {
+    public MessageHistoryResponse<MessageResponse> getConversationMessages(UUID conversationId, UUID userId,
+                                                                          UUID before, UUID after, Long sinceSeq, int size) {
         // Verify user has access to this conversation
         conversationRepository.findByIdAndUserInvolved(conversationId, userId)
             .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Message> messages = messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId, pageable);
-        
-        return messages.map(this::mapMessageToResponse);
+        if ((before != null ? 1 : 0) + (after != null ? 1 : 0) + (sinceSeq != null ? 1 : 0) > 1) {
+            throw new BadRequestException("Use only one of before, after and sinceSeq");
+        }
+        int limit = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
+
+        // Resync after missed frames: exactly the messages numbered after the client's last one
+        if (sinceSeq != null) {
+            return MessageHistoryResponse.of(mapMessages(messageRepository.findSinceSeq(conversationId, sinceSeq, limit + 1)),
+                    limit, MessageHistoryResponse.Direction.AFTER, Function.identity());
+        }
+
+        MessageHistoryResponse.Direction direction = before != null ? MessageHistoryResponse.Direction.BEFORE
+                : after != null ? MessageHistoryResponse.Direction.AFTER
+                : MessageHistoryResponse.Direction.LATEST;
+        String room = RecentMessageCache.conversationRoom(conversationId);
+        Optional<MessageHistoryResponse<MessageResponse>> cached =
+                recentMessageCache.window(room, direction, before != null ? before : after, limit, MessageResponse.class);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // One extra row tells whether there is more history in that direction, without counting
+        List<MessageResponse> rows = mapMessages(switch (direction) {
+            case BEFORE -> messageRepository.findBefore(conversationId, before, limit + 1);
+            case AFTER -> messageRepository.findAfter(conversationId, after, limit + 1);
+            case LATEST -> messageRepository.findLatest(conversationId, limit + 1);
+        });
+
+        if (rows.size() <= limit && messageArchive.hasHistory(MessageArchive.Table.MESSAGES, conversationId)) {
+            rows = withArchivedHistory(conversationId, direction, before, after, rows, limit);
+        }
+
+        if (direction == MessageHistoryResponse.Direction.LATEST) {
+            recentMessageCache.seed(room, rows.stream().map(this::toCacheEntry).toList(), rows.size() <= limit);
+        }
+        return MessageHistoryResponse.of(rows, limit, direction, Function.identity());
     }
 
-    @Transactional
+    // Not @Transactional: a write-behind send waits for the writer thread, which needs a connection to commit
     public MessageResponse sendMessage(UUID conversationId, SendMessageRequest request, User sender) {
         // Check rate limit
         if (rateLimitService.isRateLimited(sender.getId())) {
@@ -70,15 +132,16 @@ public class ConversationService {
         // Validate content
         profanityFilterService.validateContent(request.getMessageText());
 
-        // Get conversation and verify user has access
-        Conversation conversation = conversationRepository.findByIdAndUserInvolved(conversationId, sender.getId())
-            .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
-
-        // Store image if provided
-        String imageUrl = null;
-        if (request.getImage() != null && !request.getImage().isEmpty()) {
-            imageUrl = fileStorageService.storeChatImage(request.getImage());
+        if (messageWriteBehindQueue.isEnabled()) {
+            return sendMessageWriteBehind(conversationId, request, sender);
         }
+        return new TransactionTemplate(transactionManager).execute(status -> saveMessage(conversationId, request, sender));
+    }
+
+    private MessageResponse saveMessage(UUID conversationId, SendMessageRequest request, User sender) {
+        // Get conversation and verify user has access
+        Conversation conversation = findForSender(conversationId, sender);
+        String imageUrl = storeImage(request);
 
         // Create message
         Message message = new Message();
@@ -86,21 +149,85 @@ public class ConversationService {
         message.setSender(sender);
         message.setMessageText(request.getMessageText());
         message.setImageUrl(imageUrl);
+        message.setSeq(roomSequenceAllocator.nextForConversation(conversationId));
 
         message = messageRepository.save(message);
         log.info("Message sent in conversation {} by user {}", conversationId, sender.getId());
 
-        // Update conversation timestamp
-        conversation.setUpdatedAt(message.getCreatedAt());
-        conversationRepository.save(conversation);
+        // Update conversation timestamp and inbox preview; the recipient's in-memory unread count follows the commit
+        conversationRepository.recordMessage(conversationId, sender.getId(), message.getMessageText(), message.getCreatedAt());
+        unreadCounterService.onMessageAfterCommit(conversationId, message);
 
-        // Send via WebSocket
+        // Cached, then sent via WebSocket, once committed: a remote node receiving the relay reloads the room
         MessageResponse response = mapMessageToResponse(message);
-        messagingTemplate.convertAndSend("/topic/conversations/" + conversationId, response);
+        recentMessageCache.appendAfterCommit(RecentMessageCache.conversationRoom(conversationId), toCacheEntry(response));
+        broadcaster.sendAfterCommit("/topic/conversations/" + conversationId, response);
 
         return response;
     }
 
+    private MessageResponse sendMessageWriteBehind(UUID conversationId, SendMessageRequest request, User sender) {
+        // The access check is the only read, and its transaction ends before the message is queued
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Conversation conversation = readOnly.execute(status -> findForSender(conversationId, sender));
+        String messageText = request.getMessageText();
+        String imageUrl = storeImage(request);
+
+        // Not persisted here: the id and timestamp are assigned up front and the row is batch-inserted
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        Message message = new Message();
+        message.setId(TimeOrderedUuid.next());
+        message.setSeq(roomSequenceAllocator.nextForConversation(conversation.getId(), persisted));
+        message.setConversation(conversation);
+        message.setSender(sender);
+        message.setMessageText(messageText);
+        message.setImageUrl(imageUrl);
+        message.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        MessageResponse response = mapMessageToResponse(message);
+
+        // Delivered and counted only once the batch commits, so a failed or withdrawn send is never seen
+        MessageWriteBehindQueue.PendingMessage pending = new MessageWriteBehindQueue.PendingMessage(
+                MessageWriteBehindQueue.Target.CONVERSATION, message.getId(), conversationId, message.getSeq(), sender.getId(),
+                messageText, imageUrl, message.getCreatedAt(), persisted, new AtomicBoolean());
+        unreadCounterService.onMessageWhenPersisted(conversationId, message.getId(), sender.getId(), message.getCreatedAt(),
+                pending.persisted());
+        messageWriteBehindQueue.enqueue(pending).thenRun(() -> {
+            broadcaster.send("/topic/conversations/" + conversationId, response);
+            recentMessageCache.append(RecentMessageCache.conversationRoom(conversationId), toCacheEntry(response));
+        });
+        messageWriteBehindQueue.awaitDurability(pending);
+
+        log.info("Message queued in conversation {} by user {}", conversationId, sender.getId());
+        return response;
+    }
+
+    private Conversation findForSender(UUID conversationId, User sender) {
+        return conversationRepository.findByIdAndUserInvolved(conversationId, sender.getId())
+            .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
+    }
+
+    private String storeImage(SendMessageRequest request) {
+        if (request.getImage() == null || request.getImage().isEmpty()) {
+            return null;
+        }
+        return fileStorageService.storeChatImage(request.getImage());
+    }
+
+    @Transactional(readOnly = true)
+    public void markRead(UUID conversationId, UUID messageId, User reader) {
+        if (unreadCounterService.markRead(conversationId, reader.getId(), messageId)) {
+            ReadReceiptResponse receipt = new ReadReceiptResponse(conversationId, reader.getId(), messageId, LocalDateTime.now());
+            broadcaster.send("/topic/conversations/" + conversationId + "/read", receipt);
+        }
+    }
+
+    public UnreadCountsResponse getUnreadCounts(UUID userId) {
+        Map<UUID, Integer> counts = unreadCounterService.getUnreadCounts(userId);
+        int total = counts.values().stream().mapToInt(Integer::intValue).sum();
+        return new UnreadCountsResponse(total, counts);
+    }
+
     @Transactional
     public ConversationResponse getOrCreateConversation(UUID listingId, User buyer) {
         // Validate user is verified
@@ -108,84 +235,161 @@ public class ConversationService {
             throw new IllegalStateException("Only verified users can start conversations");
         }
 
-        Listing listing = listingRepository.findById(listingId)
+        // Double taps and retries race here; the upsert lets every one of them get the same row
+        ConversationSummary conversation = conversationRepository.startConversation(listingId, buyer.getId())
             .orElseThrow(() -> new RuntimeException("Listing not found"));
 
         // Check if buyer is trying to message themselves
-        if (listing.getSeller().getId().equals(buyer.getId())) {
+        if (conversation.getOtherUserId().equals(buyer.getId())) {
             throw new IllegalArgumentException("Cannot start conversation with yourself");
         }
 
-        // Try to find existing conversation
-        Optional<Conversation> existingConversation = conversationRepository.findByListingIdAndBuyerId(listingId, buyer.getId());
-        
-        if (existingConversation.isPresent()) {
-            return mapToResponse(existingConversation.get(), buyer.getId());
+        if (conversation.getId() == null) {
+            // A concurrent start won and committed after our statement began; a new statement sees it
+            conversation = conversationRepository.findStarted(listingId, buyer.getId())
+                .orElseThrow(() -> new RuntimeException("Conversation not found"));
         }
 
-        // Create new conversation
-        Conversation conversation = new Conversation();
-        conversation.setListing(listing);
-        conversation.setBuyer(buyer);
-        conversation.setSeller(listing.getSeller());
-
-        conversation = conversationRepository.save(conversation);
-        log.info("Created conversation {} for listing {} between buyer {} and seller {}", 
-            conversation.getId(), listingId, buyer.getId(), listing.getSeller().getId());
-
+        // Both sides subscribe right after starting it, so spare them the membership lookup
+        chatMembershipCache.conversationStarted(conversation.getId(), buyer.getId(), conversation.getOtherUserId());
         return mapToResponse(conversation, buyer.getId());
     }
 
-    private ConversationResponse mapToResponse(Conversation conversation, UUID currentUserId) {
+    private ConversationResponse mapToResponse(ConversationSummary summary, UUID currentUserId) {
         ConversationResponse response = new ConversationResponse();
-        response.setId(conversation.getId());
-        response.setCreatedAt(conversation.getCreatedAt());
-        response.setUpdatedAt(conversation.getUpdatedAt());
+        response.setId(summary.getId());
+        response.setCreatedAt(summary.getCreatedAt());
+        response.setUpdatedAt(summary.getUpdatedAt());
 
-        // Map listing info
         ConversationResponse.ListingInfo listingInfo = new ConversationResponse.ListingInfo();
-        listingInfo.setId(conversation.getListing().getId());
-        listingInfo.setTitle(conversation.getListing().getTitle());
-        if (conversation.getListing().getImages() != null && !conversation.getListing().getImages().isEmpty()) {
-            listingInfo.setFirstImage(conversation.getListing().getImages().get(0));
-        }
+        listingInfo.setId(summary.getListingId());
+        listingInfo.setTitle(summary.getListingTitle());
+        listingInfo.setFirstImage(summary.getListingFirstImage());
         response.setListing(listingInfo);
 
-        // Map other user info (the user who is not the current user)
-        User otherUser = conversation.getBuyer().getId().equals(currentUserId) 
-            ? conversation.getSeller() 
-            : conversation.getBuyer();
-        
         ConversationResponse.UserInfo userInfo = new ConversationResponse.UserInfo();
-        userInfo.setId(otherUser.getId());
-        userInfo.setName(otherUser.getName());
-        userInfo.setAvatarUrl(otherUser.getAvatarUrl());
+        userInfo.setId(summary.getOtherUserId());
+        userInfo.setName(summary.getOtherUserName());
+        userInfo.setAvatarUrl(summary.getOtherUserAvatarUrl());
         response.setOtherUser(userInfo);
 
-        // Map last message if exists
-        Optional<Message> lastMessage = messageRepository.findLatestByConversationId(conversation.getId());
-        if (lastMessage.isPresent()) {
+        if (summary.getLastMessageAt() != null) {
             ConversationResponse.MessageInfo messageInfo = new ConversationResponse.MessageInfo();
-            messageInfo.setMessageText(lastMessage.get().getMessageText());
-            messageInfo.setCreatedAt(lastMessage.get().getCreatedAt());
-            messageInfo.setFromCurrentUser(lastMessage.get().getSender().getId().equals(currentUserId));
+            messageInfo.setMessageText(summary.getLastMessageText());
+            messageInfo.setCreatedAt(summary.getLastMessageAt());
+            messageInfo.setFromCurrentUser(currentUserId.equals(summary.getLastMessageSenderId()));
             response.setLastMessage(messageInfo);
         }
+        // The column lags the in-memory counter by up to one flush interval
+        response.setUnreadCount(unreadCounterService.peekUnreadCount(summary.getId(), currentUserId).orElse(summary.getUnreadCount()));
 
         return response;
     }
 
+    private RecentMessageCache.Entry toCacheEntry(MessageResponse response) {
+        return RecentMessageCache.entry(response.getId(), response.getCreatedAt(), response,
+                response.getMessageText(), response.getImageUrl());
+    }
+
+    /**
+     * Continue a page that ran out of database rows into the archive: reads going back carry on past
+     * the oldest partition, and a catch-up from an archived cursor starts in the archive
+     */
+    private List<MessageResponse> withArchivedHistory(UUID conversationId, MessageHistoryResponse.Direction direction,
+                                                      UUID before, UUID after, List<MessageResponse> rows, int limit) {
+        MessageArchive.Table table = MessageArchive.Table.MESSAGES;
+        if (direction == MessageHistoryResponse.Direction.AFTER) {
+            if (!rows.isEmpty() || messageRepository.existsById(after)) {
+                return rows;
+            }
+            Optional<MessageArchive.ArchivedMessage> cursor = messageArchive.find(table, conversationId, after);
+            if (cursor.isEmpty()) {
+                return rows;
+            }
+            List<MessageResponse> page = new ArrayList<>(mapArchived(
+                    messageArchive.readNewer(table, conversationId, cursor.get().createdAt(), after, limit + 1)));
+            if (page.size() <= limit) {
+                page.addAll(mapMessages(messageRepository.findOldest(conversationId, limit + 1 - page.size())));
+            }
+            return page;
+        }
+
+        // Older than the last row of the page, or than the cursor itself when the page is empty
+        LocalDateTime createdAt = null;
+        UUID id = null;
+        if (!rows.isEmpty()) {
+            createdAt = rows.get(rows.size() - 1).getCreatedAt();
+            id = rows.get(rows.size() - 1).getId();
+        } else if (before != null) {
+            Optional<LocalDateTime> cursorCreatedAt = messageRepository.findById(before).map(Message::getCreatedAt)
+                    .or(() -> messageArchive.find(table, conversationId, before).map(MessageArchive.ArchivedMessage::createdAt));
+            if (cursorCreatedAt.isEmpty()) {
+                return rows;
+            }
+            createdAt = cursorCreatedAt.get();
+            id = before;
+        }
+
+        List<MessageResponse> page = new ArrayList<>(rows);
+        page.addAll(mapArchived(messageArchive.readOlder(table, conversationId, createdAt, id, limit + 1 - rows.size())));
+        return page;
+    }
+
+    /**
+     * Map a page of rows with one query for all of their senders, instead of one per lazy sender
+     */
+    private List<MessageResponse> mapMessages(List<Message> messages) {
+        // An uninitialized sender proxy still knows its id
+        Map<UUID, SenderSummary> senders = findSenders(
+                messages.stream().map(message -> message.getSender().getId()).collect(Collectors.toSet()));
+        return messages.stream()
+                .map(message -> mapMessageToResponse(message, senders.get(message.getSender().getId())))
+                .toList();
+    }
+
+    private List<MessageResponse> mapArchived(List<MessageArchive.ArchivedMessage> archived) {
+        Map<UUID, SenderSummary> senders = findSenders(
+                archived.stream().map(MessageArchive.ArchivedMessage::senderId).collect(Collectors.toSet()));
+
+        // A deleted sender's archived messages go with them, as the foreign key does for live rows
+        return archived.stream()
+                .filter(row -> senders.containsKey(row.senderId()))
+                .map(row -> {
+                    Message message = new Message();
+                    message.setId(row.id());
+                    message.setSeq(row.seq());
+                    message.setMessageText(row.messageText());
+                    message.setImageUrl(row.imageUrl());
+                    message.setCreatedAt(row.createdAt());
+                    return mapMessageToResponse(message, senders.get(row.senderId()));
+                })
+                .toList();
+    }
+
+    private Map<UUID, SenderSummary> findSenders(Set<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return userRepository.findSendersByIdIn(ids).stream()
+                .collect(Collectors.toMap(SenderSummary::id, Function.identity()));
+    }
+
     private MessageResponse mapMessageToResponse(Message message) {
+        return mapMessageToResponse(message, SenderSummary.of(message.getSender()));
+    }
+
+    private MessageResponse mapMessageToResponse(Message message, SenderSummary sender) {
         MessageResponse response = new MessageResponse();
         response.setId(message.getId());
+        response.setSeq(message.getSeq());
         response.setMessageText(message.getMessageText());
         response.setImageUrl(message.getImageUrl());
         response.setCreatedAt(message.getCreatedAt());
 
         MessageResponse.SenderInfo senderInfo = new MessageResponse.SenderInfo();
-        senderInfo.setId(message.getSender().getId());
-        senderInfo.setName(message.getSender().getName());
-        senderInfo.setAvatarUrl(message.getSender().getAvatarUrl());
+        senderInfo.setId(sender.id());
+        senderInfo.setName(sender.name());
+        senderInfo.setAvatarUrl(sender.avatarUrl());
         response.setSender(senderInfo);
 
         return response;
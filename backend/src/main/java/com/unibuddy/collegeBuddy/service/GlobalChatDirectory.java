@@ -0,0 +1,142 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.dto.globalchat.GlobalChatResponse;
+import com.unibuddy.collegeBuddy.dto.globalchat.GlobalMessageResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Per-college snapshot of the global chat list with each room's last-message preview and
+ * message count, so opening the chat page is answered from memory. New messages update the
+ * snapshot in place and push the changed room to {@code /topic/colleges/{collegeId}/global-chats}.
+ * <p>
+ * Snapshots are rebuilt after {@code app.chat.directory.ttl-ms} to pick up rooms added or
+ * renamed outside the application. A load that raced with a new message is not installed,
+ * so a snapshot never misses a message that it was built before.
+ */
+@Component
+@RequiredArgsConstructor
+public class GlobalChatDirectory {
+
+    private final SharedPayloadBroadcaster broadcaster;
+
+    @Value("${app.chat.directory.ttl-ms:600000}")
+    private long ttlMs;
+
+    private final ConcurrentHashMap<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // Bumped by every message, so a load can tell whether it raced with one
+    private final ConcurrentHashMap<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Snapshot(List<GlobalChatResponse> chats, long loadedAtNanos) {
+    }
+
+    public static String topic(Long collegeId) {
+        return "/topic/colleges/" + collegeId + "/global-chats";
+    }
+
+    public List<GlobalChatResponse> get(Long collegeId, Supplier<List<GlobalChatResponse>> loader) {
+        Snapshot snapshot = snapshots.get(collegeId);
+        if (snapshot != null && System.nanoTime() - snapshot.loadedAtNanos() < ttlMs * 1_000_000) {
+            hits.increment();
+            return snapshot.chats();
+        }
+
+        misses.increment();
+        AtomicLong generation = generations.computeIfAbsent(collegeId, id -> new AtomicLong());
+        long loadedAt = generation.get();
+        List<GlobalChatResponse> chats = List.copyOf(loader.get());
+        snapshots.compute(collegeId, (id, current) ->
+                generation.get() == loadedAt ? new Snapshot(chats, System.nanoTime()) : current);
+        return chats;
+    }
+
+    /**
+     * Apply a message once the surrounding transaction commits
+     */
+    public void recordAfterCommit(Long collegeId, GlobalMessageResponse message) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(collegeId, message);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(collegeId, message);
+            }
+        });
+    }
+
+    public void record(Long collegeId, GlobalMessageResponse message) {
+        generations.computeIfAbsent(collegeId, id -> new AtomicLong()).incrementAndGet();
+
+        GlobalChatResponse[] changed = new GlobalChatResponse[1];
+        snapshots.computeIfPresent(collegeId, (id, snapshot) -> {
+            List<GlobalChatResponse> chats = new ArrayList<>(snapshot.chats());
+            for (int i = 0; i < chats.size(); i++) {
+                if (chats.get(i).getId().equals(message.getGlobalChatId())) {
+                    changed[0] = withMessage(chats.get(i), message);
+                    chats.set(i, changed[0]);
+                }
+            }
+            return changed[0] != null ? new Snapshot(List.copyOf(chats), snapshot.loadedAtNanos()) : snapshot;
+        });
+
+        // Nobody has loaded the list since the snapshot went, so nobody needs the delta
+        if (changed[0] != null) {
+            broadcaster.send(topic(collegeId), changed[0]);
+        }
+    }
+
+    public void invalidate(Long collegeId) {
+        generations.computeIfAbsent(collegeId, id -> new AtomicLong()).incrementAndGet();
+        snapshots.remove(collegeId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("colleges", snapshots.size());
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        return metrics;
+    }
+
+    // Snapshot entries are shared with responses already handed out, so changes go to a copy
+    private static GlobalChatResponse withMessage(GlobalChatResponse chat, GlobalMessageResponse message) {
+        GlobalChatResponse updated = new GlobalChatResponse();
+        updated.setId(chat.getId());
+        updated.setName(chat.getName());
+        updated.setDescription(chat.getDescription());
+        updated.setIsActive(chat.getIsActive());
+        updated.setCreatedAt(chat.getCreatedAt());
+        updated.setCollegeId(chat.getCollegeId());
+        updated.setCollegeName(chat.getCollegeName());
+        updated.setMessageCount((chat.getMessageCount() != null ? chat.getMessageCount() : 0) + 1);
+        updated.setLastMessage(chat.getLastMessage());
+
+        // Commits can land out of order; the preview only ever moves forward
+        GlobalChatResponse.MessageInfo current = chat.getLastMessage();
+        if (current == null || !message.getCreatedAt().isBefore(current.getCreatedAt())) {
+            GlobalChatResponse.MessageInfo preview = new GlobalChatResponse.MessageInfo();
+            preview.setMessageText(message.getMessageText());
+            preview.setCreatedAt(message.getCreatedAt());
+            preview.setSenderName(message.getSender().getName());
+            preview.setSenderId(message.getSender().getId());
+            updated.setLastMessage(preview);
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,90 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.entity.GlobalChat;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Message totals per global chat: the {@code global_chats.message_count} column plus the
+ * messages committed since the last flush, which are held in per-chat {@link LongAdder}s and
+ * added to the column in one JDBC batch per flush interval. Sends never touch the chat row.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GlobalChatMessageCounter {
+
+    private static final String FLUSH_SQL = "UPDATE global_chats SET message_count = message_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<UUID, LongAdder> pending = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Count a message once the surrounding transaction commits, so rolled-back sends are never counted
+     */
+    public void incrementAfterCommit(UUID globalChatId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(globalChatId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment(globalChatId);
+            }
+        });
+    }
+
+    public void increment(UUID globalChatId) {
+        pending.computeIfAbsent(globalChatId, id -> new LongAdder()).increment();
+    }
+
+    public long count(GlobalChat globalChat) {
+        LongAdder unflushed = pending.get(globalChat.getId());
+        return globalChat.getMessageCount() + (unflushed != null ? unflushed.sum() : 0);
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.counters.flush-interval-ms:5000}")
+    public void flush() {
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<UUID, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta != 0) {
+                rows.add(new Object[] {delta, entry.getKey()});
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, rows);
+            log.debug("Flushed message counts for {} global chats", rows.size());
+        } catch (RuntimeException ex) {
+            // Put the deltas back for the next run
+            log.warn("Failed to flush message counts for {} global chats", rows.size(), ex);
+            for (Object[] row : rows) {
+                pending.computeIfAbsent((UUID) row[1], id -> new LongAdder()).add((Long) row[0]);
+            }
+        }
+    }
+}
@@ -3,23 +3,34 @@ package com.unibuddy.collegeBuddy.service;
 import com.unibuddy.collegeBuddy.dto.globalchat.GlobalChatResponse;
 import com.unibuddy.collegeBuddy.dto.globalchat.GlobalMessageResponse;
 import com.unibuddy.collegeBuddy.dto.globalchat.SendGlobalMessageRequest;
+import com.unibuddy.collegeBuddy.dto.message.MessageHistoryResponse;
+import com.unibuddy.collegeBuddy.dto.message.SenderSummary;
 import com.unibuddy.collegeBuddy.entity.GlobalChat;
 import com.unibuddy.collegeBuddy.entity.GlobalMessage;
 import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.exception.BadRequestException;
 import com.unibuddy.collegeBuddy.repository.GlobalChatRepository;
 import com.unibuddy.collegeBuddy.repository.GlobalMessageRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import com.unibuddy.collegeBuddy.util.TimeOrderedUuid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,19 +43,32 @@ public class GlobalChatService {
     private final FileStorageService fileStorageService;
     private final ProfanityFilterService profanityFilterService;
     private final RateLimitService rateLimitService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final BroadcastCoalescer broadcastCoalescer;
+    private final RecentMessageCache recentMessageCache;
+    private final MessageWriteBehindQueue messageWriteBehindQueue;
+    private final RoomSequenceAllocator roomSequenceAllocator;
+    private final MessageArchive messageArchive;
+    private final UserRepository userRepository;
+    private final GlobalChatMessageCounter globalChatMessageCounter;
+    private final GlobalChatDirectory globalChatDirectory;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
 
-    @Transactional(readOnly = true)
     public List<GlobalChatResponse> getCollegeChats(Long collegeId) {
-        List<GlobalChat> chats = globalChatRepository.findByCollegeIdAndIsActiveTrue(collegeId);
-        
-        return chats.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        // Not @Transactional: a directory hit should not take a connection from the pool
+        return globalChatDirectory.get(collegeId, () -> {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            return transaction.execute(status -> globalChatRepository.findByCollegeIdAndIsActiveTrue(collegeId).stream()
+                    .map(this::mapToResponse)
+                    .collect(Collectors.toList()));
+        });
     }
 
     @Transactional(readOnly = true)
-    public Page<GlobalMessageResponse> getGlobalChatMessages(UUID globalChatId, User user, int page, int size) {
+    public MessageHistoryResponse<GlobalMessageResponse> getGlobalChatMessages(UUID globalChatId, User user,
+                                                                               UUID before, UUID after, Long sinceSeq, int size) {
         // Verify user has access to this global chat (same college)
         GlobalChat globalChat = globalChatRepository.findById(globalChatId)
                 .orElseThrow(() -> new RuntimeException("Global chat not found"));
@@ -53,13 +77,45 @@ public class GlobalChatService {
             throw new RuntimeException("Access denied: You can only access chats from your college");
         }
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<GlobalMessage> messages = globalMessageRepository.findByGlobalChatIdOrderByCreatedAtAsc(globalChatId, pageable);
-        
-        return messages.map(this::mapMessageToResponse);
+        if ((before != null ? 1 : 0) + (after != null ? 1 : 0) + (sinceSeq != null ? 1 : 0) > 1) {
+            throw new BadRequestException("Use only one of before, after and sinceSeq");
+        }
+        int limit = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
+
+        // Resync after missed frames: exactly the messages numbered after the client's last one
+        if (sinceSeq != null) {
+            return MessageHistoryResponse.of(mapMessages(globalMessageRepository.findSinceSeq(globalChatId, sinceSeq, limit + 1)),
+                    limit, MessageHistoryResponse.Direction.AFTER, Function.identity());
+        }
+
+        MessageHistoryResponse.Direction direction = before != null ? MessageHistoryResponse.Direction.BEFORE
+                : after != null ? MessageHistoryResponse.Direction.AFTER
+                : MessageHistoryResponse.Direction.LATEST;
+        String room = RecentMessageCache.globalChatRoom(globalChatId);
+        Optional<MessageHistoryResponse<GlobalMessageResponse>> cached =
+                recentMessageCache.window(room, direction, before != null ? before : after, limit, GlobalMessageResponse.class);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // One extra row tells whether there is more history in that direction, without counting
+        List<GlobalMessageResponse> rows = mapMessages(switch (direction) {
+            case BEFORE -> globalMessageRepository.findBefore(globalChatId, before, limit + 1);
+            case AFTER -> globalMessageRepository.findAfter(globalChatId, after, limit + 1);
+            case LATEST -> globalMessageRepository.findLatest(globalChatId, limit + 1);
+        });
+
+        if (rows.size() <= limit && messageArchive.hasHistory(MessageArchive.Table.GLOBAL_MESSAGES, globalChatId)) {
+            rows = withArchivedHistory(globalChatId, direction, before, after, rows, limit);
+        }
+
+        if (direction == MessageHistoryResponse.Direction.LATEST) {
+            recentMessageCache.seed(room, rows.stream().map(this::toCacheEntry).toList(), rows.size() <= limit);
+        }
+        return MessageHistoryResponse.of(rows, limit, direction, Function.identity());
     }
 
-    @Transactional
+    // Not @Transactional: a write-behind send waits for the writer thread, which needs a connection to commit
     public GlobalMessageResponse sendGlobalMessage(UUID globalChatId, SendGlobalMessageRequest request, User sender) {
         // Check rate limit
         if (rateLimitService.isRateLimited(sender.getId())) {
@@ -74,19 +130,16 @@ public class GlobalChatService {
         // Validate content
         profanityFilterService.validateContent(request.getMessageText());
 
-        // Get global chat and verify user has access
-        GlobalChat globalChat = globalChatRepository.findById(globalChatId)
-                .orElseThrow(() -> new RuntimeException("Global chat not found"));
-
-        if (sender.getCollege() == null || !sender.getCollege().getId().equals(globalChat.getCollege().getId())) {
-            throw new RuntimeException("Access denied: You can only send messages to chats from your college");
+        if (messageWriteBehindQueue.isEnabled()) {
+            return sendGlobalMessageWriteBehind(globalChatId, request, sender);
         }
+        return new TransactionTemplate(transactionManager).execute(status -> saveGlobalMessage(globalChatId, request, sender));
+    }
 
-        // Store image if provided
-        String imageUrl = null;
-        if (request.getImage() != null && !request.getImage().isEmpty()) {
-            imageUrl = fileStorageService.storeChatImage(request.getImage());
-        }
+    private GlobalMessageResponse saveGlobalMessage(UUID globalChatId, SendGlobalMessageRequest request, User sender) {
+        // Get global chat and verify user has access
+        GlobalChat globalChat = findForSender(globalChatId, sender);
+        String imageUrl = storeImage(request);
 
         // Create message
         GlobalMessage message = new GlobalMessage();
@@ -94,17 +147,75 @@ public class GlobalChatService {
         message.setSender(sender);
         message.setMessageText(request.getMessageText());
         message.setImageUrl(imageUrl);
+        message.setSeq(roomSequenceAllocator.nextForGlobalChat(globalChatId));
 
         message = globalMessageRepository.save(message);
         log.info("Global message sent in chat {} by user {}", globalChatId, sender.getId());
 
-        // Send via WebSocket to all users subscribed to this global chat
+        // Sent via WebSocket to all users subscribed to this global chat once committed, after the cache
+        GlobalMessageResponse response = mapMessageToResponse(message);
+        recentMessageCache.appendAfterCommit(RecentMessageCache.globalChatRoom(globalChatId), toCacheEntry(response));
+        broadcastCoalescer.sendAfterCommit("/topic/global-chat/" + globalChatId, response);
+        globalChatMessageCounter.incrementAfterCommit(globalChatId);
+        globalChatDirectory.recordAfterCommit(globalChat.getCollege().getId(), response);
+
+        return response;
+    }
+
+    private GlobalMessageResponse sendGlobalMessageWriteBehind(UUID globalChatId, SendGlobalMessageRequest request, User sender) {
+        // The access check is the only read, and its transaction ends before the message is queued
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        GlobalChat globalChat = readOnly.execute(status -> findForSender(globalChatId, sender));
+        String messageText = request.getMessageText();
+        String imageUrl = storeImage(request);
+
+        // Not persisted here: the id and timestamp are assigned up front and the row is batch-inserted
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        GlobalMessage message = new GlobalMessage();
+        message.setId(TimeOrderedUuid.next());
+        message.setSeq(roomSequenceAllocator.nextForGlobalChat(globalChat.getId(), persisted));
+        message.setGlobalChat(globalChat);
+        message.setSender(sender);
+        message.setMessageText(messageText);
+        message.setImageUrl(imageUrl);
+        message.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+
+        Long collegeId = globalChat.getCollege().getId();
         GlobalMessageResponse response = mapMessageToResponse(message);
-        messagingTemplate.convertAndSend("/topic/global-chat/" + globalChatId, response);
+
+        // Delivered and counted only once the batch commits, so a failed or withdrawn send is never seen
+        MessageWriteBehindQueue.PendingMessage pending = new MessageWriteBehindQueue.PendingMessage(
+                MessageWriteBehindQueue.Target.GLOBAL_CHAT, message.getId(), globalChatId, message.getSeq(), sender.getId(),
+                messageText, imageUrl, message.getCreatedAt(), persisted, new AtomicBoolean());
+        messageWriteBehindQueue.enqueue(pending).thenRun(() -> {
+            broadcastCoalescer.send("/topic/global-chat/" + globalChatId, response);
+            recentMessageCache.append(RecentMessageCache.globalChatRoom(globalChatId), toCacheEntry(response));
+            globalChatMessageCounter.increment(globalChatId);
+            globalChatDirectory.record(collegeId, response);
+        });
+        messageWriteBehindQueue.awaitDurability(pending);
 
         return response;
     }
 
+    private GlobalChat findForSender(UUID globalChatId, User sender) {
+        GlobalChat globalChat = globalChatRepository.findById(globalChatId)
+                .orElseThrow(() -> new RuntimeException("Global chat not found"));
+
+        if (sender.getCollege() == null || !sender.getCollege().getId().equals(globalChat.getCollege().getId())) {
+            throw new RuntimeException("Access denied: You can only send messages to chats from your college");
+        }
+        return globalChat;
+    }
+
+    private String storeImage(SendGlobalMessageRequest request) {
+        if (request.getImage() == null || request.getImage().isEmpty()) {
+            return null;
+        }
+        return fileStorageService.storeChatImage(request.getImage());
+    }
+
     private GlobalChatResponse mapToResponse(GlobalChat globalChat) {
         GlobalChatResponse response = new GlobalChatResponse();
         response.setId(globalChat.getId());
@@ -126,25 +237,119 @@ public class GlobalChatService {
             response.setLastMessage(messageInfo);
         }
 
-        // Count messages (for future use)
-        response.setMessageCount(globalMessageRepository.count());
+        response.setMessageCount(globalChatMessageCounter.count(globalChat));
 
         return response;
     }
 
+    private RecentMessageCache.Entry toCacheEntry(GlobalMessageResponse response) {
+        return RecentMessageCache.entry(response.getId(), response.getCreatedAt(), response,
+                response.getMessageText(), response.getImageUrl());
+    }
+
+    /**
+     * Continue a page that ran out of database rows into the archive: reads going back carry on past
+     * the oldest partition, and a catch-up from an archived cursor starts in the archive
+     */
+    private List<GlobalMessageResponse> withArchivedHistory(UUID globalChatId, MessageHistoryResponse.Direction direction,
+                                                            UUID before, UUID after, List<GlobalMessageResponse> rows, int limit) {
+        MessageArchive.Table table = MessageArchive.Table.GLOBAL_MESSAGES;
+        if (direction == MessageHistoryResponse.Direction.AFTER) {
+            if (!rows.isEmpty() || globalMessageRepository.existsById(after)) {
+                return rows;
+            }
+            Optional<MessageArchive.ArchivedMessage> cursor = messageArchive.find(table, globalChatId, after);
+            if (cursor.isEmpty()) {
+                return rows;
+            }
+            List<GlobalMessageResponse> page = new ArrayList<>(mapArchived(
+                    messageArchive.readNewer(table, globalChatId, cursor.get().createdAt(), after, limit + 1)));
+            if (page.size() <= limit) {
+                page.addAll(mapMessages(globalMessageRepository.findOldest(globalChatId, limit + 1 - page.size())));
+            }
+            return page;
+        }
+
+        // Older than the last row of the page, or than the cursor itself when the page is empty
+        LocalDateTime createdAt = null;
+        UUID id = null;
+        if (!rows.isEmpty()) {
+            createdAt = rows.get(rows.size() - 1).getCreatedAt();
+            id = rows.get(rows.size() - 1).getId();
+        } else if (before != null) {
+            Optional<LocalDateTime> cursorCreatedAt = globalMessageRepository.findById(before).map(GlobalMessage::getCreatedAt)
+                    .or(() -> messageArchive.find(table, globalChatId, before).map(MessageArchive.ArchivedMessage::createdAt));
+            if (cursorCreatedAt.isEmpty()) {
+                return rows;
+            }
+            createdAt = cursorCreatedAt.get();
+            id = before;
+        }
+
+        List<GlobalMessageResponse> page = new ArrayList<>(rows);
+        page.addAll(mapArchived(messageArchive.readOlder(table, globalChatId, createdAt, id, limit + 1 - rows.size())));
+        return page;
+    }
+
+    /**
+     * Map a page of rows with one query for all of their senders, instead of one per lazy sender
+     */
+    private List<GlobalMessageResponse> mapMessages(List<GlobalMessage> messages) {
+        // An uninitialized sender proxy still knows its id
+        Map<UUID, SenderSummary> senders = findSenders(
+                messages.stream().map(message -> message.getSender().getId()).collect(Collectors.toSet()));
+        return messages.stream()
+                .map(message -> mapMessageToResponse(message, senders.get(message.getSender().getId())))
+                .toList();
+    }
+
+    private List<GlobalMessageResponse> mapArchived(List<MessageArchive.ArchivedMessage> archived) {
+        Map<UUID, SenderSummary> senders = findSenders(
+                archived.stream().map(MessageArchive.ArchivedMessage::senderId).collect(Collectors.toSet()));
+
+        // A deleted sender's archived messages go with them, as the foreign key does for live rows
+        return archived.stream()
+                .filter(row -> senders.containsKey(row.senderId()))
+                .map(row -> {
+                    GlobalMessage message = new GlobalMessage();
+                    message.setId(row.id());
+                    message.setSeq(row.seq());
+                    // A reference only; nothing is loaded for it
+                    message.setGlobalChat(globalChatRepository.getReferenceById(row.roomId()));
+                    message.setMessageText(row.messageText());
+                    message.setImageUrl(row.imageUrl());
+                    message.setCreatedAt(row.createdAt());
+                    return mapMessageToResponse(message, senders.get(row.senderId()));
+                })
+                .toList();
+    }
+
+    private Map<UUID, SenderSummary> findSenders(Set<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return userRepository.findSendersByIdIn(ids).stream()
+                .collect(Collectors.toMap(SenderSummary::id, Function.identity()));
+    }
+
     private GlobalMessageResponse mapMessageToResponse(GlobalMessage message) {
+        return mapMessageToResponse(message, SenderSummary.of(message.getSender()));
+    }
+
+    private GlobalMessageResponse mapMessageToResponse(GlobalMessage message, SenderSummary sender) {
         GlobalMessageResponse response = new GlobalMessageResponse();
         response.setId(message.getId());
+        response.setSeq(message.getSeq());
         response.setMessageText(message.getMessageText());
         response.setImageUrl(message.getImageUrl());
         response.setCreatedAt(message.getCreatedAt());
         response.setGlobalChatId(message.getGlobalChat().getId());
 
         GlobalMessageResponse.SenderInfo senderInfo = new GlobalMessageResponse.SenderInfo();
-        senderInfo.setId(message.getSender().getId());
-        senderInfo.setName(message.getSender().getName());
-        senderInfo.setAvatarUrl(message.getSender().getAvatarUrl());
-        senderInfo.setYear(message.getSender().getYear());
+        senderInfo.setId(sender.id());
+        senderInfo.setName(sender.name());
+        senderInfo.setAvatarUrl(sender.avatarUrl());
+        senderInfo.setYear(sender.year());
         response.setSender(senderInfo);
 
         return response;
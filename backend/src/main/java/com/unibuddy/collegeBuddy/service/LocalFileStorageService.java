@@ -0,0 +1,221 @@
+package com.unibuddy.collegeBuddy.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Stores objects on local disk under {@code app.upload.dir}, sharded two levels deep by a hash
+ * of the file name ({@code chats/3f/a1/<uuid>.png}) so no directory grows unbounded.
+ * Writes go to a temp file in the shard directory and are renamed into place atomically.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local")
+@Slf4j
+public class LocalFileStorageService implements StorageBackend {
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.base-url}")
+    private String baseUrl;
+
+    // none = leave flushing to the OS, sync = fsync every write, batched = fsync in the background
+    @Value("${app.storage.local.fsync:none}")
+    private String fsync;
+
+    @Value("${app.storage.local.fsync-interval-ms:50}")
+    private long fsyncIntervalMs;
+
+    private Path root;
+    private FsyncMode fsyncMode;
+    private ScheduledExecutorService fsyncExecutor;
+    private final ConcurrentLinkedQueue<Path> pendingFsyncs = new ConcurrentLinkedQueue<>();
+
+    private enum FsyncMode {
+        NONE, SYNC, BATCHED
+    }
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        fsyncMode = FsyncMode.valueOf(fsync.trim().toUpperCase());
+
+        if (fsyncMode == FsyncMode.BATCHED) {
+            fsyncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "local-storage-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fsyncExecutor.scheduleWithFixedDelay(this::flushPendingFsyncs,
+                    fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        log.info("Local file storage initialized at {} (fsync: {})", root, fsyncMode);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fsyncExecutor != null) {
+            fsyncExecutor.shutdown();
+            flushPendingFsyncs();
+        }
+    }
+
+    @Override
+    public String store(String key, MultipartFile file) throws IOException {
+        Path target = toShardedPath(key)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid storage key: " + key));
+        Path shardDir = target.getParent();
+        Files.createDirectories(shardDir);
+
+        // Same directory as the target, so the rename below never crosses file systems
+        Path temp = Files.createTempFile(shardDir, ".upload-", ".tmp");
+        try {
+            // Lets the container rename its own spooled upload instead of copying it where possible
+            file.transferTo(temp.toFile());
+            if (fsyncMode == FsyncMode.SYNC) {
+                force(temp);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        if (fsyncMode == FsyncMode.SYNC) {
+            force(shardDir);
+        } else if (fsyncMode == FsyncMode.BATCHED) {
+            pendingFsyncs.offer(target);
+        }
+
+        return baseUrl + "/api/files/" + key;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Optional<Path> path = findLocalFile(key);
+        if (path.isPresent()) {
+            Files.deleteIfExists(path.get());
+        }
+    }
+
+    @Override
+    public void listObjects(int pageSize, Consumer<List<StoredObject>> pageConsumer) throws IOException {
+        List<StoredObject> page = new ArrayList<>(pageSize);
+
+        // Files.walk is lazy, so only one page of entries is held at a time
+        try (Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> iterator = paths.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                if (path.getFileName().toString().startsWith(".upload-")) {
+                    continue;
+                }
+
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                page.add(new StoredObject(toKey(path), attributes.size(), attributes.lastModifiedTime().toInstant()));
+                if (page.size() >= pageSize) {
+                    pageConsumer.accept(List.copyOf(page));
+                    page.clear();
+                }
+            }
+        }
+
+        if (!page.isEmpty()) {
+            pageConsumer.accept(List.copyOf(page));
+        }
+    }
+
+    @Override
+    public Optional<Path> findLocalFile(String key) {
+        // Files written before sharding was introduced live directly under the upload directory
+        Optional<Path> legacyPath = Optional.of(root.resolve(key).normalize()).filter(path -> path.startsWith(root));
+
+        return toShardedPath(key)
+                .filter(LocalFileStorageService::isReadableFile)
+                .or(() -> legacyPath.filter(LocalFileStorageService::isReadableFile));
+    }
+
+    private Optional<Path> toShardedPath(String key) {
+        int slash = key.lastIndexOf('/');
+        String folder = slash >= 0 ? key.substring(0, slash) : "";
+        String name = key.substring(slash + 1);
+        if (name.isEmpty()) {
+            return Optional.empty();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(name.getBytes(StandardCharsets.UTF_8));
+        long hash = crc.getValue();
+
+        Path path = root.resolve(folder)
+                .resolve(String.format("%02x", hash & 0xff))
+                .resolve(String.format("%02x", (hash >>> 8) & 0xff))
+                .resolve(name)
+                .normalize();
+        return path.startsWith(root) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * Inverse of toShardedPath: drop the two shard directories, keep folder and file name
+     */
+    private String toKey(Path path) {
+        Path relative = root.relativize(path);
+        int names = relative.getNameCount();
+        if (names < 4) {
+            return relative.toString().replace('\\', '/');
+        }
+        return relative.subpath(0, names - 3).toString().replace('\\', '/') + "/" + relative.getFileName();
+    }
+
+    private void flushPendingFsyncs() {
+        Set<Path> directories = new HashSet<>();
+        Path path;
+        while ((path = pendingFsyncs.poll()) != null) {
+            force(path);
+            directories.add(path.getParent());
+        }
+        // One fsync per touched shard directory makes the renames durable
+        directories.forEach(this::force);
+    }
+
+    private void force(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            log.warn("Failed to fsync {}", path, ex);
+        }
+    }
+
+    private static boolean isReadableFile(Path path) {
+        return Files.isRegularFile(path) && Files.isReadable(path);
+    }
+}
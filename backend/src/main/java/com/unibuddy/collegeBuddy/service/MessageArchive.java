@@ -0,0 +1,332 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold message history on local disk, one gzipped NDJSON file per room and month:
+ * {@code <directory>/<table>/<roomId>/<yyyy-MM>.ndjson.gz}, each sorted by (createdAt, id).
+ * <p>
+ * Exports merge into existing files by message id, so re-running an export that was interrupted
+ * before its partition was dropped is harmless. Reads only open the files of the room asked for.
+ * <p>
+ * Every node reads the archive (history reads, {@link RoomSequenceAllocator} seeds), so with
+ * {@code app.cluster.enabled} the directory must be shared storage mounted at the same absolute
+ * path on all of them.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageArchive {
+
+    private static final String FILE_SUFFIX = ".ndjson.gz";
+
+    private static final Comparator<ArchivedMessage> ORDER =
+            Comparator.comparing(ArchivedMessage::createdAt).thenComparing(ArchivedMessage::id);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.chat.archive.directory:archive}")
+    private String directory;
+
+    @Value("${app.chat.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    public enum Table {
+        MESSAGES("messages", "conversation_id"),
+        GLOBAL_MESSAGES("global_messages", "global_chat_id");
+
+        private final String tableName;
+        private final String roomColumn;
+
+        Table(String tableName, String roomColumn) {
+            this.tableName = tableName;
+            this.roomColumn = roomColumn;
+        }
+
+        public String tableName() {
+            return tableName;
+        }
+
+        public String roomColumn() {
+            return roomColumn;
+        }
+    }
+
+    public record ArchivedMessage(UUID id, UUID roomId, long seq, UUID senderId, String messageText,
+                                  String imageUrl, LocalDateTime createdAt) {
+    }
+
+    @PostConstruct
+    public void checkDirectory() {
+        // A relative directory resolves against each node's working directory, so it cannot be shared
+        if (enabled && clusterEnabled && !Paths.get(directory).isAbsolute()) {
+            throw new IllegalStateException("app.chat.archive.directory must be an absolute path on shared storage "
+                    + "when app.cluster.enabled is set, got: " + directory);
+        }
+    }
+
+    /**
+     * Write every row of {@code partition} created in [from, to) to the archive; null bounds are
+     * open. Must run inside a transaction so the driver streams rows instead of buffering them.
+     */
+    public long export(Table table, String partition, LocalDateTime from, LocalDateTime to) {
+        StringBuilder sql = new StringBuilder("SELECT id, ").append(table.roomColumn())
+                .append(", seq, sender_id, message_text, image_url, created_at FROM \"").append(partition).append("\" WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY ").append(table.roomColumn()).append(", created_at, id");
+
+        // Rows arrive grouped by room, so at most one room's slice is held in memory
+        List<ArchivedMessage> room = new ArrayList<>();
+        long[] exported = {0};
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(sql.toString());
+            statement.setFetchSize(1000);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) row -> {
+            ArchivedMessage message = mapRow(row, table);
+            if (!room.isEmpty() && !room.get(0).roomId().equals(message.roomId())) {
+                write(table, room.get(0).roomId(), room);
+                room.clear();
+            }
+            room.add(message);
+            exported[0]++;
+        });
+        if (!room.isEmpty()) {
+            write(table, room.get(0).roomId(), room);
+        }
+        return exported[0];
+    }
+
+    public boolean hasHistory(Table table, UUID roomId) {
+        return Files.isDirectory(roomDirectory(table, roomId));
+    }
+
+    public Optional<ArchivedMessage> find(Table table, UUID roomId, UUID messageId) {
+        for (YearMonth month : months(table, roomId).reversed()) {
+            for (ArchivedMessage message : read(table, roomId, month)) {
+                if (message.id().equals(messageId)) {
+                    return Optional.of(message);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Up to {@code limit} messages older than (createdAt, id), newest first; a null position starts at the newest
+     */
+    public List<ArchivedMessage> readOlder(Table table, UUID roomId, LocalDateTime createdAt, UUID id, int limit) {
+        List<ArchivedMessage> rows = new ArrayList<>();
+        for (YearMonth month : months(table, roomId).reversed()) {
+            if (createdAt != null && month.isAfter(YearMonth.from(createdAt))) {
+                continue;
+            }
+            List<ArchivedMessage> messages = read(table, roomId, month);
+            for (int i = messages.size() - 1; i >= 0 && rows.size() < limit; i--) {
+                ArchivedMessage message = messages.get(i);
+                if (createdAt == null || ORDER.compare(message, position(createdAt, id)) < 0) {
+                    rows.add(message);
+                }
+            }
+            if (rows.size() >= limit) {
+                break;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Up to {@code limit} messages newer than (createdAt, id), oldest first
+     */
+    public List<ArchivedMessage> readNewer(Table table, UUID roomId, LocalDateTime createdAt, UUID id, int limit) {
+        List<ArchivedMessage> rows = new ArrayList<>();
+        for (YearMonth month : months(table, roomId)) {
+            if (month.isBefore(YearMonth.from(createdAt))) {
+                continue;
+            }
+            for (ArchivedMessage message : read(table, roomId, month)) {
+                if (rows.size() >= limit) {
+                    return rows;
+                }
+                if (ORDER.compare(message, position(createdAt, id)) > 0) {
+                    rows.add(message);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Pass every image URL in the archive to {@code consumer}, one file at a time
+     */
+    public void forEachImageUrl(Consumer<String> consumer) {
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .forEach(file -> readFile(file).stream()
+                            .map(ArchivedMessage::imageUrl)
+                            .filter(Objects::nonNull)
+                            .forEach(consumer));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to list archived messages under " + root, ex);
+        }
+    }
+
+    /**
+     * Merge one room's messages into its month files
+     */
+    void write(Table table, UUID roomId, List<ArchivedMessage> messages) {
+        Map<YearMonth, List<ArchivedMessage>> byMonth = new LinkedHashMap<>();
+        for (ArchivedMessage message : messages) {
+            byMonth.computeIfAbsent(YearMonth.from(message.createdAt()), month -> new ArrayList<>()).add(message);
+        }
+
+        try {
+            Files.createDirectories(roomDirectory(table, roomId));
+            for (Map.Entry<YearMonth, List<ArchivedMessage>> month : byMonth.entrySet()) {
+                Map<UUID, ArchivedMessage> merged = new LinkedHashMap<>();
+                for (ArchivedMessage existing : read(table, roomId, month.getKey())) {
+                    merged.put(existing.id(), existing);
+                }
+                for (ArchivedMessage message : month.getValue()) {
+                    merged.put(message.id(), message);
+                }
+                writeFile(file(table, roomId, month.getKey()), merged.values().stream().sorted(ORDER).toList());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to archive messages of room " + roomId, ex);
+        }
+    }
+
+    private void writeFile(Path target, List<ArchivedMessage> messages) throws IOException {
+        // Written aside and moved into place, so readers never see a partial file
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temporary)), StandardCharsets.UTF_8))) {
+            for (ArchivedMessage message : messages) {
+                writer.write(objectMapper.writeValueAsString(message));
+                writer.newLine();
+            }
+        }
+        // The partition is dropped right after the export, so the file must be on disk first
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<ArchivedMessage> read(Table table, UUID roomId, YearMonth month) {
+        Path file = file(table, roomId, month);
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        return readFile(file);
+    }
+
+    private List<ArchivedMessage> readFile(Path file) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            List<ArchivedMessage> messages = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                messages.add(objectMapper.readValue(line, ArchivedMessage.class));
+            }
+            return messages;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read archived messages from " + file, ex);
+        }
+    }
+
+    private List<YearMonth> months(Table table, UUID roomId) {
+        Path room = roomDirectory(table, roomId);
+        if (!Files.isDirectory(room)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(room)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(FILE_SUFFIX))
+                    .map(name -> YearMonth.parse(name.substring(0, name.length() - FILE_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to list archived months of room " + roomId, ex);
+        }
+    }
+
+    private Path roomDirectory(Table table, UUID roomId) {
+        return Paths.get(directory, table.tableName(), roomId.toString());
+    }
+
+    private Path file(Table table, UUID roomId, YearMonth month) {
+        return roomDirectory(table, roomId).resolve(month + FILE_SUFFIX);
+    }
+
+    private static ArchivedMessage position(LocalDateTime createdAt, UUID id) {
+        return new ArchivedMessage(id, null, 0, null, null, null, createdAt);
+    }
+
+    private static ArchivedMessage mapRow(ResultSet row, Table table) throws SQLException {
+        return new ArchivedMessage(
+                row.getObject("id", UUID.class),
+                row.getObject(table.roomColumn(), UUID.class),
+                row.getLong("seq"),
+                row.getObject("sender_id", UUID.class),
+                row.getString("message_text"),
+                row.getString("image_url"),
+                row.getTimestamp("created_at").toLocalDateTime());
+    }
+}
@@ -0,0 +1,147 @@
+package com.unibuddy.collegeBuddy.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code messages} and {@code global_messages} ahead of the clock
+ * and, when {@code app.chat.archive.enabled} is set, moves months past the retention window into
+ * {@link MessageArchive}: a monthly partition is exported whole, then detached and dropped; the
+ * legacy partition left by the V8_1 migration is exported and deleted one month at a time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessagePartitionMaintenance {
+
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("_p(\\d{4})(\\d{2})$");
+
+    private static final String PARTITIONS_SQL = """
+        SELECT c.relname FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class p ON p.oid = i.inhparent
+        WHERE p.relname = ?
+        ORDER BY c.relname
+        """;
+
+    private static final String IS_PARTITIONED_SQL = """
+        SELECT EXISTS (SELECT 1 FROM pg_partitioned_table t JOIN pg_class c ON c.oid = t.partrelid WHERE c.relname = ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageArchive messageArchive;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.chat.partitions.months-ahead:2}")
+    private int monthsAhead;
+
+    @Value("${app.chat.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    @Value("${app.chat.archive.retention-months:12}")
+    private int retentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.chat.partitions.cron:0 15 2 * * *}")
+    public void scheduledMaintain() {
+        try {
+            maintain();
+        } catch (Exception ex) {
+            log.error("Message partition maintenance failed", ex);
+        }
+    }
+
+    public void maintain() {
+        // Schemas built by Hibernate (H2, tests) have plain tables and nothing to maintain
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return;
+        }
+
+        for (MessageArchive.Table table : MessageArchive.Table.values()) {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Boolean.class, table.tableName()))) {
+                continue;
+            }
+            createUpcomingPartitions(table);
+            if (archiveEnabled) {
+                archiveExpired(table, YearMonth.now().minusMonths(retentionMonths));
+            }
+        }
+    }
+
+    private void createUpcomingPartitions(MessageArchive.Table table) {
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            // Idempotent, and skips months the legacy partition still covers
+            jdbcTemplate.queryForList("SELECT create_monthly_partition(?, ?)",
+                    table.tableName(), month.plusMonths(i).atDay(1));
+        }
+    }
+
+    /**
+     * Archive every month before {@code cutoff}
+     */
+    void archiveExpired(MessageArchive.Table table, YearMonth cutoff) {
+        for (String partition : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, table.tableName())) {
+            Matcher matcher = MONTHLY_PARTITION.matcher(partition);
+            if (matcher.find()) {
+                YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                if (month.isBefore(cutoff)) {
+                    archivePartition(table, partition);
+                }
+            } else if (partition.equals(table.tableName() + "_legacy")) {
+                archiveLegacy(table, partition, cutoff);
+            }
+        }
+    }
+
+    private void archivePartition(MessageArchive.Table table, String partition) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long exported = transaction.execute(status -> messageArchive.export(table, partition, null, null));
+
+        // Files are on disk before the rows go; a failure here leaves the partition for the next run
+        transaction.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + table.tableName() + " DETACH PARTITION \"" + partition + "\"");
+            jdbcTemplate.execute("DROP TABLE \"" + partition + "\"");
+        });
+        log.info("Archived {} rows of {} and dropped the partition", exported, partition);
+    }
+
+    private void archiveLegacy(MessageArchive.Table table, String partition, YearMonth cutoff) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM \"" + partition + "\"", Timestamp.class);
+        if (oldest == null) {
+            return;
+        }
+
+        // One month per transaction keeps each delete, and the rows it locks, bounded
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(cutoff); month = month.plusMonths(1)) {
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            long exported = transaction.execute(status -> messageArchive.export(table, partition, from, to));
+            if (exported == 0) {
+                continue;
+            }
+            int deleted = transaction.execute(status -> jdbcTemplate.update(
+                    "DELETE FROM \"" + partition + "\" WHERE created_at >= ? AND created_at < ?",
+                    Timestamp.valueOf(from), Timestamp.valueOf(to)));
+            log.info("Archived {} rows of {} from {} and deleted {}", exported, partition, month, deleted);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.exception.StorageUnavailableException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in write-behind path for chat messages ({@code app.chat.write-behind.enabled}). Senders get
+ * a time-ordered id and the row is appended to a bounded queue that a single writer thread drains
+ * into JDBC batch inserts, so a busy room costs one transaction per batch instead of one per
+ * message. Callers broadcast from {@link PendingMessage#persisted()}, so nobody sees a message
+ * before its batch has committed.
+ * <p>
+ * With {@code durability=commit} the sender's request waits until its batch has committed; a
+ * message still queued when the wait times out is withdrawn, so a retry cannot store it twice.
+ * With {@code durability=queued} it returns once the message is queued, and messages still in
+ * the queue are lost if the process dies. Either way recipients only see the message once its
+ * batch commits; the mode only changes when the sender is answered.
+ * <p>
+ * Senders must not hold a transaction while they wait: the writer needs a connection from the
+ * same pool to commit the batch they are waiting for.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageWriteBehindQueue {
+
+    private static final String INSERT_MESSAGE_SQL = """
+        INSERT INTO messages (id, conversation_id, seq, sender_id, message_text, image_url, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_GLOBAL_MESSAGE_SQL = """
+        INSERT INTO global_messages (id, global_chat_id, seq, sender_id, message_text, image_url, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    // Never moves the inbox preview backwards if batches commit out of order
+    private static final String UPDATE_CONVERSATION_SQL = """
+        UPDATE conversations
+        SET last_message_text = ?, last_message_at = ?, last_sender_id = ?, updated_at = ?
+        WHERE id = ? AND (last_message_at IS NULL OR last_message_at <= ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.chat.write-behind.enabled:false}")
+    private boolean enabled;
+
+    // commit = acknowledge after the batch commits, queued = acknowledge once queued
+    @Value("${app.chat.write-behind.durability:commit}")
+    private String durability;
+
+    @Value("${app.chat.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.chat.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.chat.write-behind.enqueue-timeout-ms:100}")
+    private long enqueueTimeoutMs;
+
+    @Value("${app.chat.write-behind.commit-timeout-ms:5000}")
+    private long commitTimeoutMs;
+
+    private BlockingQueue<PendingMessage> queue;
+    private Thread writer;
+    private volatile boolean running;
+    private Durability durabilityMode;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder withdrawn = new LongAdder();
+
+    public enum Durability {
+        QUEUED, COMMIT
+    }
+
+    public enum Target {
+        CONVERSATION, GLOBAL_CHAT
+    }
+
+    /**
+     * A queued row. Whichever of the writer and a timed-out sender claims it first decides
+     * whether it is written or withdrawn.
+     */
+    public record PendingMessage(Target target, UUID id, UUID chatId, long seq, UUID senderId, String messageText,
+                                 String imageUrl, LocalDateTime createdAt, CompletableFuture<Void> persisted,
+                                 AtomicBoolean claimed) {
+
+        public PendingMessage(Target target, UUID id, UUID chatId, long seq, UUID senderId, String messageText,
+                              String imageUrl, LocalDateTime createdAt) {
+            this(target, id, chatId, seq, senderId, messageText, imageUrl, createdAt, new CompletableFuture<>(),
+                    new AtomicBoolean());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (durability.trim().equalsIgnoreCase("broadcast")) {
+            // Renamed: fan-out always waits for the commit, so the old name promised lower latency than it gave
+            throw new IllegalStateException("app.chat.write-behind.durability=broadcast is now called queued");
+        }
+        durabilityMode = Durability.valueOf(durability.trim().toUpperCase());
+        if (!enabled) {
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::drain, "message-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Message write-behind enabled (durability: {}, batch size: {})", durabilityMode, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        // The writer keeps going until the queue is empty
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a message for the next batch. Throws when the queue stays full, which callers surface as 503.
+     */
+    public CompletableFuture<Void> enqueue(PendingMessage message) {
+        try {
+            if (queue.offer(message, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return message.persisted();
+            }
+            rejected.increment();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // Fails whatever was already waiting on the message
+        StorageUnavailableException busy = new StorageUnavailableException("Chat is busy, please try again shortly");
+        message.persisted().completeExceptionally(busy);
+        throw busy;
+    }
+
+    /**
+     * Block the sender until its message is durable, when the durability mode asks for it. Must be
+     * called outside any transaction.
+     */
+    public void awaitDurability(PendingMessage message) {
+        if (durabilityMode != Durability.COMMIT) {
+            return;
+        }
+        try {
+            try {
+                message.persisted().get(commitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                // Still queued: withdraw it, so it is neither stored nor broadcast behind the sender's back
+                if (message.claimed().compareAndSet(false, true)) {
+                    withdrawn.increment();
+                    message.persisted().cancel(false);
+                    throw new StorageUnavailableException("Chat is busy, please try again shortly");
+                }
+                // Already in a batch being written, which settles it one way or the other
+                message.persisted().get(commitTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving message", ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new RuntimeException("Failed to save message", ex);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("durability", durabilityMode);
+        metrics.put("queued", queue != null ? queue.size() : 0);
+        metrics.put("written", written.sum());
+        metrics.put("batches", batches.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("withdrawn", withdrawn.sum());
+        return metrics;
+    }
+
+    private void drain() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Whatever piled up while the previous batch was being written goes into this one
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batch.removeIf(message -> !message.claimed().compareAndSet(false, true));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.warn("Message writer interrupted with {} messages queued", queue.size());
+                return;
+            }
+
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingMessage> batch) {
+        try {
+            writeInTransaction(batch);
+            batch.forEach(message -> message.persisted().complete(null));
+            written.add(batch.size());
+            batches.increment();
+        } catch (RuntimeException ex) {
+            // One bad row (e.g. a conversation deleted meanwhile) must not take the rest of the batch with it
+            log.warn("Batch of {} messages failed, retrying one by one", batch.size(), ex);
+            for (PendingMessage message : batch) {
+                try {
+                    writeInTransaction(List.of(message));
+                    message.persisted().complete(null);
+                    written.increment();
+                } catch (RuntimeException rowFailure) {
+                    failed.increment();
+                    log.error("Dropping message {} that could not be saved", message.id(), rowFailure);
+                    message.persisted().completeExceptionally(rowFailure);
+                }
+            }
+        }
+    }
+
+    private void writeInTransaction(List<PendingMessage> batch) {
+        List<Object[]> messageRows = new ArrayList<>();
+        List<Object[]> globalMessageRows = new ArrayList<>();
+        Map<UUID, PendingMessage> latestPerConversation = new LinkedHashMap<>();
+        for (PendingMessage message : batch) {
+            Object[] row = {message.id(), message.chatId(), message.seq(), message.senderId(),
+                    message.messageText(), message.imageUrl(), message.createdAt()};
+            if (message.target() == Target.CONVERSATION) {
+                messageRows.add(row);
+                latestPerConversation.merge(message.chatId(), message,
+                        (current, candidate) -> candidate.createdAt().isAfter(current.createdAt()) ? candidate : current);
+            } else {
+                globalMessageRows.add(row);
+            }
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (!messageRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL, messageRows);
+            }
+            if (!globalMessageRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_GLOBAL_MESSAGE_SQL, globalMessageRows);
+            }
+            if (!latestPerConversation.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_CONVERSATION_SQL, latestPerConversation.values().stream()
+                        .map(latest -> new Object[] {latest.messageText(), latest.createdAt(), latest.senderId(),
+                                latest.createdAt(), latest.chatId(), latest.createdAt()})
+                        .toList());
+            }
+        });
+    }
+}
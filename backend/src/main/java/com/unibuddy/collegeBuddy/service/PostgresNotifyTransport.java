@@ -0,0 +1,133 @@
+package com.unibuddy.collegeBuddy.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ClusterTransport} over Postgres {@code LISTEN/NOTIFY}, so nodes that share the database
+ * need nothing else to reach each other. One pooled connection per node is held for listening.
+ * <p>
+ * NOTIFY payloads are capped just under 8000 bytes; larger frames are written to the unlogged
+ * {@code cluster_frames} table (created by V11) and only their row id is notified. Notifications sent while the listener reconnects
+ * are lost, and clients recover them through the {@code sinceSeq} history resync.
+ */
+@Slf4j
+public class PostgresNotifyTransport implements ClusterTransport {
+
+    private static final int MAX_NOTIFY_BYTES = 7900;
+    private static final String OVERSIZED_PREFIX = "@";
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresNotifyTransport(DataSource dataSource, String channel) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid cluster channel name: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Consumer<String> receiver) {
+        running = true;
+        listener = new Thread(() -> listen(receiver), "cluster-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void publish(String frame) {
+        if (frame.getBytes(StandardCharsets.UTF_8).length <= MAX_NOTIFY_BYTES) {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, frame);
+            return;
+        }
+
+        jdbcTemplate.queryForList("""
+            WITH stored AS (INSERT INTO cluster_frames (frame) VALUES (?) RETURNING id)
+            SELECT pg_notify(?, ? || id) FROM stored
+            """, frame, channel, OVERSIZED_PREFIX);
+        // Listeners fetch within milliseconds, so anything older is garbage
+        jdbcTemplate.update("DELETE FROM cluster_frames WHERE created_at < CURRENT_TIMESTAMP - INTERVAL '1 minute'");
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            try {
+                listener.join(5000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void listen(Consumer<String> receiver) {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                log.info("Listening for cluster broadcasts on channel {}", channel);
+
+                while (running) {
+                    PGNotification[] batch = notifications.getNotifications(500);
+                    if (batch == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : batch) {
+                        deliver(receiver, notification.getParameter());
+                    }
+                }
+            } catch (Exception ex) {
+                if (running) {
+                    log.warn("Cluster listener lost its connection; reconnecting", ex);
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private void deliver(Consumer<String> receiver, String payload) {
+        try {
+            if (payload.startsWith(OVERSIZED_PREFIX)) {
+                List<String> frames = jdbcTemplate.queryForList("SELECT frame FROM cluster_frames WHERE id = ?",
+                        String.class, Long.parseLong(payload.substring(OVERSIZED_PREFIX.length())));
+                frames.forEach(receiver);
+            } else {
+                receiver.accept(payload);
+            }
+        } catch (Exception ex) {
+            // One bad frame must not cost the listening connection
+            log.error("Failed to deliver cluster frame", ex);
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
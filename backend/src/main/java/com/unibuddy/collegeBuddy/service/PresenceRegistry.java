@@ -0,0 +1,422 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.dto.presence.PresenceUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory presence and typing state per chat room. A user is in a room while one of their
+ * STOMP sessions is subscribed to its presence topic, and typing until they say they stopped or
+ * {@code typing-ttl-ms} passes. Sessions that go quiet (no frames or heartbeats) for
+ * {@code session-ttl-ms} are dropped as if they had disconnected.
+ * <p>
+ * Expiry runs on a timer wheel: refreshing a session or a typing flag only moves its deadline,
+ * and an entry is looked at again when its slot comes round. Changes are merged per room and
+ * sent to {@code /topic/{room}/presence} at most once per {@code broadcast-interval-ms}, as
+ * deltas, so the work is proportional to the changes and not to the size of the room.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceRegistry implements ChannelInterceptor {
+
+    private static final Pattern ROOM_TOPIC = Pattern.compile("^/topic/((?:conversations|global-chat)/[0-9a-fA-F-]{36})/presence$");
+    private static final int WHEEL_SLOTS = 128;
+
+    // Looked up on first flush: its template needs the inbound channel this interceptor is registered on
+    private final ObjectProvider<SharedPayloadBroadcaster> broadcaster;
+
+    @Value("${app.chat.presence.session-ttl-ms:30000}")
+    private long sessionTtlMs;
+
+    @Value("${app.chat.presence.typing-ttl-ms:6000}")
+    private long typingTtlMs;
+
+    @Value("${app.chat.presence.tick-ms:500}")
+    private long tickMs;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> changedRooms = new ConcurrentLinkedQueue<>();
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedQueue<Timer>[] wheel = new ConcurrentLinkedQueue[WHEEL_SLOTS];
+    private volatile long lastTick = -1;
+
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    {
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    private interface Timer {
+        // When the entry is due, or a negative value once it no longer matters
+        long deadline();
+
+        void expire();
+    }
+
+    private final class Session implements Timer {
+        private final String id;
+        private final UUID userId;
+        private final Map<String, String> roomsBySubscription = new HashMap<>();
+        private volatile long lastSeen = System.currentTimeMillis();
+        private volatile boolean closed;
+
+        private Session(String id, UUID userId) {
+            this.id = id;
+            this.userId = userId;
+        }
+
+        @Override
+        public long deadline() {
+            return closed ? -1 : lastSeen + sessionTtlMs;
+        }
+
+        @Override
+        public void expire() {
+            expired.increment();
+            disconnected(id);
+        }
+    }
+
+    private final class TypingTimer implements Timer {
+        private final String room;
+        private final UUID userId;
+
+        private TypingTimer(String room, UUID userId) {
+            this.room = room;
+            this.userId = userId;
+        }
+
+        @Override
+        public long deadline() {
+            Room state = rooms.get(room);
+            if (state == null) {
+                return -1;
+            }
+            synchronized (state) {
+                Long until = state.typingUntil.get(userId);
+                return until != null ? until : -1;
+            }
+        }
+
+        @Override
+        public void expire() {
+            typing(room, userId, false);
+        }
+    }
+
+    private static final class Room {
+        // Sessions per user, so a second tab does not announce the user twice
+        private final Map<UUID, Integer> members = new HashMap<>();
+        private final Map<UUID, Long> typingUntil = new HashMap<>();
+        private final Map<UUID, Boolean> onlineChanges = new LinkedHashMap<>();
+        private final Map<UUID, Boolean> typingChanges = new LinkedHashMap<>();
+        private boolean queued;
+    }
+
+    /**
+     * The room a presence topic belongs to, e.g. {@code global-chat/{id}}, or null for any other destination
+     */
+    public static String roomOf(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        Matcher matcher = ROOM_TOPIC.matcher(destination);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    // Every inbound frame, heartbeats included, shows the session is still there
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        Session session = sessionId != null ? sessions.get(sessionId) : null;
+        if (session != null) {
+            session.lastSeen = System.currentTimeMillis();
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        UUID userId = userId(event.getUser());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (userId != null && sessionId != null) {
+            Session session = new Session(sessionId, userId);
+            sessions.put(sessionId, session);
+            schedule(session, session.deadline());
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String room = roomOf(accessor.getDestination());
+        Session session = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (room == null || session == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        // Joined under the session's lock so a concurrent disconnect always sees the room
+        synchronized (session) {
+            if (!session.closed && session.roomsBySubscription.putIfAbsent(accessor.getSubscriptionId(), room) == null) {
+                join(room, session.userId);
+            }
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Session session = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (session == null) {
+            return;
+        }
+        String room;
+        synchronized (session) {
+            room = session.roomsBySubscription.remove(accessor.getSubscriptionId());
+        }
+        if (room != null) {
+            leave(room, session.userId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnected(event.getSessionId());
+    }
+
+    public void typing(String room, UUID userId, boolean typing) {
+        Room state = rooms.get(room);
+        if (state == null) {
+            return;
+        }
+        boolean newTimer = false;
+        synchronized (state) {
+            if (typing) {
+                // Only users in the room may type in it
+                if (!state.members.containsKey(userId)) {
+                    return;
+                }
+                newTimer = state.typingUntil.put(userId, System.currentTimeMillis() + typingTtlMs) == null;
+                if (newTimer) {
+                    change(room, state, state.typingChanges, userId, true);
+                }
+            } else if (state.typingUntil.remove(userId) != null) {
+                change(room, state, state.typingChanges, userId, false);
+            }
+        }
+        if (newTimer) {
+            TypingTimer timer = new TypingTimer(room, userId);
+            schedule(timer, timer.deadline());
+        }
+    }
+
+    public PresenceUpdate snapshot(String room) {
+        Room state = rooms.get(room);
+        if (state == null) {
+            return PresenceUpdate.snapshot(0, List.of(), List.of());
+        }
+        synchronized (state) {
+            return PresenceUpdate.snapshot(state.members.size(),
+                    List.copyOf(state.members.keySet()), List.copyOf(state.typingUntil.keySet()));
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("sessions", sessions.size());
+        metrics.put("rooms", rooms.size());
+        metrics.put("changes", changes.sum());
+        metrics.put("updates", updates.sum());
+        metrics.put("expiredSessions", expired.sum());
+        return metrics;
+    }
+
+    /**
+     * Sends one merged update for every room that changed since the last run
+     */
+    @Scheduled(fixedDelayString = "${app.chat.presence.broadcast-interval-ms:1000}")
+    public void flush() {
+        String room;
+        while ((room = changedRooms.poll()) != null) {
+            Room state = rooms.get(room);
+            if (state == null) {
+                continue;
+            }
+            PresenceUpdate update;
+            synchronized (state) {
+                state.queued = false;
+                update = new PresenceUpdate(false, state.members.size(),
+                        select(state.onlineChanges, true), select(state.onlineChanges, false),
+                        select(state.typingChanges, true), select(state.typingChanges, false));
+                state.onlineChanges.clear();
+                state.typingChanges.clear();
+                if (state.members.isEmpty() && state.typingUntil.isEmpty()) {
+                    rooms.remove(room, state);
+                }
+            }
+            try {
+                broadcaster.getObject().send("/topic/" + room + "/presence", update);
+                updates.increment();
+            } catch (RuntimeException ex) {
+                log.warn("Failed to send presence update for {}", room, ex);
+            }
+        }
+    }
+
+    /**
+     * Advances the wheel through every slot that came due since the last tick
+     */
+    @Scheduled(fixedRateString = "${app.chat.presence.tick-ms:500}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        long current = now / tickMs;
+        long from = lastTick < 0 ? current : Math.max(lastTick + 1, current - WHEEL_SLOTS + 1);
+        lastTick = current;
+        for (long tick = from; tick <= current; tick++) {
+            ConcurrentLinkedQueue<Timer> slot = wheel[(int) (tick % WHEEL_SLOTS)];
+            // Entries rescheduled into this same slot wait for its next turn
+            for (int i = slot.size(); i > 0; i--) {
+                Timer timer = slot.poll();
+                if (timer == null) {
+                    break;
+                }
+                long deadline = timer.deadline();
+                if (deadline < 0) {
+                    continue;
+                }
+                if (deadline > now) {
+                    schedule(timer, deadline);
+                } else {
+                    try {
+                        timer.expire();
+                    } catch (RuntimeException ex) {
+                        log.warn("Failed to expire presence entry", ex);
+                    }
+                }
+            }
+        }
+    }
+
+    private void schedule(Timer timer, long deadline) {
+        // Deadlines past one turn of the wheel are seen early and put back
+        long tick = Math.max(deadline / tickMs, Math.max(lastTick, 0) + 1);
+        wheel[(int) (tick % WHEEL_SLOTS)].add(timer);
+    }
+
+    private void disconnected(String sessionId) {
+        Session session = sessionId != null ? sessions.remove(sessionId) : null;
+        if (session == null) {
+            return;
+        }
+        List<String> left;
+        synchronized (session) {
+            session.closed = true;
+            left = new ArrayList<>(session.roomsBySubscription.values());
+            session.roomsBySubscription.clear();
+        }
+        left.forEach(room -> leave(room, session.userId));
+    }
+
+    private void join(String room, UUID userId) {
+        // A room removed by a concurrent flush is simply created again
+        while (true) {
+            Room state = rooms.computeIfAbsent(room, key -> new Room());
+            synchronized (state) {
+                if (rooms.get(room) != state) {
+                    continue;
+                }
+                if (state.members.merge(userId, 1, Integer::sum) == 1) {
+                    change(room, state, state.onlineChanges, userId, true);
+                }
+                return;
+            }
+        }
+    }
+
+    private void leave(String room, UUID userId) {
+        Room state = rooms.get(room);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            Integer sessionsLeft = state.members.get(userId);
+            if (sessionsLeft == null) {
+                return;
+            }
+            if (sessionsLeft > 1) {
+                state.members.put(userId, sessionsLeft - 1);
+            } else {
+                state.members.remove(userId);
+                change(room, state, state.onlineChanges, userId, false);
+                if (state.typingUntil.remove(userId) != null) {
+                    change(room, state, state.typingChanges, userId, false);
+                }
+            }
+        }
+    }
+
+    // Called under the room's lock; later changes for a user replace earlier ones
+    private void change(String room, Room state, Map<UUID, Boolean> pending, UUID userId, boolean value) {
+        changes.increment();
+        pending.remove(userId);
+        pending.put(userId, value);
+        if (!state.queued) {
+            state.queued = true;
+            changedRooms.add(room);
+        }
+    }
+
+    private static List<UUID> select(Map<UUID, Boolean> pending, boolean value) {
+        List<UUID> users = new ArrayList<>();
+        pending.forEach((userId, changed) -> {
+            if (changed == value) {
+                users.add(userId);
+            }
+        });
+        return users;
+    }
+
+    private static UUID userId(Principal user) {
+        if (user == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(user.getName());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.dto.message.MessageHistoryResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Ring buffer of the most recent messages per conversation and global chat, so reconnects and
+ * tab switches can be answered without querying the messages table.
+ * <p>
+ * Each room's buffer always holds a contiguous tail of its history: it is filled by committed
+ * sends and by seeding from a latest-page database read, and a buffer is marked complete only
+ * when it is known to hold the room's entire history. Rooms are evicted least recently used
+ * first once the estimated size of all buffers exceeds {@code app.chat.cache.max-bytes}.
+ */
+@Component
+public class RecentMessageCache {
+
+    // Object headers, ids, timestamps and the sender block of a mapped response
+    private static final int ENTRY_OVERHEAD_BYTES = 320;
+
+    @Value("${app.chat.cache.messages-per-room:200}")
+    private int messagesPerRoom;
+
+    @Value("${app.chat.cache.max-bytes:33554432}")
+    private long maxBytes;
+
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public record Entry(UUID id, LocalDateTime createdAt, Object message, int bytes) {
+    }
+
+    public static String conversationRoom(UUID conversationId) {
+        return "conversation:" + conversationId;
+    }
+
+    public static String globalChatRoom(UUID globalChatId) {
+        return "global-chat:" + globalChatId;
+    }
+
+    public static Entry entry(UUID id, LocalDateTime createdAt, Object message, String messageText, String imageUrl) {
+        int textBytes = 2 * (messageText != null ? messageText.length() : 0) + 2 * (imageUrl != null ? imageUrl.length() : 0);
+        // Postgres keeps microseconds, so seeded and appended copies of a message compare equal
+        return new Entry(id, createdAt.truncatedTo(ChronoUnit.MICROS), message, ENTRY_OVERHEAD_BYTES + textBytes);
+    }
+
+    /**
+     * Append once the surrounding transaction commits, so rolled-back sends never become visible
+     */
+    public void appendAfterCommit(String roomKey, Entry entry) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(roomKey, entry);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append(roomKey, entry);
+            }
+        });
+    }
+
+    public void append(String roomKey, Entry entry) {
+        long added;
+        while (true) {
+            Room room = rooms.computeIfAbsent(roomKey, key -> new Room(messagesPerRoom));
+            synchronized (room) {
+                if (room.evicted) {
+                    continue;
+                }
+                added = room.insert(entry);
+                room.touch();
+                break;
+            }
+        }
+        reserve(added);
+    }
+
+    /**
+     * Seed a room from a latest-page read. {@code newestFirst} is the page as fetched; {@code complete}
+     * means it reached the start of the room's history.
+     */
+    public void seed(String roomKey, List<Entry> newestFirst, boolean complete) {
+        long added = 0;
+        while (true) {
+            Room room = rooms.computeIfAbsent(roomKey, key -> new Room(messagesPerRoom));
+            synchronized (room) {
+                if (room.evicted) {
+                    continue;
+                }
+                // The page plus anything appended since is the whole history, until an insert overflows the ring
+                if (complete && newestFirst.size() <= messagesPerRoom) {
+                    room.complete = true;
+                }
+                // Merges with anything committed and appended while the read was running
+                for (int i = Math.min(newestFirst.size(), messagesPerRoom) - 1; i >= 0; i--) {
+                    added += room.insertSeed(newestFirst.get(i));
+                }
+                room.touch();
+                break;
+            }
+        }
+        reserve(added);
+    }
+
+    /**
+     * Answer a history read from the buffer, or empty if it does not cover the requested window
+     */
+    public <T> Optional<MessageHistoryResponse<T>> window(String roomKey, MessageHistoryResponse.Direction direction,
+                                                         UUID cursor, int limit, Class<T> type) {
+        Room room = rooms.get(roomKey);
+        if (room == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        List<Entry> rows;
+        synchronized (room) {
+            rows = room.window(direction, cursor, limit);
+            if (rows != null) {
+                room.touch();
+            }
+        }
+        if (rows == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        hits.increment();
+        // Same shape as a database read of limit + 1 rows, so the response flags line up
+        Function<Entry, T> mapper = row -> type.cast(row.message());
+        return Optional.of(MessageHistoryResponse.of(rows, limit, direction, mapper));
+    }
+
+    public void invalidate(String roomKey) {
+        Room room = rooms.remove(roomKey);
+        if (room != null) {
+            release(room);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("rooms", rooms.size());
+        metrics.put("estimatedBytes", totalBytes.get());
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        metrics.put("evictions", evictions.sum());
+        return metrics;
+    }
+
+    private void reserve(long bytes) {
+        if (totalBytes.addAndGet(bytes) <= maxBytes) {
+            return;
+        }
+        // Rare relative to reads, so a scan for the least recently used room is cheap enough
+        while (totalBytes.get() > maxBytes) {
+            Optional<Map.Entry<String, Room>> coldest = rooms.entrySet().stream()
+                    .min(Comparator.comparingLong(candidate -> candidate.getValue().lastAccessNanos));
+            if (coldest.isEmpty()) {
+                return;
+            }
+            if (rooms.remove(coldest.get().getKey(), coldest.get().getValue())) {
+                release(coldest.get().getValue());
+                evictions.increment();
+            }
+        }
+    }
+
+    private void release(Room room) {
+        synchronized (room) {
+            room.evicted = true;
+            totalBytes.addAndGet(-room.bytes);
+        }
+    }
+
+    /**
+     * Fixed-capacity ring ordered by (createdAt, id); only touched while synchronized on the room
+     */
+    private static final class Room {
+        // Same order as the history queries: UUID.compareTo is signed, Postgres compares unsigned bytes
+        private static final Comparator<Entry> ORDER =
+                Comparator.comparing(Entry::createdAt).thenComparing(Entry::id, Room::compareUnsigned);
+
+        private final Entry[] ring;
+        private int start;
+        private int size;
+        private long bytes;
+        private boolean complete;
+        private boolean evicted;
+        private volatile long lastAccessNanos;
+
+        Room(int capacity) {
+            ring = new Entry[capacity];
+        }
+
+        void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+
+        /**
+         * Insert a newly committed message; returns the change in estimated bytes
+         */
+        long insert(Entry entry) {
+            // Older than the buffer's tail of history: keeping it could hide messages in between
+            if (size > 0 && ORDER.compare(entry, get(0)) < 0 && !complete) {
+                return 0;
+            }
+            return insertSorted(entry);
+        }
+
+        long insertSeed(Entry entry) {
+            if (size == ring.length && ORDER.compare(entry, get(0)) < 0) {
+                return 0;
+            }
+            return insertSorted(entry);
+        }
+
+        private long insertSorted(Entry entry) {
+            // Nearly always lands at the tail; walk back for the occasional out-of-order commit
+            int position = size;
+            while (position > 0) {
+                int comparison = ORDER.compare(get(position - 1), entry);
+                if (comparison == 0) {
+                    return 0;
+                }
+                if (comparison < 0) {
+                    break;
+                }
+                position--;
+            }
+
+            long delta = 0;
+            if (size == ring.length) {
+                delta -= get(0).bytes();
+                start = (start + 1) % ring.length;
+                size--;
+                position--;
+                complete = false;
+                if (position < 0) {
+                    bytes += delta;
+                    return delta;
+                }
+            }
+            for (int i = size; i > position; i--) {
+                set(i, get(i - 1));
+            }
+            set(position, entry);
+            size++;
+            delta += entry.bytes();
+            bytes += delta;
+            return delta;
+        }
+
+        /**
+         * Rows in database read order (limit + 1 at most), or null when the buffer cannot answer
+         */
+        List<Entry> window(MessageHistoryResponse.Direction direction, UUID cursor, int limit) {
+            switch (direction) {
+                case LATEST -> {
+                    if (size <= limit && !complete) {
+                        return null;
+                    }
+                    return newestFirst(size, limit + 1);
+                }
+                case BEFORE -> {
+                    int index = indexOf(cursor);
+                    if (index < 0 || (index <= limit && !complete)) {
+                        return null;
+                    }
+                    return newestFirst(index, limit + 1);
+                }
+                default -> {
+                    int index = indexOf(cursor);
+                    if (index < 0) {
+                        return null;
+                    }
+                    List<Entry> rows = new ArrayList<>();
+                    for (int i = index + 1; i < size && rows.size() <= limit; i++) {
+                        rows.add(get(i));
+                    }
+                    return rows;
+                }
+            }
+        }
+
+        private List<Entry> newestFirst(int end, int count) {
+            List<Entry> rows = new ArrayList<>(Math.min(end, count));
+            for (int i = end - 1; i >= 0 && rows.size() < count; i--) {
+                rows.add(get(i));
+            }
+            return rows;
+        }
+
+        private int indexOf(UUID id) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (get(i).id().equals(id)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Entry get(int index) {
+            return ring[(start + index) % ring.length];
+        }
+
+        private void set(int index, Entry entry) {
+            ring[(start + index) % ring.length] = entry;
+        }
+
+        static int compareUnsigned(UUID a, UUID b) {
+            int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+            return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.repository.GlobalMessageRepository;
+import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hands out per-room message sequence numbers from in-memory counters, so sends never contend
+ * on a counter row. Each counter is seeded once from {@code MAX(seq)} of its room, under the lock
+ * of one of a fixed set of stripes, so concurrent first sends seed only once.
+ * <p>
+ * A number is handed back when its send rolls back, or its write-behind message is withdrawn or
+ * fails, provided it is still the room's latest; a hole is left only when a later number has
+ * already gone out, and clients resync across it with {@code ?sinceSeq=}.
+ * <p>
+ * Each stripe keeps its most recently used counters up to its share of
+ * {@code app.chat.sequence.max-rooms}. A counter with numbers still in flight is never evicted,
+ * as reseeding from {@code MAX(seq)} would hand those out again.
+ * <p>
+ * With {@code app.cluster.enabled} every node sends to every room, so numbers come from a
+ * {@code room_sequences} row per room instead, bumped with {@code UPDATE ... RETURNING}. Each node
+ * lifts the row to the room's {@code MAX(seq)} the first time it allocates there, which covers
+ * messages sent before the cluster was switched on. The bump commits in its own transaction, so
+ * the row lock is released at once rather than held until the send commits; a send inside a
+ * transaction therefore briefly needs a second pooled connection.
+ * <p>
+ * Either way the allocator must be correct by itself: partitioning limits the database's guard to
+ * {@code (room, seq, created_at)}, which cannot catch the same number sent at two instants.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RoomSequenceAllocator {
+
+    private static final int STRIPES = 64;
+
+    private static final String NEXT_SQL =
+            "UPDATE room_sequences SET last_seq = last_seq + 1 WHERE room_id = ? RETURNING last_seq";
+
+    // Never moves the counter backwards, whichever node seeds first
+    private static final String SEED_SQL = """
+        INSERT INTO room_sequences (room_id, last_seq) VALUES (?, ? + 1)
+        ON CONFLICT (room_id) DO UPDATE SET last_seq = GREATEST(room_sequences.last_seq, EXCLUDED.last_seq - 1) + 1
+        RETURNING last_seq
+        """;
+
+    private static final String HAND_BACK_SQL =
+            "UPDATE room_sequences SET last_seq = last_seq - 1 WHERE room_id = ? AND last_seq = ?";
+
+    private final MessageRepository messageRepository;
+    private final GlobalMessageRepository globalMessageRepository;
+    private final MessageArchive messageArchive;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    @Value("${app.chat.sequence.max-rooms:100000}")
+    private int maxRooms;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private int stripeCapacity;
+
+    // Rooms whose shared counter this node has already lifted to the room's MAX(seq).
+    // Forgetting one only costs another seed, which never moves the counter backwards.
+    private final Map<Room, Boolean> seededRooms = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Room, Boolean> eldest) {
+            return size() > maxRooms;
+        }
+    };
+
+    private record Room(MessageArchive.Table table, UUID id) {
+    }
+
+    private static final class Stripe {
+        // Access-ordered, so eviction finds the least recently used rooms first
+        private final Map<Room, Counter> counters = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Only touched while holding its stripe's lock
+     */
+    private static final class Counter {
+        private long last;
+        // Allocated but not yet committed or handed back
+        private int inFlight;
+
+        private Counter(long last) {
+            this.last = last;
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeCapacity = Math.max(1, maxRooms / STRIPES);
+    }
+
+    /**
+     * Next number for a message saved in the current transaction, handed back if it rolls back
+     */
+    public long nextForConversation(UUID conversationId) {
+        Room room = new Room(MessageArchive.Table.MESSAGES, conversationId);
+        long seq = next(room, TransactionSynchronizationManager.isSynchronizationActive());
+        settleAfterTransaction(room, seq);
+        return seq;
+    }
+
+    /**
+     * Next number for a write-behind message, handed back unless {@code persisted} completes normally
+     */
+    public long nextForConversation(UUID conversationId, CompletableFuture<Void> persisted) {
+        Room room = new Room(MessageArchive.Table.MESSAGES, conversationId);
+        long seq = next(room, true);
+        settleWhen(room, seq, persisted);
+        return seq;
+    }
+
+    public long nextForGlobalChat(UUID globalChatId) {
+        Room room = new Room(MessageArchive.Table.GLOBAL_MESSAGES, globalChatId);
+        long seq = next(room, TransactionSynchronizationManager.isSynchronizationActive());
+        settleAfterTransaction(room, seq);
+        return seq;
+    }
+
+    public long nextForGlobalChat(UUID globalChatId, CompletableFuture<Void> persisted) {
+        Room room = new Room(MessageArchive.Table.GLOBAL_MESSAGES, globalChatId);
+        long seq = next(room, true);
+        settleWhen(room, seq, persisted);
+        return seq;
+    }
+
+    public Map<String, Object> getMetrics() {
+        int rooms = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                rooms += stripe.counters.size();
+            }
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("rooms", rooms);
+        synchronized (seededRooms) {
+            metrics.put("seededRooms", seededRooms.size());
+        }
+        return metrics;
+    }
+
+    private long next(Room room, boolean settledLater) {
+        if (clusterEnabled) {
+            return nextShared(room);
+        }
+        Stripe stripe = stripeFor(room);
+        synchronized (stripe) {
+            Counter counter = stripe.counters.get(room);
+            if (counter == null) {
+                counter = new Counter(maxSeq(room));
+                stripe.counters.put(room, counter);
+                evict(stripe);
+            }
+            if (settledLater) {
+                counter.inFlight++;
+            }
+            return ++counter.last;
+        }
+    }
+
+    private long nextShared(Room room) {
+        // Outside the send's transaction, so concurrent senders to the room do not queue on the row lock
+        return requiresNew().execute(status -> {
+            boolean seeded;
+            synchronized (seededRooms) {
+                seeded = seededRooms.containsKey(room);
+            }
+            if (seeded) {
+                List<Long> next = jdbcTemplate.queryForList(NEXT_SQL, Long.class, room.id());
+                if (!next.isEmpty()) {
+                    return next.get(0);
+                }
+            }
+            long seq = jdbcTemplate.queryForObject(SEED_SQL, Long.class, room.id(), maxSeq(room));
+            synchronized (seededRooms) {
+                seededRooms.put(room, Boolean.TRUE);
+            }
+            return seq;
+        });
+    }
+
+    private void settleAfterTransaction(Room room, long seq) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                settle(room, seq, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private void settleWhen(Room room, long seq, CompletableFuture<Void> persisted) {
+        persisted.whenComplete((saved, failure) -> settle(room, seq, failure == null));
+    }
+
+    private void settle(Room room, long seq, boolean committed) {
+        if (clusterEnabled) {
+            if (!committed) {
+                handBackShared(room, seq);
+            }
+            return;
+        }
+        Stripe stripe = stripeFor(room);
+        synchronized (stripe) {
+            // Never evicted while in flight, so still there
+            Counter counter = stripe.counters.get(room);
+            counter.inFlight--;
+            if (!committed && counter.last == seq) {
+                counter.last--;
+            }
+        }
+    }
+
+    private void handBackShared(Room room, long seq) {
+        try {
+            // A fresh transaction: the send's own connection may still be bound to this thread
+            requiresNew().executeWithoutResult(status -> jdbcTemplate.update(HAND_BACK_SQL, room.id(), seq));
+        } catch (RuntimeException ex) {
+            log.warn("Could not hand back sequence number {} of room {}", seq, room.id(), ex);
+        }
+    }
+
+    // Rooms with numbers in flight stay, so a stripe can briefly exceed its share
+    private void evict(Stripe stripe) {
+        Iterator<Counter> eldestFirst = stripe.counters.values().iterator();
+        int excess = stripe.counters.size() - stripeCapacity;
+        while (excess > 0 && eldestFirst.hasNext()) {
+            if (eldestFirst.next().inFlight == 0) {
+                eldestFirst.remove();
+                excess--;
+            }
+        }
+    }
+
+    private long maxSeq(Room room) {
+        long persisted = room.table() == MessageArchive.Table.MESSAGES
+                ? messageRepository.findMaxSeq(room.id())
+                : globalMessageRepository.findMaxSeq(room.id());
+        return Math.max(persisted, archivedMaxSeq(room));
+    }
+
+    // A room whose every message has been archived would otherwise start numbering again at 1
+    private long archivedMaxSeq(Room room) {
+        return messageArchive.readOlder(room.table(), room.id(), null, null, 1).stream()
+                .mapToLong(MessageArchive.ArchivedMessage::seq)
+                .findFirst()
+                .orElse(0);
+    }
+
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private Stripe stripeFor(Room room) {
+        return stripes[Math.floorMod(room.id().hashCode(), STRIPES)];
+    }
+}
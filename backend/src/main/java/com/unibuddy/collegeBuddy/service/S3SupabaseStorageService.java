@@ -2,27 +2,43 @@ package com.unibuddy.collegeBuddy.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.ContentStreamProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.DeletedObject;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
-import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3", matchIfMissing = true)
 @Slf4j
-public class S3SupabaseStorageService {
+public class S3SupabaseStorageService implements StorageBackend {
 
     @Value("${supabase.s3.endpoint}")
     private String s3Endpoint;
@@ -42,10 +58,29 @@ public class S3SupabaseStorageService {
     @Value("${supabase.project-id}")
     private String projectId;
 
-    private S3Client s3Client;
+    // Bounded so a slow storage provider fails calls instead of pinning request threads
+    @Value("${app.storage.s3.api-call-timeout-ms:10000}")
+    private long apiCallTimeoutMs;
+
+    @Value("${app.storage.s3.api-call-attempt-timeout-ms:4000}")
+    private long apiCallAttemptTimeoutMs;
+
+    @Value("${app.storage.s3.connection-timeout-ms:2000}")
+    private long connectionTimeoutMs;
+
+    @Value("${app.storage.s3.socket-timeout-ms:5000}")
+    private long socketTimeoutMs;
+
+    @Value("${app.storage.s3.max-connections:32}")
+    private int maxConnections;
 
-    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
-    private static final List<String> ALLOWED_TYPES = List.of("image/jpeg", "image/png", "image/jpg", "image/webp");
+    @Value("${app.storage.s3.connection-acquisition-timeout-ms:1000}")
+    private long connectionAcquisitionTimeoutMs;
+
+    @Value("${app.storage.s3.max-retries:1}")
+    private int maxRetries;
+
+    private S3Client s3Client;
 
     @PostConstruct
     public void initializeS3Client() {
@@ -56,9 +91,22 @@ public class S3SupabaseStorageService {
                 .endpointOverride(URI.create(s3Endpoint))
                 .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                 .forcePathStyle(true) // Required for S3-compatible services
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                        .socketTimeout(Duration.ofMillis(socketTimeoutMs))
+                        // Fail fast when every pooled connection is stuck on a slow upload
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMs))
+                        .tcpKeepAlive(true))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs))
+                        .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMs))
+                        .retryPolicy(RetryPolicy.builder().numRetries(maxRetries).build())
+                        .build())
                 .build();
         
-        log.info("S3 Supabase Storage Service initialized with endpoint: {}", s3Endpoint);
+        log.info("S3 Supabase Storage Service initialized with endpoint: {} (call timeout {} ms, {} connections)",
+                s3Endpoint, apiCallTimeoutMs, maxConnections);
     }
 
     @PreDestroy
@@ -68,74 +116,27 @@ public class S3SupabaseStorageService {
         }
     }
 
-    /**
-     * Store a single file in the chat folder
-     */
-    public String storeChatImage(MultipartFile file) {
-        return storeFile(file, "chats");
-    }
-
-    /**
-     * Store multiple files in the marketplace folder
-     */
-    public List<String> storeMarketplaceImages(List<MultipartFile> files) {
-        if (files == null || files.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        List<String> fileUrls = new ArrayList<>();
-        for (MultipartFile file : files) {
-            if (file.isEmpty()) continue;
-            String fileUrl = storeFile(file, "marketplace");
-            fileUrls.add(fileUrl);
-        }
-        return fileUrls;
-    }
-
-    /**
-     * Store a file in the specified folder
-     */
-    private String storeFile(MultipartFile file, String folder) {
-        validateFile(file);
-        
+    @Override
+    public String store(String key, MultipartFile file) {
         try {
-            // Generate unique filename with folder structure
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null && originalFilename.contains(".") 
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : "";
-            String filename = folder + "/" + UUID.randomUUID().toString() + extension;
-
-            // Create put object request
             PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                     .bucket(bucketName)
-                    .key(filename)
+                    .key(key)
                     .contentType(file.getContentType())
                     .contentLength(file.getSize())
                     .build();
 
-            // Upload file
-            PutObjectResponse response = s3Client.putObject(putObjectRequest, 
-                RequestBody.fromBytes(file.getBytes()));
+            // Stream the upload rather than buffering a second copy with getBytes(); a retry
+            // reopens the upload instead of resending a stream the failed attempt already read
+            PutObjectResponse response = s3Client.putObject(putObjectRequest,
+                RequestBody.fromContentProvider(new ReopeningStreamProvider(file), file.getSize(), file.getContentType()));
 
             if (response.sdkHttpResponse().isSuccessful()) {
-                // Return public URL - trying multiple formats to ensure compatibility
                 String publicUrl = String.format(
                     "https://%s.supabase.co/storage/v1/object/public/%s/%s",
-                    projectId, bucketName, filename
-                );
-                
-                // Alternative format that might work better
-                String alternativeUrl = String.format(
-                    "https://%s.storage.supabase.co/object/public/%s/%s",
-                    projectId, bucketName, filename
+                    projectId, bucketName, key
                 );
-                
-                log.info("Successfully uploaded file to S3 with filename: {}", filename);
-                log.info("Generated public URL: {}", publicUrl);
-                log.info("Alternative URL format: {}", alternativeUrl);
-                
-                // Return the standard format for now, but log both for debugging
+                log.info("Successfully uploaded file to S3 with key: {}", key);
                 return publicUrl;
             } else {
                 log.error("Failed to upload file to S3. Status: {}", 
@@ -143,7 +144,7 @@ public class S3SupabaseStorageService {
                 throw new RuntimeException("Failed to upload file to Supabase S3 storage");
             }
 
-        } catch (IOException ex) {
+        } catch (UncheckedIOException ex) {
             log.error("Failed to read file for S3 upload", ex);
             throw new RuntimeException("Failed to read file for upload", ex);
         } catch (Exception ex) {
@@ -152,14 +153,71 @@ public class S3SupabaseStorageService {
         }
     }
 
-    private void validateFile(MultipartFile file) {
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException("File size exceeds maximum allowed size of 5MB");
+    @Override
+    public void delete(String key) {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    @Override
+    public List<String> deleteAll(List<String> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
         }
-        
-        String contentType = file.getContentType();
-        if (contentType == null || !ALLOWED_TYPES.contains(contentType)) {
-            throw new IllegalArgumentException("Only image files (JPEG, PNG, WebP) are allowed");
+
+        // One DeleteObjects round trip per batch (S3 allows up to 1000 keys)
+        DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder()
+                        .objects(keys.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList())
+                        .quiet(false)
+                        .build())
+                .build());
+
+        response.errors().forEach(error ->
+                log.warn("Failed to delete S3 object {}: {} {}", error.key(), error.code(), error.message()));
+        return response.deleted().stream().map(DeletedObject::key).toList();
+    }
+
+    @Override
+    public void listObjects(int pageSize, Consumer<List<StoredObject>> pageConsumer) {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .maxKeys(pageSize)
+                .build();
+
+        // The paginator fetches the next page lazily, only once the previous one has been consumed
+        for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(request)) {
+            pageConsumer.accept(page.contents().stream()
+                    .map(object -> new StoredObject(object.key(), object.size(), object.lastModified()))
+                    .toList());
+        }
+    }
+
+    /**
+     * Opens a fresh stream over the upload for every attempt, closing the one before it
+     */
+    private static final class ReopeningStreamProvider implements ContentStreamProvider {
+        private final MultipartFile file;
+        private InputStream current;
+
+        private ReopeningStreamProvider(MultipartFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public InputStream newStream() {
+            try {
+                if (current != null) {
+                    current.close();
+                }
+                current = file.getInputStream();
+                return current;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
         }
     }
 }
@@ -0,0 +1,89 @@
+package com.unibuddy.collegeBuddy.service;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.util.MimeType;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * STOMP encoder that reuses the encoded MESSAGE frame across sessions. A frame is determined by
+ * its native headers and payload, so sessions receiving the same payload array (one broadcast,
+ * see {@link SharedPayloadBroadcaster}) under the same subscription id get one shared, never
+ * modified byte array. The frontend derives subscription ids from the destination, so every
+ * subscriber of a room shares a single frame per broadcast.
+ */
+public class SharedFrameStompEncoder extends StompEncoder {
+
+    private static final int RECENT_PAYLOADS = 16;
+    // Clients with generated subscription ids would never share; stop caching before they cost memory
+    private static final int MAX_FRAMES_PER_PAYLOAD = 64;
+
+    private record FrameKey(StompCommand command, Map<String, List<String>> nativeHeaders) {
+    }
+
+    // Keyed by array identity: one entry per broadcast still being written out
+    private final Map<byte[], Map<FrameKey, byte[]>> recent = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<byte[], Map<FrameKey, byte[]>> eldest) {
+            return size() > RECENT_PAYLOADS;
+        }
+    };
+
+    private final LongAdder encoded = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Map<String, Object> headers, byte[] payload) {
+        StompCommand command = StompHeaderAccessor.getCommand(headers);
+        if (command != StompCommand.MESSAGE || payload.length == 0) {
+            return super.encode(headers, payload);
+        }
+
+        Map<String, List<String>> nativeHeaders =
+                (Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        if (isCompact(nativeHeaders)) {
+            // Written for one session only, so never seen again
+            return super.encode(headers, payload);
+        }
+        FrameKey key = new FrameKey(command, nativeHeaders != null ? new HashMap<>(nativeHeaders) : Map.of());
+
+        Map<FrameKey, byte[]> frames;
+        synchronized (recent) {
+            frames = recent.computeIfAbsent(payload, bytes -> new ConcurrentHashMap<>());
+        }
+        byte[] frame = frames.get(key);
+        if (frame != null) {
+            reused.increment();
+            return frame;
+        }
+
+        frame = super.encode(headers, payload);
+        encoded.increment();
+        if (frames.size() < MAX_FRAMES_PER_PAYLOAD) {
+            frames.putIfAbsent(key, frame);
+        }
+        return frame;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("framesEncoded", encoded.sum());
+        metrics.put("framesReused", reused.sum());
+        return metrics;
+    }
+
+    private static boolean isCompact(Map<String, List<String>> nativeHeaders) {
+        List<String> contentType = nativeHeaders != null ? nativeHeaders.get(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER) : null;
+        return contentType != null && !contentType.isEmpty()
+                && CompactWireFormat.CONTENT_TYPE.equalsTypeAndSubtype(MimeType.valueOf(contentType.get(0)));
+    }
+}
@@ -0,0 +1,64 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.UUID;
+
+/**
+ * Sends chat broadcasts with the payload serialized to JSON exactly once and one message-id for
+ * every subscriber's copy. The broker hands the same byte array to every session, and their
+ * frames differ only by subscription id, which lets {@link SharedFrameStompEncoder} encode the
+ * frame once per subscription id instead of once per session.
+ */
+@Component
+@RequiredArgsConstructor
+public class SharedPayloadBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Send once the surrounding transaction commits, so neither local subscribers nor the cluster
+     * relay (whose receivers drop their cached view of the room) act on an uncommitted row
+     */
+    public void sendAfterCommit(String destination, Object payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(destination, payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(destination, payload);
+            }
+        });
+    }
+
+    public void send(String destination, Object payload) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException ex) {
+            throw new MessageConversionException("Failed to serialize broadcast to " + destination, ex);
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        // Otherwise each session's frame gets its own generated id and no two frames are alike
+        accessor.setNativeHeader(StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER, UUID.randomUUID().toString());
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(json, accessor.getMessageHeaders()));
+    }
+}
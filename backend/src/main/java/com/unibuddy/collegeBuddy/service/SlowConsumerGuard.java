@@ -0,0 +1,159 @@
+package com.unibuddy.collegeBuddy.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closes sessions whose client has stopped reading. Frames go to a session one at a time, since
+ * publish order is preserved, so a stalled client shows up as a write that does not finish
+ * while that session's frames queue up behind it. Spring's send limits never see that queue.
+ * A session with no write completed for {@code app.chat.channels.send-time-limit-ms} while
+ * frames are pending is closed and its remaining frames dropped. A stalled client can then
+ * hold at most one time limit's worth of its rooms' traffic.
+ * <p>
+ * Sessions are tracked from the WebSocket handler, whose session id is the STOMP session id.
+ */
+@Component
+@Slf4j
+public class SlowConsumerGuard implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    @Value("${app.chat.channels.send-time-limit-ms:10000}")
+    private long sendTimeLimitMs;
+
+    private final ConcurrentHashMap<String, Tracked> sessions = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder droppedFrames = new LongAdder();
+
+    private static final class Tracked {
+        private final WebSocketSession session;
+        private final AtomicInteger writing = new AtomicInteger();
+        // Start of the current write, or the end of the last one while more are in flight
+        private volatile long progressNanos;
+        private volatile boolean evicted;
+
+        private Tracked(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    @Override
+    @NonNull
+    public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), new Tracked(session));
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, status);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        Tracked tracked = tracked(message);
+        if (tracked == null) {
+            return message;
+        }
+        if (!tracked.evicted && isStalled(tracked, System.nanoTime())) {
+            evict(tracked);
+        }
+        if (tracked.evicted) {
+            droppedFrames.increment();
+            return null;
+        }
+        return message;
+    }
+
+    @Override
+    public Message<?> beforeHandle(@NonNull Message<?> message, @NonNull MessageChannel channel, @NonNull MessageHandler handler) {
+        Tracked tracked = tracked(message);
+        if (tracked != null && tracked.writing.getAndIncrement() == 0) {
+            tracked.progressNanos = System.nanoTime();
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(@NonNull Message<?> message, @NonNull MessageChannel channel,
+                                    @NonNull MessageHandler handler, Exception ex) {
+        Tracked tracked = tracked(message);
+        if (tracked != null) {
+            tracked.progressNanos = System.nanoTime();
+            tracked.writing.decrementAndGet();
+        }
+    }
+
+    // A client that stalls and then receives nothing more is only caught here
+    @Scheduled(fixedDelayString = "${app.chat.channels.sweep-ms:1000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Tracked tracked : sessions.values()) {
+            if (!tracked.evicted && isStalled(tracked, now)) {
+                evict(tracked);
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("sessions", sessions.size());
+        metrics.put("evictions", evictions.sum());
+        metrics.put("droppedFrames", droppedFrames.sum());
+        metrics.put("sendTimeLimitMs", sendTimeLimitMs);
+        return metrics;
+    }
+
+    private Tracked tracked(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? sessions.get(sessionId) : null;
+    }
+
+    private boolean isStalled(Tracked tracked, long now) {
+        return tracked.writing.get() > 0 && now - tracked.progressNanos > sendTimeLimitMs * 1_000_000;
+    }
+
+    private void evict(Tracked tracked) {
+        synchronized (tracked) {
+            if (tracked.evicted) {
+                return;
+            }
+            tracked.evicted = true;
+        }
+        evictions.increment();
+        log.info("Closing session {}: no frame delivered for over {} ms", tracked.session.getId(), sendTimeLimitMs);
+        // The close frame queues behind the stuck write, so it must not hold up the caller
+        Thread.ofVirtual().start(() -> {
+            try {
+                tracked.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ex) {
+                log.debug("Failed to close stalled session {}: {}", tracked.session.getId(), ex.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.unibuddy.collegeBuddy.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executors for the STOMP client channels. Messages run on virtual threads, so a handler waiting
+ * on the database or a write waiting on a slow socket parks instead of holding one of a few
+ * platform threads. A concurrency cap with a bounded queue in front of it admits bursts without
+ * letting them pile up: when the queue is full the submitting thread runs the message itself,
+ * which for inbound frames is the connection's reader, so that socket is not read until it
+ * catches up.
+ * <p>
+ * The channel configuration hands these to Spring, which initializes and shuts them down.
+ */
+@Component
+public class StompChannelExecutors {
+
+    @Value("${app.chat.channels.inbound-concurrency:256}")
+    private int inboundConcurrency;
+
+    @Value("${app.chat.channels.inbound-queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.chat.channels.outbound-concurrency:1024}")
+    private int outboundConcurrency;
+
+    @Value("${app.chat.channels.outbound-queue-capacity:50000}")
+    private int outboundQueueCapacity;
+
+    private ThreadPoolTaskExecutor inbound;
+    private ThreadPoolTaskExecutor outbound;
+    private final LongAdder inboundCallerRuns = new LongAdder();
+    private final LongAdder outboundCallerRuns = new LongAdder();
+
+    @PostConstruct
+    public void create() {
+        inbound = executor(inboundConcurrency, inboundQueueCapacity, inboundCallerRuns);
+        outbound = executor(outboundConcurrency, outboundQueueCapacity, outboundCallerRuns);
+    }
+
+    public ThreadPoolTaskExecutor inbound() {
+        return inbound;
+    }
+
+    public ThreadPoolTaskExecutor outbound() {
+        return outbound;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("inbound", metrics(inbound, inboundQueueCapacity, inboundCallerRuns));
+        metrics.put("outbound", metrics(outbound, outboundQueueCapacity, outboundCallerRuns));
+        return metrics;
+    }
+
+    private static ThreadPoolTaskExecutor executor(int concurrency, int queueCapacity, LongAdder callerRuns) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setVirtualThreads(true);
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            callerRuns.increment();
+            if (!pool.isShutdown()) {
+                task.run();
+            }
+        });
+        return executor;
+    }
+
+    private static Map<String, Object> metrics(ThreadPoolTaskExecutor executor, int queueCapacity, LongAdder callerRuns) {
+        Map<String, Object> metrics = new HashMap<>();
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        metrics.put("active", pool.getActiveCount());
+        metrics.put("queued", pool.getQueue().size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("completed", pool.getCompletedTaskCount());
+        metrics.put("callerRuns", callerRuns.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,56 @@
+package com.unibuddy.collegeBuddy.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Object storage for uploaded images. Keys look like {@code chats/<uuid>.png}.
+ * The implementation is picked with {@code app.storage.backend} ({@code s3} or {@code local}).
+ */
+public interface StorageBackend {
+
+    /**
+     * Store the file under the given key and return its public URL
+     */
+    String store(String key, MultipartFile file) throws IOException;
+
+    /**
+     * Delete the object stored under the given key, if it exists
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Delete a batch of objects and return the keys that were actually removed
+     */
+    default List<String> deleteAll(List<String> keys) throws IOException {
+        List<String> deleted = new ArrayList<>();
+        for (String key : keys) {
+            delete(key);
+            deleted.add(key);
+        }
+        return deleted;
+    }
+
+    /**
+     * Walk every stored object, handing them to the consumer one page at a time
+     * so callers never hold the full listing in memory
+     */
+    void listObjects(int pageSize, Consumer<List<StoredObject>> pageConsumer) throws IOException;
+
+    /**
+     * Resolve a key to a readable file on local disk, for backends that keep one
+     */
+    default Optional<Path> findLocalFile(String key) {
+        return Optional.empty();
+    }
+
+    record StoredObject(String key, long size, Instant lastModified) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.exception.StorageUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Guards object storage calls. After {@code failure-threshold} consecutive failures the circuit
+ * opens and image uploads are rejected immediately for {@code open-duration-ms}, so a slow
+ * storage provider cannot tie up request threads; text-only messages never touch storage and
+ * keep flowing. One trial call is let through afterwards and closes the circuit if it succeeds.
+ */
+@Component
+@Slf4j
+public class StorageCircuitBreaker {
+
+    @Value("${app.storage.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.storage.circuit.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final LongAdder circuitOpened = new LongAdder();
+    private final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private volatile long openedAtNanos;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @FunctionalInterface
+    public interface StorageCall<T> {
+        T call() throws IOException;
+    }
+
+    public <T> T call(String operation, StorageCall<T> storageCall) throws IOException {
+        OperationStats stats = operations.computeIfAbsent(operation, name -> new OperationStats());
+        if (!tryAcquirePermission()) {
+            stats.rejected.increment();
+            throw new StorageUnavailableException("Image uploads are temporarily unavailable, please try again shortly");
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            T result = storageCall.call();
+            stats.record(System.nanoTime() - startedAt, false);
+            onSuccess();
+            return result;
+        } catch (IOException | RuntimeException ex) {
+            stats.record(System.nanoTime() - startedAt, true);
+            onFailure(operation);
+            throw ex;
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("state", state.get());
+        metrics.put("circuitOpened", circuitOpened.sum());
+
+        Map<String, Object> operationMetrics = new HashMap<>();
+        operations.forEach((operation, stats) -> operationMetrics.put(operation, stats.snapshot()));
+        metrics.put("operations", operationMetrics);
+        return metrics;
+    }
+
+    private boolean tryAcquirePermission() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        // Exactly one caller wins the transition and becomes the trial call
+        return current == State.OPEN
+                && System.nanoTime() - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(openDurationMs)
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("Storage circuit closed");
+        }
+    }
+
+    private void onFailure(String operation) {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAtNanos = System.nanoTime();
+            if (state.getAndSet(State.OPEN) != State.OPEN) {
+                circuitOpened.increment();
+                log.warn("Storage circuit opened after a failed {} call; rejecting uploads for {} ms",
+                        operation, openDurationMs);
+            }
+        }
+    }
+
+    private static class OperationStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+        void record(long elapsedNanos, boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+        }
+
+        Map<String, Object> snapshot() {
+            long callCount = calls.sum();
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("calls", callCount);
+            snapshot.put("errors", errors.sum());
+            snapshot.put("rejected", rejected.sum());
+            snapshot.put("avgLatencyMs", callCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / callCount));
+            snapshot.put("maxLatencyMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            return snapshot;
+        }
+    }
+}
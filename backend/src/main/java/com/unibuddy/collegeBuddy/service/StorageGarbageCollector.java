@@ -0,0 +1,270 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.repository.GlobalMessageRepository;
+import com.unibuddy.collegeBuddy.repository.ListingRepository;
+import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Mark-and-sweep collector for uploaded images that nothing references any more: uploads whose
+ * listing or message insert failed, and images of deleted listings.
+ * <p>
+ * Mark streams every image URL out of {@code listings.images}, {@code messages.image_url} and
+ * {@code global_messages.image_url}, then out of the {@link MessageArchive}, into a compact set of
+ * object ids. Sweep pages through the bucket and deletes unreferenced objects older than the grace
+ * period in rate-limited batches.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.gc.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class StorageGarbageCollector {
+
+    // Every stored key and public URL ends in <uuid>.<ext>, whichever backend wrote it
+    private static final Pattern OBJECT_ID = Pattern.compile(
+            "([0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12})\\.[A-Za-z0-9]+$");
+
+    private final StorageBackend storageBackend;
+    private final ListingRepository listingRepository;
+    private final MessageRepository messageRepository;
+    private final GlobalMessageRepository globalMessageRepository;
+    private final MessageArchive messageArchive;
+    private final PlatformTransactionManager transactionManager;
+
+    // Covers the gap between an upload finishing and its row being committed
+    @Value("${app.storage.gc.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    @Value("${app.storage.gc.page-size:1000}")
+    private int pageSize;
+
+    @Value("${app.storage.gc.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.storage.gc.batch-interval-ms:1000}")
+    private long batchIntervalMs;
+
+    @Value("${app.storage.gc.dry-run:false}")
+    private boolean dryRun;
+
+    @Scheduled(cron = "${app.storage.gc.cron:0 30 3 * * *}")
+    public void scheduledCollect() {
+        try {
+            collect();
+        } catch (Exception ex) {
+            log.error("Storage garbage collection failed", ex);
+        }
+    }
+
+    public Report collect() throws IOException {
+        Instant startedAt = Instant.now();
+        Instant cutoff = startedAt.minus(Duration.ofHours(gracePeriodHours));
+
+        UuidSet referenced = markReferencedObjects();
+        Report report = new Report();
+        report.setReferenced(referenced.size());
+
+        List<StorageBackend.StoredObject> batch = new ArrayList<>(batchSize);
+        storageBackend.listObjects(pageSize, page -> {
+            for (StorageBackend.StoredObject object : page) {
+                report.scanned++;
+                if (!object.lastModified().isBefore(cutoff)) {
+                    continue;
+                }
+
+                // Keys we cannot parse were not written by FileStorageService; never touch them
+                Optional<UUID> objectId = parseObjectId(object.key());
+                if (objectId.isEmpty() || referenced.contains(objectId.get())) {
+                    continue;
+                }
+
+                batch.add(object);
+                if (batch.size() >= batchSize) {
+                    sweep(batch, report);
+                    batch.clear();
+                }
+            }
+        });
+        if (!batch.isEmpty()) {
+            sweep(batch, report);
+        }
+
+        report.setDuration(Duration.between(startedAt, Instant.now()));
+        log.info("Storage GC {}: scanned {} objects, {} referenced, deleted {} ({} bytes reclaimed) in {} ms",
+                dryRun ? "dry run" : "finished", report.getScanned(), report.getReferenced(),
+                report.getDeleted(), report.getReclaimedBytes(), report.getDuration().toMillis());
+        return report;
+    }
+
+    private UuidSet markReferencedObjects() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        UuidSet referenced = readOnly.execute(status -> {
+            UuidSet marked = new UuidSet();
+            try (Stream<String> listingImages = listingRepository.streamImageUrls();
+                 Stream<String> messageImages = messageRepository.streamImageUrls();
+                 Stream<String> globalMessageImages = globalMessageRepository.streamImageUrls()) {
+                Stream.of(listingImages, messageImages, globalMessageImages)
+                        .flatMap(Function.identity())
+                        .map(StorageGarbageCollector::parseObjectId)
+                        .forEach(objectId -> objectId.ifPresent(marked::add));
+            }
+            return marked;
+        });
+
+        // After the tables: a month archived meanwhile was either still in them or is in the archive by now
+        messageArchive.forEachImageUrl(imageUrl -> parseObjectId(imageUrl).ifPresent(referenced::add));
+        return referenced;
+    }
+
+    private void sweep(List<StorageBackend.StoredObject> batch, Report report) {
+        if (report.getBatches() > 0) {
+            pause();
+        }
+        report.batches++;
+
+        Map<String, Long> sizes = batch.stream()
+                .collect(Collectors.toMap(StorageBackend.StoredObject::key, StorageBackend.StoredObject::size));
+        if (dryRun) {
+            report.deleted += sizes.size();
+            report.reclaimedBytes += sizes.values().stream().mapToLong(Long::longValue).sum();
+            return;
+        }
+
+        try {
+            for (String key : storageBackend.deleteAll(List.copyOf(sizes.keySet()))) {
+                report.deleted++;
+                report.reclaimedBytes += sizes.getOrDefault(key, 0L);
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to delete a batch of {} orphaned objects", sizes.size(), ex);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(batchIntervalMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Storage garbage collection interrupted", ex);
+        }
+    }
+
+    private static Optional<UUID> parseObjectId(String keyOrUrl) {
+        Matcher matcher = OBJECT_ID.matcher(keyOrUrl);
+        return matcher.find() ? Optional.of(UUID.fromString(matcher.group(1))) : Optional.empty();
+    }
+
+    @Data
+    public static class Report {
+        private long scanned;
+        private long referenced;
+        private long batches;
+        private long deleted;
+        private long reclaimedBytes;
+        private Duration duration;
+    }
+
+    /**
+     * Open-addressing hash set of UUIDs stored as raw long pairs: 16 bytes per slot instead
+     * of a boxed UUID plus a HashMap node per entry.
+     */
+    static final class UuidSet {
+        private long[] slots = new long[2 * 1024];
+        private int size;
+        private boolean containsZero;
+
+        void add(UUID id) {
+            long high = id.getMostSignificantBits();
+            long low = id.getLeastSignificantBits();
+            if (high == 0 && low == 0) {
+                if (!containsZero) {
+                    containsZero = true;
+                    size++;
+                }
+                return;
+            }
+            if (insert(slots, high, low)) {
+                size++;
+                if (size * 4 > slots.length) {
+                    resize();
+                }
+            }
+        }
+
+        boolean contains(UUID id) {
+            long high = id.getMostSignificantBits();
+            long low = id.getLeastSignificantBits();
+            if (high == 0 && low == 0) {
+                return containsZero;
+            }
+            int mask = slots.length / 2 - 1;
+            for (int i = index(high, low, mask); ; i = (i + 1) & mask) {
+                long slotHigh = slots[2 * i];
+                long slotLow = slots[2 * i + 1];
+                if (slotHigh == 0 && slotLow == 0) {
+                    return false;
+                }
+                if (slotHigh == high && slotLow == low) {
+                    return true;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void resize() {
+            long[] grown = new long[slots.length * 2];
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] != 0 || slots[i + 1] != 0) {
+                    insert(grown, slots[i], slots[i + 1]);
+                }
+            }
+            slots = grown;
+        }
+
+        private static boolean insert(long[] table, long high, long low) {
+            int mask = table.length / 2 - 1;
+            for (int i = index(high, low, mask); ; i = (i + 1) & mask) {
+                if (table[2 * i] == 0 && table[2 * i + 1] == 0) {
+                    table[2 * i] = high;
+                    table[2 * i + 1] = low;
+                    return true;
+                }
+                if (table[2 * i] == high && table[2 * i + 1] == low) {
+                    return false;
+                }
+            }
+        }
+
+        private static int index(long high, long low, int mask) {
+            long hash = (high ^ low) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,569 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.dto.conversation.ConversationReadState;
+import com.unibuddy.collegeBuddy.entity.Message;
+import com.unibuddy.collegeBuddy.repository.ConversationRepository;
+import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Unread counts and read pointers for both participants of every conversation seen since
+ * startup, held in a lock-striped table and written back to {@code conversations} in JDBC
+ * batches once per flush interval. Marking a conversation read only touches memory.
+ * <p>
+ * Flushes only ever apply changes, never absolute counts, so several nodes can flush the same
+ * conversation: each adds the messages it counted, and a read moves the pointer forward only,
+ * subtracting the messages between the stored pointer and the new one. A count can dip below
+ * zero until another node's additions arrive, so readers of the column clamp it.
+ * <p>
+ * A conversation's state is loaded on first use by recomputing the counts from the persisted
+ * read pointers, so a restart picks up exactly where the last flush left off, and messages
+ * sent after that flush are counted again from the messages table. The same reload makes it safe
+ * to drop a conversation's state once it is flushed: each stripe keeps its most recently used
+ * states up to its share of {@code app.chat.unread.max-conversations}, and the flush evicts the
+ * idle ones beyond that.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadCounterService {
+
+    // Placeholder for "exclude nothing"; the load query always binds a non-null id
+    private static final UUID NO_MESSAGE = new UUID(0, 0);
+
+    private static final String INCREMENT_SQL = """
+        UPDATE conversations
+        SET buyer_unread_count = buyer_unread_count + ?, seller_unread_count = seller_unread_count + ?
+        WHERE id = ?
+        """;
+
+    private static final String BUYER_READ_SQL = readSql("buyer");
+    private static final String SELLER_READ_SQL = readSql("seller");
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.chat.unread.stripes:64}")
+    private int stripeCount;
+
+    @Value("${app.chat.unread.max-conversations:100000}")
+    private int maxConversations;
+
+    @Value("${app.chat.unread.max-users:20000}")
+    private int maxUsers;
+
+    private Stripe[] stripes;
+    private int stripeCapacity;
+
+    // Users whose full conversation list has been loaded, for answering totals from memory.
+    // Access-ordered, so the users who asked longest ago are dropped first.
+    private final Map<UUID, Set<UUID>> conversationsByUser = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Set<UUID>> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    @PostConstruct
+    public void initialize() {
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeCapacity = maxConversations / stripeCount;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Count a newly saved message as unread for the other participant once the sending transaction
+     * commits, so a rolled-back send is never counted. The state is loaded now, without the message,
+     * and pinned until the transaction ends: a load after the commit would count it a second time.
+     */
+    public void onMessageAfterCommit(UUID conversationId, Message message) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onMessage(conversationId, message);
+            return;
+        }
+
+        UUID messageId = message.getId();
+        UUID senderId = message.getSender().getId();
+        LocalDateTime createdAt = message.getCreatedAt();
+        ReadState state = pin(conversationId, messageId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unpin(state, status == STATUS_COMMITTED, messageId, senderId, createdAt);
+            }
+        });
+    }
+
+    /**
+     * Count a write-behind message once its batch has committed, pinned like
+     * {@link #onMessageAfterCommit} until then. Call before the message is queued.
+     */
+    public void onMessageWhenPersisted(UUID conversationId, UUID messageId, UUID senderId, LocalDateTime createdAt,
+                                       CompletableFuture<Void> persisted) {
+        ReadState state = pin(conversationId, messageId);
+        persisted.whenComplete((saved, failure) -> unpin(state, failure == null, messageId, senderId, createdAt));
+    }
+
+    /**
+     * Count a message that is already durable, or that a concurrent load cannot see yet
+     */
+    public void onMessage(UUID conversationId, Message message) {
+        onMessage(conversationId, message.getId(), message.getSender().getId(), message.getCreatedAt());
+    }
+
+    public void onMessage(UUID conversationId, UUID messageId, UUID senderId, LocalDateTime createdAt) {
+        Stripe stripe = stripeFor(conversationId);
+        ReadState state = lockState(conversationId, messageId, stripe);
+        try {
+            state.count(messageId, senderId, createdAt);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        registerForUser(state.buyerId, conversationId);
+        registerForUser(state.sellerId, conversationId);
+    }
+
+    /**
+     * Move the reader's pointer to {@code messageId}. Returns false when the pointer is already
+     * at or past that message, so stale receipts from a lagging client are ignored.
+     */
+    public boolean markRead(UUID conversationId, UUID readerId, UUID messageId) {
+        Stripe stripe = stripeFor(conversationId);
+        LocalDateTime readUpTo = null;
+        ReadState state = lockState(conversationId, NO_MESSAGE, stripe);
+        try {
+            if (!state.involves(readerId)) {
+                throw new RuntimeException("Conversation not found or access denied");
+            }
+            if (messageId.equals(state.lastMessageId)) {
+                readUpTo = state.lastMessageAt;
+                if (state.advance(readerId, messageId, readUpTo, 0)) {
+                    state.dirty = true;
+                    return true;
+                }
+                return false;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        // Reading up to an older message: count what is left with a read-only query
+        Message message = messageRepository.findById(messageId)
+                .filter(found -> found.getConversation().getId().equals(conversationId))
+                .orElseThrow(() -> new RuntimeException("Message not found"));
+        readUpTo = message.getCreatedAt();
+        int remaining = (int) messageRepository.countByConversationIdAndSenderIdNotAndCreatedAtAfter(
+                conversationId, readerId, readUpTo);
+
+        // Evicted meanwhile if it was flushed and idle; the reload starts from the flushed pointers
+        state = lockState(conversationId, NO_MESSAGE, stripe);
+        try {
+            if (state.advance(readerId, messageId, readUpTo, remaining)) {
+                state.dirty = true;
+                return true;
+            }
+            return false;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Unread count per conversation for the user, omitting conversations with nothing unread.
+     * The first call for a user loads all of their conversations in one query.
+     */
+    public Map<UUID, Integer> getUnreadCounts(UUID userId) {
+        Set<UUID> conversationIds;
+        synchronized (conversationsByUser) {
+            conversationIds = conversationsByUser.get(userId);
+        }
+        if (conversationIds == null) {
+            conversationIds = loadUser(userId);
+        }
+
+        Map<UUID, Integer> counts = new HashMap<>();
+        boolean evicted = false;
+        for (UUID conversationId : conversationIds) {
+            OptionalInt count = peekUnreadCount(conversationId, userId);
+            evicted |= count.isEmpty();
+            if (count.orElse(0) > 0) {
+                counts.put(conversationId, count.getAsInt());
+            }
+        }
+        // Some of the user's conversations were evicted since: reload them all in the one query
+        return evicted ? countsAfterReload(userId) : counts;
+    }
+
+    /**
+     * The in-memory count if the conversation is loaded; callers fall back to the flushed column
+     */
+    public OptionalInt peekUnreadCount(UUID conversationId, UUID userId) {
+        Stripe stripe = stripeFor(conversationId);
+        stripe.lock.lock();
+        try {
+            ReadState state = stripe.states.get(conversationId);
+            if (state == null || !state.involves(userId)) {
+                return OptionalInt.empty();
+            }
+            return OptionalInt.of(userId.equals(state.buyerId) ? state.buyerUnread : state.sellerUnread);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.unread.flush-interval-ms:2000}")
+    public void flush() {
+        if (stripes == null) {
+            return;
+        }
+        write();
+        evictIdle();
+    }
+
+    private void write() {
+        List<Flushed> flushed = new ArrayList<>();
+        List<Object[]> increments = new ArrayList<>();
+        List<Object[]> buyerReads = new ArrayList<>();
+        List<Object[]> sellerReads = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (ReadState state : stripe.states.values()) {
+                    if (!state.dirty) {
+                        continue;
+                    }
+                    Flushed taken = new Flushed(state.conversationId, state.buyerPending, state.sellerPending,
+                            state.buyerReadPending, state.sellerReadPending);
+                    flushed.add(taken);
+                    if (taken.buyerPending() != 0 || taken.sellerPending() != 0) {
+                        increments.add(new Object[] {taken.buyerPending(), taken.sellerPending(), state.conversationId});
+                    }
+                    if (taken.buyerRead()) {
+                        buyerReads.add(readRow(state.buyerLastReadAt, state.buyerLastReadMessageId, state.conversationId));
+                    }
+                    if (taken.sellerRead()) {
+                        sellerReads.add(readRow(state.sellerLastReadAt, state.sellerLastReadMessageId, state.conversationId));
+                    }
+                    state.buyerPending = 0;
+                    state.sellerPending = 0;
+                    state.buyerReadPending = false;
+                    state.sellerReadPending = false;
+                    state.dirty = false;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (flushed.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Additions first, so this node's own reads never take a count below zero
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                if (!increments.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INCREMENT_SQL, increments);
+                }
+                if (!buyerReads.isEmpty()) {
+                    jdbcTemplate.batchUpdate(BUYER_READ_SQL, buyerReads);
+                }
+                if (!sellerReads.isEmpty()) {
+                    jdbcTemplate.batchUpdate(SELLER_READ_SQL, sellerReads);
+                }
+            });
+            log.debug("Flushed read state for {} conversations", flushed.size());
+        } catch (RuntimeException ex) {
+            // Nothing was applied: put the changes back for the next run, on top of any made since
+            log.warn("Failed to flush read state for {} conversations", flushed.size(), ex);
+            for (Flushed taken : flushed) {
+                Stripe stripe = stripeFor(taken.conversationId());
+                stripe.lock.lock();
+                try {
+                    ReadState state = stripe.states.get(taken.conversationId());
+                    if (state != null) {
+                        state.buyerPending += taken.buyerPending();
+                        state.sellerPending += taken.sellerPending();
+                        state.buyerReadPending |= taken.buyerRead();
+                        state.sellerReadPending |= taken.sellerRead();
+                        state.dirty = true;
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Only moves the pointer forward, taking off the messages from the other side it passes
+    private static String readSql(String side) {
+        return """
+            UPDATE conversations c
+            SET %1$s_unread_count = c.%1$s_unread_count - (
+                    SELECT COUNT(*) FROM messages m
+                    WHERE m.conversation_id = c.id AND m.sender_id <> c.%1$s_id AND m.created_at <= ?
+                      AND (c.%1$s_last_read_at IS NULL OR m.created_at > c.%1$s_last_read_at)),
+                %1$s_last_read_message_id = ?,
+                %1$s_last_read_at = ?
+            WHERE c.id = ?
+              AND (c.%1$s_last_read_at IS NULL OR c.%1$s_last_read_at < ?)
+            """.formatted(side);
+    }
+
+    private static Object[] readRow(LocalDateTime readUpTo, UUID messageId, UUID conversationId) {
+        return new Object[] {readUpTo, messageId, readUpTo, conversationId, readUpTo};
+    }
+
+    private ReadState pin(UUID conversationId, UUID messageId) {
+        Stripe stripe = stripeFor(conversationId);
+        ReadState state = lockState(conversationId, messageId, stripe);
+        try {
+            state.pins++;
+            return state;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void unpin(ReadState state, boolean persisted, UUID messageId, UUID senderId, LocalDateTime createdAt) {
+        Stripe stripe = stripeFor(state.conversationId);
+        stripe.lock.lock();
+        try {
+            state.pins--;
+            if (persisted) {
+                state.count(messageId, senderId, createdAt);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (persisted) {
+            registerForUser(state.buyerId, state.conversationId);
+            registerForUser(state.sellerId, state.conversationId);
+        }
+    }
+
+    // Drops flushed states beyond each stripe's capacity, least recently used first
+    private void evictIdle() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                Iterator<ReadState> eldestFirst = stripe.states.values().iterator();
+                int excess = stripe.states.size() - stripeCapacity;
+                while (excess > 0 && eldestFirst.hasNext()) {
+                    ReadState state = eldestFirst.next();
+                    if (!state.dirty && state.pins == 0) {
+                        eldestFirst.remove();
+                        excess--;
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The conversation's state with its stripe locked. Eviction can drop the state between the
+     * load and the lock, so the installed state is looked up again under the lock.
+     */
+    private ReadState lockState(UUID conversationId, UUID excludeMessageId, Stripe stripe) {
+        while (true) {
+            ReadState state = stateFor(conversationId, excludeMessageId)
+                    .orElseThrow(() -> new RuntimeException("Conversation not found"));
+            stripe.lock.lock();
+            if (stripe.states.get(conversationId) == state) {
+                return state;
+            }
+            stripe.lock.unlock();
+        }
+    }
+
+    private Optional<ReadState> stateFor(UUID conversationId, UUID excludeMessageId) {
+        Stripe stripe = stripeFor(conversationId);
+        stripe.lock.lock();
+        try {
+            ReadState state = stripe.states.get(conversationId);
+            if (state != null) {
+                return Optional.of(state);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        // Loaded outside the lock; if another thread got there first its state wins
+        return conversationRepository.findReadState(conversationId, excludeMessageId)
+                .map(this::install);
+    }
+
+    private Map<UUID, Integer> countsAfterReload(UUID userId) {
+        Map<UUID, Integer> counts = new HashMap<>();
+        for (UUID conversationId : loadUser(userId)) {
+            peekUnreadCount(conversationId, userId).ifPresent(count -> {
+                if (count > 0) {
+                    counts.put(conversationId, count);
+                }
+            });
+        }
+        return counts;
+    }
+
+    private Set<UUID> loadUser(UUID userId) {
+        // Published before the query, so conversations started meanwhile register themselves via onMessage
+        Set<UUID> conversationIds;
+        synchronized (conversationsByUser) {
+            conversationIds = conversationsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet());
+        }
+        for (ConversationReadState row : conversationRepository.findReadStatesByUserId(userId, NO_MESSAGE)) {
+            install(row);
+            conversationIds.add(row.getConversationId());
+        }
+        return conversationIds;
+    }
+
+    private ReadState install(ConversationReadState row) {
+        ReadState loaded = new ReadState(row);
+        Stripe stripe = stripeFor(row.getConversationId());
+        stripe.lock.lock();
+        try {
+            ReadState existing = stripe.states.putIfAbsent(row.getConversationId(), loaded);
+            return existing != null ? existing : loaded;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void registerForUser(UUID userId, UUID conversationId) {
+        Set<UUID> conversationIds;
+        synchronized (conversationsByUser) {
+            conversationIds = conversationsByUser.get(userId);
+        }
+        if (conversationIds != null) {
+            conversationIds.add(conversationId);
+        }
+    }
+
+    private Stripe stripeFor(UUID conversationId) {
+        return stripes[Math.floorMod(conversationId.hashCode(), stripes.length)];
+    }
+
+    private record Flushed(UUID conversationId, int buyerPending, int sellerPending, boolean buyerRead,
+                           boolean sellerRead) {
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Access-ordered, so eviction finds the least recently used states first
+        private final Map<UUID, ReadState> states = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Mutable per-conversation state, only touched while holding its stripe's lock
+     */
+    private static final class ReadState {
+        private final UUID conversationId;
+        private final UUID buyerId;
+        private final UUID sellerId;
+        private int buyerUnread;
+        private int sellerUnread;
+        private UUID buyerLastReadMessageId;
+        private UUID sellerLastReadMessageId;
+        private LocalDateTime buyerLastReadAt;
+        private LocalDateTime sellerLastReadAt;
+        private UUID lastMessageId;
+        private LocalDateTime lastMessageAt;
+        // Counted or read since the last flush
+        private int buyerPending;
+        private int sellerPending;
+        private boolean buyerReadPending;
+        private boolean sellerReadPending;
+        private boolean dirty;
+        // Sends whose transaction is still open; a pinned state is never evicted
+        private int pins;
+
+        ReadState(ConversationReadState row) {
+            conversationId = row.getConversationId();
+            buyerId = row.getBuyerId();
+            sellerId = row.getSellerId();
+            buyerUnread = row.getBuyerUnreadCount().intValue();
+            sellerUnread = row.getSellerUnreadCount().intValue();
+            buyerLastReadMessageId = row.getBuyerLastReadMessageId();
+            sellerLastReadMessageId = row.getSellerLastReadMessageId();
+            buyerLastReadAt = row.getBuyerLastReadAt();
+            sellerLastReadAt = row.getSellerLastReadAt();
+            lastMessageId = row.getLastMessageId();
+            lastMessageAt = row.getLastMessageAt();
+        }
+
+        void count(UUID messageId, UUID senderId, LocalDateTime createdAt) {
+            if (senderId.equals(buyerId)) {
+                sellerUnread++;
+                sellerPending++;
+            } else {
+                buyerUnread++;
+                buyerPending++;
+            }
+            lastMessageId = messageId;
+            lastMessageAt = createdAt;
+            dirty = true;
+        }
+
+        boolean involves(UUID userId) {
+            return userId.equals(buyerId) || userId.equals(sellerId);
+        }
+
+        boolean advance(UUID readerId, UUID messageId, LocalDateTime readUpTo, int remaining) {
+            boolean buyer = readerId.equals(buyerId);
+            LocalDateTime current = buyer ? buyerLastReadAt : sellerLastReadAt;
+            if (current != null && !readUpTo.isAfter(current)) {
+                return false;
+            }
+            if (buyer) {
+                buyerLastReadMessageId = messageId;
+                buyerLastReadAt = readUpTo;
+                buyerUnread = remaining;
+                buyerReadPending = true;
+            } else {
+                sellerLastReadMessageId = messageId;
+                sellerLastReadAt = readUpTo;
+                sellerUnread = remaining;
+                sellerReadPending = true;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.unibuddy.collegeBuddy.service;
+
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts sessions by transport, native WebSocket or SockJS, and how many of them negotiated
+ * permessage-deflate, so the share of clients still falling back to SockJS is visible.
+ */
+@Component
+public class WebSocketTransportMetrics implements WebSocketHandlerDecoratorFactory {
+
+    private static final String DEFLATE = "permessage-deflate";
+
+    private final AtomicInteger nativeSessions = new AtomicInteger();
+    private final AtomicInteger sockJsSessions = new AtomicInteger();
+    private final AtomicInteger deflateSessions = new AtomicInteger();
+    private final LongAdder nativeConnections = new LongAdder();
+    private final LongAdder sockJsConnections = new LongAdder();
+
+    @Override
+    @NonNull
+    public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                if (session instanceof SockJsSession) {
+                    sockJsConnections.increment();
+                    sockJsSessions.incrementAndGet();
+                } else {
+                    nativeConnections.increment();
+                    nativeSessions.incrementAndGet();
+                }
+                if (isDeflated(session)) {
+                    deflateSessions.incrementAndGet();
+                }
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) throws Exception {
+                (session instanceof SockJsSession ? sockJsSessions : nativeSessions).decrementAndGet();
+                if (isDeflated(session)) {
+                    deflateSessions.decrementAndGet();
+                }
+                super.afterConnectionClosed(session, status);
+            }
+        };
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("nativeSessions", nativeSessions.get());
+        metrics.put("sockJsSessions", sockJsSessions.get());
+        metrics.put("deflateSessions", deflateSessions.get());
+        metrics.put("nativeConnections", nativeConnections.sum());
+        metrics.put("sockJsConnections", sockJsConnections.sum());
+        return metrics;
+    }
+
+    // SockJS sessions over HTTP streaming or polling have no extensions
+    private static boolean isDeflated(WebSocketSession session) {
+        return session.getExtensions().stream().anyMatch(extension -> DEFLATE.equals(extension.getName()));
+    }
+}
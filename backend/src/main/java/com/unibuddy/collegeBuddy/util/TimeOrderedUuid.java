@@ -0,0 +1,29 @@
+package com.unibuddy.collegeBuddy.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUIDv7-style ids: a 48-bit millisecond timestamp and a 12-bit per-process sequence up front,
+ * random bits after. Ids minted here sort by creation time, so they can be assigned before a
+ * row is written and still match the (created_at, id) order of the history indexes.
+ */
+public final class TimeOrderedUuid {
+
+    // (millis << 12) | sequence of the last id handed out
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TimeOrderedUuid() {
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis();
+        // Borrows from the next millisecond if more than 4096 ids are minted in one
+        long state = LAST.updateAndGet(previous -> Math.max(previous + 1, now << 12));
+
+        long mostSignificant = ((state >>> 12) << 16) | 0x7000L | (state & 0xfffL);
+        long leastSignificant = (ThreadLocalRandom.current().nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+}
@@ -0,0 +1,7 @@
+-- Shared per-room sequence counters, used by RoomSequenceAllocator when app.cluster.enabled is set.
+-- Rows are created and lifted to the room's MAX(seq) on first use, so no backfill is needed.
+-- room_id is a conversation or a global chat id; no foreign key, as it can be either.
+CREATE TABLE room_sequences (
+    room_id UUID PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
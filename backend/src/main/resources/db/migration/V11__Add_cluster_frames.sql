@@ -0,0 +1,8 @@
+-- Broadcast frames too large for a NOTIFY payload, relayed by PostgresNotifyTransport when
+-- app.cluster.enabled is set. Unlogged: rows live for seconds and are never worth recovering.
+-- IF NOT EXISTS: earlier builds created the table at startup.
+CREATE UNLOGGED TABLE IF NOT EXISTS cluster_frames (
+    id BIGSERIAL PRIMARY KEY,
+    frame TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
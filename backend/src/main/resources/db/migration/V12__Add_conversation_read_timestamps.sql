@@ -0,0 +1,15 @@
+-- When each participant's read pointer message was sent, stored next to the pointer so read
+-- state no longer looks the message up: an archived pointer message is no longer in messages.
+ALTER TABLE conversations
+    ADD COLUMN buyer_last_read_at TIMESTAMP WITH TIME ZONE,
+    ADD COLUMN seller_last_read_at TIMESTAMP WITH TIME ZONE;
+
+UPDATE conversations c
+SET buyer_last_read_at = m.created_at
+FROM messages m
+WHERE m.id = c.buyer_last_read_message_id AND m.conversation_id = c.id;
+
+UPDATE conversations c
+SET seller_last_read_at = m.created_at
+FROM messages m
+WHERE m.id = c.seller_last_read_message_id AND m.conversation_id = c.id;
@@ -0,0 +1,30 @@
+-- Denormalized inbox summary, maintained by ConversationService.sendMessage
+ALTER TABLE conversations
+    ADD COLUMN last_message_text TEXT,
+    ADD COLUMN last_message_at TIMESTAMP WITH TIME ZONE,
+    ADD COLUMN last_sender_id UUID REFERENCES users(id) ON DELETE SET NULL,
+    ADD COLUMN buyer_unread_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN seller_unread_count INTEGER NOT NULL DEFAULT 0;
+
+-- Backfill from the newest message of each conversation without bumping updated_at
+ALTER TABLE conversations DISABLE TRIGGER update_conversations_updated_at;
+
+UPDATE conversations c
+SET last_message_text = lm.message_text,
+    last_message_at = lm.created_at,
+    last_sender_id = lm.sender_id
+FROM (
+    SELECT DISTINCT ON (conversation_id) conversation_id, message_text, created_at, sender_id
+    FROM messages
+    ORDER BY conversation_id, created_at DESC
+) lm
+WHERE lm.conversation_id = c.id;
+
+ALTER TABLE conversations ENABLE TRIGGER update_conversations_updated_at;
+
+-- Each side of the inbox becomes a top-N index read; these also cover the old single-column lookups
+CREATE INDEX idx_conversations_buyer_updated_at ON conversations(buyer_id, updated_at DESC);
+CREATE INDEX idx_conversations_seller_updated_at ON conversations(seller_id, updated_at DESC);
+
+DROP INDEX IF EXISTS idx_conversations_buyer_id;
+DROP INDEX IF EXISTS idx_conversations_seller_id;
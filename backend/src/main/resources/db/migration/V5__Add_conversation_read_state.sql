@@ -0,0 +1,26 @@
+-- Per-participant read pointers, written back in batches by UnreadCounterService.
+-- No foreign key to messages: stale pointers are harmless and messages may be repartitioned.
+ALTER TABLE conversations
+    ADD COLUMN buyer_last_read_message_id UUID,
+    ADD COLUMN seller_last_read_message_id UUID;
+
+-- Read-state flushes must not move a conversation to the top of the inbox
+CREATE OR REPLACE FUNCTION update_conversations_updated_at_column()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF (NEW.buyer_unread_count, NEW.seller_unread_count,
+        NEW.buyer_last_read_message_id, NEW.seller_last_read_message_id)
+       IS DISTINCT FROM
+       (OLD.buyer_unread_count, OLD.seller_unread_count,
+        OLD.buyer_last_read_message_id, OLD.seller_last_read_message_id)
+       AND NEW.last_message_at IS NOT DISTINCT FROM OLD.last_message_at THEN
+        RETURN NEW;
+    END IF;
+    NEW.updated_at = CURRENT_TIMESTAMP;
+    RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+DROP TRIGGER update_conversations_updated_at ON conversations;
+CREATE TRIGGER update_conversations_updated_at BEFORE UPDATE ON conversations
+    FOR EACH ROW EXECUTE FUNCTION update_conversations_updated_at_column();
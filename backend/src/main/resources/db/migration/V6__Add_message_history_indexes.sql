@@ -0,0 +1,7 @@
+-- Cursor pagination walks (chat, created_at, id) in either direction; the single-column
+-- chat indexes are a prefix of these and no longer needed
+CREATE INDEX idx_messages_conversation_created_id ON messages(conversation_id, created_at, id);
+CREATE INDEX idx_global_messages_chat_created_id ON global_messages(global_chat_id, created_at, id);
+
+DROP INDEX IF EXISTS idx_messages_conversation_id;
+DROP INDEX IF EXISTS idx_global_messages_global_chat_id;
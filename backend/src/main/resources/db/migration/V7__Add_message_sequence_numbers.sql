@@ -0,0 +1,26 @@
+-- Dense per-room sequence numbers, assigned by RoomSequenceAllocator on send
+ALTER TABLE messages ADD COLUMN seq BIGINT;
+ALTER TABLE global_messages ADD COLUMN seq BIGINT;
+
+UPDATE messages m
+SET seq = numbered.seq
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY conversation_id ORDER BY created_at, id) AS seq
+    FROM messages
+) numbered
+WHERE numbered.id = m.id;
+
+UPDATE global_messages m
+SET seq = numbered.seq
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY global_chat_id ORDER BY created_at, id) AS seq
+    FROM global_messages
+) numbered
+WHERE numbered.id = m.id;
+
+ALTER TABLE messages ALTER COLUMN seq SET NOT NULL;
+ALTER TABLE global_messages ALTER COLUMN seq SET NOT NULL;
+
+-- Serves both the allocator's MAX(seq) seed and ?sinceSeq= reads, and rejects duplicate allocations
+CREATE UNIQUE INDEX uq_messages_conversation_seq ON messages(conversation_id, seq);
+CREATE UNIQUE INDEX uq_global_messages_chat_seq ON global_messages(global_chat_id, seq);
@@ -0,0 +1,74 @@
+-- Monthly range partitions for messages and global_messages.
+-- The existing heaps are attached as one "legacy" partition each instead of copying their rows;
+-- MessagePartitionMaintenance creates upcoming months and archives expired ones.
+-- V8 validated the bound and built the indexes, so every statement here only changes the catalog
+-- and the exclusive locks last as long as this transaction's metadata updates.
+
+-- messages
+ALTER TABLE messages RENAME TO messages_legacy;
+-- Proven by the validated messages_legacy_bound check, so no scan
+ALTER TABLE messages_legacy ALTER COLUMN created_at SET NOT NULL;
+
+ALTER TABLE messages_legacy DROP CONSTRAINT messages_pkey;
+ALTER TABLE messages_legacy ADD CONSTRAINT messages_legacy_pkey PRIMARY KEY USING INDEX messages_legacy_pkey;
+ALTER INDEX idx_messages_conversation_created_id RENAME TO messages_legacy_conversation_created_id_idx;
+ALTER INDEX idx_messages_sender_id RENAME TO messages_legacy_sender_id_idx;
+
+CREATE TABLE messages (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    conversation_id UUID NOT NULL REFERENCES conversations(id) ON DELETE CASCADE,
+    sender_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    message_text TEXT NOT NULL,
+    image_url VARCHAR(500),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    seq BIGINT NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_messages_conversation_created_id ON messages(conversation_id, created_at, id);
+CREATE UNIQUE INDEX uq_messages_conversation_seq ON messages(conversation_id, seq, created_at);
+CREATE INDEX idx_messages_sender_id ON messages(sender_id);
+
+-- global_messages
+ALTER TABLE global_messages RENAME TO global_messages_legacy;
+
+ALTER TABLE global_messages_legacy DROP CONSTRAINT global_messages_pkey;
+ALTER TABLE global_messages_legacy ADD CONSTRAINT global_messages_legacy_pkey
+    PRIMARY KEY USING INDEX global_messages_legacy_pkey;
+ALTER INDEX idx_global_messages_chat_created_id RENAME TO global_messages_legacy_chat_created_id_idx;
+ALTER INDEX idx_global_messages_sender_id RENAME TO global_messages_legacy_sender_id_idx;
+
+CREATE TABLE global_messages (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    global_chat_id UUID NOT NULL REFERENCES global_chats(id) ON DELETE CASCADE,
+    sender_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    message_text TEXT NOT NULL,
+    image_url VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    seq BIGINT NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_global_messages_chat_created_id ON global_messages(global_chat_id, created_at, id);
+CREATE UNIQUE INDEX uq_global_messages_chat_seq ON global_messages(global_chat_id, seq, created_at);
+CREATE INDEX idx_global_messages_sender_id ON global_messages(sender_id);
+
+-- The legacy partitions end where V8's checks do (two months ahead, or later if the month has
+-- rolled over since), so the checks imply the bounds and attaching skips the validation scan; the
+-- matching indexes and foreign keys are adopted rather than rebuilt
+DO $$
+DECLARE
+    boundary DATE := (date_trunc('month', CURRENT_DATE) + INTERVAL '2 months')::date;
+BEGIN
+    EXECUTE format('ALTER TABLE messages ATTACH PARTITION messages_legacy FOR VALUES FROM (MINVALUE) TO (%L)', boundary);
+    EXECUTE format('ALTER TABLE global_messages ATTACH PARTITION global_messages_legacy FOR VALUES FROM (MINVALUE) TO (%L)', boundary);
+
+    PERFORM create_monthly_partition('messages', boundary);
+    PERFORM create_monthly_partition('messages', (boundary + INTERVAL '1 month')::date);
+    PERFORM create_monthly_partition('global_messages', boundary);
+    PERFORM create_monthly_partition('global_messages', (boundary + INTERVAL '1 month')::date);
+END $$;
+
+-- The partition bounds enforce the same thing from here on
+ALTER TABLE messages_legacy DROP CONSTRAINT messages_legacy_bound;
+ALTER TABLE global_messages_legacy DROP CONSTRAINT global_messages_legacy_bound;
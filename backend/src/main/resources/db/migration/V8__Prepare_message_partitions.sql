@@ -0,0 +1,69 @@
+-- Groundwork for V8_1, which turns messages and global_messages into monthly range partitions by
+-- attaching the existing heaps as one "legacy" partition each. Everything that has to read the
+-- tables happens here, outside a transaction and without blocking writes, so that V8_1 only
+-- touches the catalog:
+--  * a validated CHECK lets SET NOT NULL and ATTACH PARTITION skip their scans
+--  * the indexes the partitioned parents need are built CONCURRENTLY, and adopted by ATTACH
+-- Each statement commits on its own (see the .sql.conf); every step can be rerun after a failure.
+
+CREATE OR REPLACE FUNCTION create_monthly_partition(parent TEXT, month_start DATE)
+RETURNS VOID AS $$
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+        parent || '_p' || to_char(month_start, 'YYYYMM'), parent,
+        month_start, (month_start + INTERVAL '1 month')::date);
+EXCEPTION WHEN invalid_object_definition THEN
+    -- The month overlaps an existing partition, such as the legacy one
+    NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The legacy partitions end two months ahead, so a month rollover between V8 and V8_1 still
+-- leaves every row written meanwhile inside them. NOT VALID only checks new rows; VALIDATE then
+-- scans under SHARE UPDATE EXCLUSIVE, which lets reads and writes carry on.
+DO $$
+DECLARE
+    boundary DATE := (date_trunc('month', CURRENT_DATE) + INTERVAL '2 months')::date;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'messages_legacy_bound') THEN
+        EXECUTE format('ALTER TABLE messages ADD CONSTRAINT messages_legacy_bound '
+            'CHECK (created_at IS NOT NULL AND created_at < %L) NOT VALID', boundary);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'global_messages_legacy_bound') THEN
+        EXECUTE format('ALTER TABLE global_messages ADD CONSTRAINT global_messages_legacy_bound '
+            'CHECK (created_at IS NOT NULL AND created_at < %L) NOT VALID', boundary);
+    END IF;
+END $$;
+
+ALTER TABLE messages VALIDATE CONSTRAINT messages_legacy_bound;
+ALTER TABLE global_messages VALIDATE CONSTRAINT global_messages_legacy_bound;
+
+-- A failed CONCURRENTLY build leaves an invalid index behind; drop it so the rerun builds it again
+DO $$
+DECLARE
+    invalid RECORD;
+BEGIN
+    FOR invalid IN
+        SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+        WHERE NOT i.indisvalid AND c.relname IN (
+            'messages_legacy_pkey', 'messages_legacy_conversation_seq_created_at_key',
+            'global_messages_legacy_pkey', 'global_messages_legacy_chat_seq_created_at_key')
+    LOOP
+        EXECUTE format('DROP INDEX %I', invalid.relname);
+    END LOOP;
+END $$;
+
+-- A partitioned table's primary key and unique indexes must include the partition key, so the
+-- (room, seq) guard from V7 becomes (room, seq, created_at)
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS messages_legacy_pkey ON messages(id, created_at);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS messages_legacy_conversation_seq_created_at_key
+    ON messages(conversation_id, seq, created_at);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS global_messages_legacy_pkey ON global_messages(id, created_at);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS global_messages_legacy_chat_seq_created_at_key
+    ON global_messages(global_chat_id, seq, created_at);
+
+-- Superseded by the indexes above, and partition pruning replaces the created_at ones
+DROP INDEX CONCURRENTLY IF EXISTS uq_messages_conversation_seq;
+DROP INDEX CONCURRENTLY IF EXISTS idx_messages_created_at;
+DROP INDEX CONCURRENTLY IF EXISTS uq_global_messages_chat_seq;
+DROP INDEX CONCURRENTLY IF EXISTS idx_global_messages_created_at;
@@ -0,0 +1,11 @@
+-- Per-chat message totals, maintained by GlobalChatMessageCounter instead of counting on every chat list
+ALTER TABLE global_chats ADD COLUMN message_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE global_chats g
+SET message_count = counts.total
+FROM (
+    SELECT global_chat_id, COUNT(*) AS total
+    FROM global_messages
+    GROUP BY global_chat_id
+) counts
+WHERE counts.global_chat_id = g.id;
@@ -0,0 +1,99 @@
+package com.unibuddy.collegeBuddy.controller;
+
+import com.unibuddy.collegeBuddy.service.FileStorageService;
+import com.unibuddy.collegeBuddy.service.StorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser
+public class FileControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    private String key;
+
+    @BeforeEach
+    void setUp() {
+        MockMultipartFile image = new MockMultipartFile("image", "photo.png", "image/png", "0123456789".getBytes());
+        String url = fileStorageService.storeChatImage(image);
+        key = url.substring(url.indexOf("/api/files/") + "/api/files/".length());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        storageBackend.delete(key);
+    }
+
+    @Test
+    void serveFile_ReturnsImmutableCacheHeaders() throws Exception {
+        mockMvc.perform(get("/api/files/" + key))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void serveFile_WithMatchingETag_ReturnsNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/files/" + key))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/files/" + key).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void serveFile_WithRange_ReturnsPartialContent() throws Exception {
+        mockMvc.perform(get("/api/files/" + key).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void storeChatImage_UsesShardedDirectory() {
+        Path filePath = fileStorageService.findStoredFile(key).orElseThrow();
+
+        // <upload dir>/chats/<shard>/<shard>/<uuid>.png
+        assertTrue(key.startsWith("chats/"));
+        assertEquals("chats", filePath.getParent().getParent().getParent().getFileName().toString());
+    }
+
+    @Test
+    void serveFile_MissingFile_ReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/files/chats/missing.png"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,50 @@
+package com.unibuddy.collegeBuddy.controller;
+
+import com.unibuddy.collegeBuddy.dto.message.SendMessageRequest;
+import com.unibuddy.collegeBuddy.exception.BadRequestException;
+import com.unibuddy.collegeBuddy.exception.UnauthorizedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.messaging.handler.annotation.support.MethodArgumentNotValidException;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+
+import java.security.Principal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketControllerTest {
+
+    private final WebSocketController controller = new WebSocketController(null, null, null);
+
+    @Test
+    void knownRejections_KeepTheirMessage() {
+        assertEquals("Not authenticated",
+                controller.handleException(new UnauthorizedException("Not authenticated")).get("message"));
+        assertEquals("Use only one of before, after and sinceSeq",
+                controller.handleException(new BadRequestException("Use only one of before, after and sinceSeq")).get("message"));
+    }
+
+    @Test
+    void validationErrors_ReportTheFieldMessages() throws NoSuchMethodException {
+        MethodParameter payload = new MethodParameter(WebSocketController.class.getMethod(
+                "sendMessage", UUID.class, SendMessageRequest.class, Principal.class), 1);
+        BindingResult result = new BeanPropertyBindingResult(new Object(), "message");
+        result.reject("NotBlank", "Message text is required");
+        MethodArgumentNotValidException ex = new MethodArgumentNotValidException(
+                MessageBuilder.withPayload("{}").build(), payload, result);
+
+        assertEquals("Message text is required", controller.handleException(ex).get("message"));
+    }
+
+    @Test
+    void unexpectedFailures_DoNotLeakTheirMessage() {
+        assertEquals("Message could not be processed",
+                controller.handleException(new IllegalStateException("could not execute statement [insert into messages ...]"))
+                        .get("message"));
+        assertEquals("Message could not be processed",
+                controller.handleException(new NullPointerException()).get("message"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.unibuddy.collegeBuddy.security;
+
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import com.unibuddy.collegeBuddy.util.JwtUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class StompAuthenticationInterceptorTest {
+
+    private static final MessageChannel CHANNEL = (message, timeout) -> true;
+
+    @Autowired
+    private StompAuthenticationInterceptor interceptor;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("Socket User");
+        user.setEmail("socket@example.com");
+        user.setPasswordHash("hashedPassword");
+        user.setEmailVerified(true);
+        user.setRole(User.Role.STUDENT);
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void connectWithValidToken_AttachesPrincipal() {
+        StompHeaderAccessor accessor = connect("Bearer " + jwtUtils.generateToken(user));
+
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), CHANNEL);
+
+        StompPrincipal principal = assertInstanceOf(StompPrincipal.class, accessor.getUser());
+        assertEquals(user.getId().toString(), principal.getName());
+        assertEquals("Socket User", principal.toUser().getName());
+        assertTrue(principal.toUser().getEmailVerified());
+    }
+
+    @Test
+    void connectWithoutValidToken_IsRefused() {
+        Message<byte[]> missing = MessageBuilder.createMessage(new byte[0], connect(null).getMessageHeaders());
+        Message<byte[]> forged = MessageBuilder.createMessage(new byte[0], connect("Bearer not-a-jwt").getMessageHeaders());
+
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(missing, CHANNEL));
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(forged, CHANNEL));
+    }
+
+    private static StompHeaderAccessor connect(String authorization) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("session");
+        if (authorization != null) {
+            accessor.setNativeHeader("Authorization", authorization);
+        }
+        accessor.setLeaveMutable(true);
+        return accessor;
+    }
+}
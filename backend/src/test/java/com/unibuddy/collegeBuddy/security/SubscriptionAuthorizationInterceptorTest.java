@@ -0,0 +1,171 @@
+package com.unibuddy.collegeBuddy.security;
+
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import com.unibuddy.collegeBuddy.entity.College;
+import com.unibuddy.collegeBuddy.entity.GlobalChat;
+import com.unibuddy.collegeBuddy.entity.Listing;
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.CollegeRepository;
+import com.unibuddy.collegeBuddy.repository.GlobalChatRepository;
+import com.unibuddy.collegeBuddy.repository.ListingRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import com.unibuddy.collegeBuddy.service.ChatMembershipCache;
+import com.unibuddy.collegeBuddy.service.ConversationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Starting a conversation is an ON CONFLICT upsert, which H2 cannot run
+@SpringBootTest
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional
+public class SubscriptionAuthorizationInterceptorTest {
+
+    private static final MessageChannel CHANNEL = (message, timeout) -> true;
+
+    @Autowired
+    private SubscriptionAuthorizationInterceptor interceptor;
+
+    @Autowired
+    private ChatMembershipCache membershipCache;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private CollegeRepository collegeRepository;
+
+    @Autowired
+    private GlobalChatRepository globalChatRepository;
+
+    private College college;
+    private User seller;
+    private User buyer;
+    private User outsider;
+    private Listing listing;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        college = new College();
+        college.setName("Subscription College " + suffix);
+        college.setDomain(suffix + ".edu");
+        college = collegeRepository.save(college);
+
+        seller = user("seller@" + suffix + ".edu", college);
+        buyer = user("buyer@" + suffix + ".edu", college);
+        outsider = user("outsider@" + suffix + ".edu", null);
+
+        listing = new Listing();
+        listing.setTitle("Test Book");
+        listing.setDescription("A great textbook");
+        listing.setPrice(new BigDecimal("50.00"));
+        listing.setCategory("Books");
+        listing.setSeller(seller);
+        listing = listingRepository.save(listing);
+    }
+
+    @Test
+    void conversationTopics_AreOpenToParticipantsOnly() {
+        UUID conversationId = conversationService.getOrCreateConversation(listing.getId(), buyer).getId();
+
+        assertTrue(subscribe(seller, "/topic/conversations/" + conversationId));
+        assertTrue(subscribe(buyer, "/topic/conversations/" + conversationId + "/read"));
+        assertTrue(subscribe(buyer, "/app/conversations/" + conversationId + "/presence"));
+        assertFalse(subscribe(outsider, "/topic/conversations/" + conversationId));
+    }
+
+    @Test
+    void resubscribing_IsAnsweredFromTheCache() {
+        UUID conversationId = conversationService.getOrCreateConversation(listing.getId(), buyer).getId();
+        subscribe(buyer, "/topic/conversations/" + conversationId);
+        long queries = queries();
+
+        for (int reconnect = 0; reconnect < 10; reconnect++) {
+            assertTrue(subscribe(buyer, "/topic/conversations/" + conversationId));
+            assertTrue(subscribe(buyer, "/topic/conversations/" + conversationId + "/presence"));
+        }
+
+        assertEquals(queries, queries());
+    }
+
+    @Test
+    void refusedResubscribes_AreAnsweredFromTheCache() {
+        UUID conversationId = conversationService.getOrCreateConversation(listing.getId(), buyer).getId();
+        assertFalse(subscribe(outsider, "/topic/conversations/" + conversationId));
+        long queries = queries();
+
+        for (int retry = 0; retry < 10; retry++) {
+            assertFalse(subscribe(outsider, "/topic/conversations/" + conversationId));
+        }
+
+        assertEquals(queries, queries());
+    }
+
+    @Test
+    void globalChatTopics_AreOpenToTheCollegeOnly() {
+        GlobalChat globalChat = new GlobalChat();
+        globalChat.setCollege(college);
+        globalChat.setName("General");
+        globalChat = globalChatRepository.save(globalChat);
+
+        assertTrue(subscribe(buyer, "/topic/global-chat/" + globalChat.getId()));
+        assertTrue(subscribe(buyer, "/topic/colleges/" + college.getId() + "/global-chats"));
+        assertFalse(subscribe(outsider, "/topic/global-chat/" + globalChat.getId()));
+        assertFalse(subscribe(outsider, "/topic/colleges/" + college.getId() + "/global-chats"));
+    }
+
+    @Test
+    void otherDestinations_AreRefused() {
+        assertTrue(subscribe(buyer, "/user/queue/errors"));
+        assertFalse(subscribe(buyer, "/queue/errors-usersession"));
+        assertFalse(subscribe(buyer, "/topic/anything"));
+    }
+
+    private User user(String email, College college) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPasswordHash("hashedPassword");
+        user.setEmailVerified(true);
+        user.setRole(User.Role.STUDENT);
+        user.setCollege(college);
+        return userRepository.save(user);
+    }
+
+    private boolean subscribe(User user, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("session-" + user.getId());
+        accessor.setSubscriptionId(destination);
+        accessor.setDestination(destination);
+        accessor.setUser(StompPrincipal.of(user, Instant.now().plusSeconds(600)));
+        return interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), CHANNEL) != null;
+    }
+
+    private long queries() {
+        return (long) membershipCache.getMetrics().get("loads") + (long) membershipCache.getMetrics().get("lookups");
+    }
+}
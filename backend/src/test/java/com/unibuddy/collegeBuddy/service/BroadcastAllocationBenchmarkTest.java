@@ -0,0 +1,211 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.unibuddy.collegeBuddy.dto.globalchat.GlobalMessageResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bytes allocated on the sending thread for one global chat broadcast, through a real simple broker
+ * and STOMP handler, at growing room sizes: the default converter and encoder with stompjs-style
+ * generated subscription ids, against the shared payload and frame path with destination ids.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class BroadcastAllocationBenchmarkTest {
+
+    private static final String DESTINATION = "/topic/global-chat/" + UUID.randomUUID();
+    private static final int WARMUP_BROADCASTS = 50;
+    private static final int MEASURED_BROADCASTS = 20;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void allocationPerBroadcast() {
+        System.out.printf("%-12s %20s %20s %8s%n", "subscribers", "convertAndSend (KB)", "shared frames (KB)", "ratio");
+        for (int subscribers : new int[] {100, 1_000, 10_000}) {
+            long baseline = measure(subscribers, new StompSubProtocolHandler(), i -> "sub-" + (i % 4),
+                    template -> template.convertAndSend(DESTINATION, message()));
+
+            StompSubProtocolHandler shared = new StompSubProtocolHandler();
+            shared.setEncoder(new SharedFrameStompEncoder());
+            long sharedBytes = measure(subscribers, shared, i -> DESTINATION,
+                    template -> new SharedPayloadBroadcaster(template, objectMapper).send(DESTINATION, message()));
+
+            System.out.printf("%-12d %20.1f %20.1f %7.2fx%n",
+                    subscribers, baseline / 1024.0, sharedBytes / 1024.0, (double) baseline / sharedBytes);
+            assertTrue(sharedBytes < baseline);
+        }
+    }
+
+    private long measure(int subscribers, StompSubProtocolHandler stompHandler, IntFunction<String> subscriptionId,
+                         Consumer<SimpMessagingTemplate> broadcast) {
+        Map<String, WebSocketSession> sessions = new HashMap<>();
+        MessageChannel clientOutbound = (message, timeout) -> {
+            stompHandler.handleMessageToClient(sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())), message);
+            return true;
+        };
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+
+        for (int i = 0; i < subscribers; i++) {
+            String sessionId = "session-" + i;
+            sessions.put(sessionId, new DiscardingSession(sessionId));
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId(sessionId);
+            subscribe.setSubscriptionId(subscriptionId.apply(i));
+            subscribe.setDestination(DESTINATION);
+            clientInbound.send(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+
+        SimpMessagingTemplate template = new SimpMessagingTemplate(brokerChannel);
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        template.setMessageConverter(converter);
+
+        for (int i = 0; i < WARMUP_BROADCASTS; i++) {
+            broadcast.accept(template);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_BROADCASTS; i++) {
+            broadcast.accept(template);
+        }
+        long allocated = (threads.getCurrentThreadAllocatedBytes() - before) / MEASURED_BROADCASTS;
+
+        broker.stop();
+        return allocated;
+    }
+
+    private static GlobalMessageResponse message() {
+        GlobalMessageResponse.SenderInfo sender = new GlobalMessageResponse.SenderInfo();
+        sender.setId(UUID.randomUUID());
+        sender.setName("Benchmark Sender");
+        sender.setAvatarUrl("https://cdn.example.edu/avatars/" + UUID.randomUUID() + ".png");
+        sender.setYear((short) 2);
+
+        GlobalMessageResponse message = new GlobalMessageResponse();
+        message.setId(UUID.randomUUID());
+        message.setSeq(42L);
+        message.setMessageText("Is anyone selling the second-year algorithms textbook? Happy to pick it up on campus today.");
+        message.setCreatedAt(LocalDateTime.now());
+        message.setGlobalChatId(UUID.randomUUID());
+        message.setSender(sender);
+        return message;
+    }
+
+    // An open session that drops whatever it is sent
+    private record DiscardingSession(String id) implements WebSocketSession {
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public URI getUri() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return HttpHeaders.EMPTY;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return Map.of();
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return "v12.stomp";
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return List.of();
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+        }
+    }
+}
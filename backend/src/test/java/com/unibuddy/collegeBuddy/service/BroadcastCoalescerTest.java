@@ -0,0 +1,125 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BroadcastCoalescerTest {
+
+    private static final String DESTINATION = "/topic/global-chat/room";
+
+    private final List<Message<?>> frames = new CopyOnWriteArrayList<>();
+    private BroadcastCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> frames.add(message));
+        coalescer = new BroadcastCoalescer(new SharedPayloadBroadcaster(template, new ObjectMapper()));
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "minWindowMs", 20L);
+        ReflectionTestUtils.setField(coalescer, "maxWindowMs", 50L);
+        ReflectionTestUtils.setField(coalescer, "maxBatch", 5);
+        ReflectionTestUtils.setField(coalescer, "idleMs", 60_000L);
+        coalescer.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void quietRoom_SendsAtOnceAsPlainObject() {
+        coalescer.send(DESTINATION, "hello");
+
+        assertEquals(1, frames.size());
+        assertEquals("\"hello\"", body(0));
+    }
+
+    @Test
+    void burst_IsMergedIntoOneArrayFrameInOrder() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            coalescer.send(DESTINATION, "m" + i);
+        }
+        // The first goes out at once, the rest wait for the end of the window
+        assertEquals(1, frames.size());
+
+        Thread.sleep(200);
+        assertEquals(2, frames.size());
+        assertEquals("[\"m1\",\"m2\",\"m3\"]", body(1));
+    }
+
+    @Test
+    void fullBatch_IsSentWithoutWaiting() {
+        for (int i = 0; i < 6; i++) {
+            coalescer.send(DESTINATION, "m" + i);
+        }
+
+        assertEquals(2, frames.size());
+        assertEquals("[\"m1\",\"m2\",\"m3\",\"m4\",\"m5\"]", body(1));
+        assertEquals(6L, coalescer.getMetrics().get("messages"));
+    }
+
+    @Test
+    void idleRoom_IsDroppedAndStartsAfreshOnItsNextMessage() throws InterruptedException {
+        coalescer.send(DESTINATION, "m0");
+        coalescer.send(DESTINATION, "m1");
+        ReflectionTestUtils.setField(coalescer, "idleMs", 100L);
+
+        // Still waiting to flush its second message, so it stays
+        coalescer.pruneIdleRooms();
+        assertEquals(1, coalescer.getMetrics().get("rooms"));
+
+        Thread.sleep(200);
+        coalescer.pruneIdleRooms();
+        assertEquals(0, coalescer.getMetrics().get("rooms"));
+
+        coalescer.send(DESTINATION, "m2");
+        assertEquals(3, frames.size());
+        assertEquals("\"m2\"", body(2));
+    }
+
+    @Test
+    void sendAfterCommit_WaitsForTheCommitAndDropsRolledBackSends() {
+        TransactionSynchronizationManager.initSynchronization();
+        coalescer.sendAfterCommit(DESTINATION, "committed");
+        assertTrue(frames.isEmpty(), "nothing is relayed while the send is uncommitted");
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1, frames.size());
+
+        TransactionSynchronizationManager.initSynchronization();
+        coalescer.sendAfterCommit(DESTINATION, "rolled back");
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1, frames.size());
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private String body(int frame) {
+        return new String((byte[]) frames.get(frame).getPayload(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,133 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two fan-out nodes in one JVM, each with its own listening connection to the same database
+@SpringBootTest
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class ClusterFanoutTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Message<?>> brokerA = new CopyOnWriteArrayList<>();
+    private final List<Message<?>> brokerB = new CopyOnWriteArrayList<>();
+    private final List<String> remoteDestinationsB = new CopyOnWriteArrayList<>();
+    private ClusterFanout nodeA;
+    private ClusterFanout nodeB;
+
+    @BeforeEach
+    void setUp() {
+        // Created by V11, which the Hibernate-built test schema does not run
+        jdbcTemplate.execute("""
+                CREATE UNLOGGED TABLE IF NOT EXISTS cluster_frames (
+                    id BIGSERIAL PRIMARY KEY,
+                    frame TEXT NOT NULL,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                )
+                """);
+        String channel = "fanout_test_" + UUID.randomUUID().toString().replace("-", "");
+        nodeA = new ClusterFanout(new PostgresNotifyTransport(dataSource, channel), objectMapper,
+                (message, timeout) -> brokerA.add(message), destination -> { });
+        nodeB = new ClusterFanout(new PostgresNotifyTransport(dataSource, channel), objectMapper,
+                (message, timeout) -> brokerB.add(message), remoteDestinationsB::add);
+        nodeA.start();
+        nodeB.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop();
+        nodeB.stop();
+    }
+
+    @Test
+    void broadcast_ReachesTheOtherNodeOnly() throws Exception {
+        String destination = "/topic/global-chat/" + UUID.randomUUID();
+        // Larger than a NOTIFY payload, so it also exercises the table path
+        String large = "x".repeat(20_000);
+
+        // Give both listeners time to issue LISTEN before anything is notified
+        Thread.sleep(1000);
+        Message<byte[]> hello = broadcast(destination, "hello");
+        nodeA.preSend(hello, null);
+        nodeA.preSend(broadcast(destination, large), null);
+
+        awaitSize(brokerB, 2);
+        assertEquals(destination, SimpMessageHeaderAccessor.getDestination(brokerB.get(0).getHeaders()));
+        assertEquals("hello", new String((byte[]) brokerB.get(0).getPayload(), StandardCharsets.UTF_8));
+        // Custom native headers such as the message-id survive the relay
+        assertEquals(StompHeaderAccessor.wrap(hello).getMessageId(), StompHeaderAccessor.wrap(brokerB.get(0)).getMessageId());
+        assertEquals(large, new String((byte[]) brokerB.get(1).getPayload(), StandardCharsets.UTF_8));
+        assertEquals(List.of(destination, destination), remoteDestinationsB);
+
+        // Node A served its own subscribers directly; the echo of its frames is dropped
+        Thread.sleep(500);
+        assertTrue(brokerA.isEmpty());
+
+        // A relayed message passing through node B's broker channel is not relayed back
+        nodeB.preSend(brokerB.get(0), null);
+        Thread.sleep(500);
+        assertTrue(brokerA.isEmpty());
+    }
+
+    @Test
+    void redeliveredFrame_IsDeliveredOnce() throws Exception {
+        String frame = objectMapper.writeValueAsString(new ClusterFanout.Frame("other-node", UUID.randomUUID(),
+                "/topic/conversations/" + UUID.randomUUID(), "application/json", null,
+                Base64.getEncoder().encodeToString("{}".getBytes(StandardCharsets.UTF_8))));
+
+        nodeB.receive(frame);
+        nodeB.receive(frame);
+
+        assertEquals(1, brokerB.size());
+        assertEquals(1L, nodeB.getMetrics().get("duplicates"));
+    }
+
+    private static Message<byte[]> broadcast(String destination, String body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setNativeHeader(StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER, UUID.randomUUID().toString());
+        return MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (list.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(size, list.size());
+    }
+}
@@ -0,0 +1,132 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.unibuddy.collegeBuddy.dto.globalchat.GlobalMessageResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactWireFormatTest {
+
+    private static final MessageChannel CHANNEL = (message, timeout) -> true;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private CompactWireFormat wireFormat;
+
+    @BeforeEach
+    void setUp() {
+        wireFormat = new CompactWireFormat(objectMapper);
+        ReflectionTestUtils.setField(wireFormat, "enabled", true);
+    }
+
+    @Test
+    void compactSession_InternsSendersAndSendsTimestampDeltas() throws Exception {
+        connect("compact-session", "compact");
+        GlobalMessageResponse.SenderInfo sender = sender();
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 250_000_000);
+
+        JsonNode first = send("compact-session", message(sender, createdAt));
+        JsonNode second = send("compact-session", message(sender, createdAt.plusSeconds(2)));
+
+        JsonNode firstSender = first.get(0).get(5);
+        assertTrue(firstSender.isArray());
+        assertEquals(0, firstSender.get(0).asInt());
+        assertEquals("Ada Lovelace", firstSender.get(2).asText());
+        assertEquals(22, first.get(0).get(0).asText().length());
+        assertEquals(createdAt.toInstant(ZoneOffset.UTC).toEpochMilli(), first.get(0).get(4).asLong());
+
+        assertEquals(0, second.get(0).get(5).asInt());
+        assertEquals(2000, second.get(0).get(4).asLong());
+    }
+
+    @Test
+    void jsonSession_And_NonChatPayloads_AreUntouched() throws Exception {
+        connect("json-session", null);
+        connect("compact-session", "compact");
+        byte[] chat = objectMapper.writeValueAsBytes(message(sender(), LocalDateTime.now()));
+        byte[] receipt = objectMapper.writeValueAsBytes(Map.of("userId", UUID.randomUUID(), "lastReadSeq", 4));
+
+        assertSame(chat, wireFormat.preSend(frame("json-session", chat), CHANNEL).getPayload());
+        assertSame(receipt, wireFormat.preSend(frame("compact-session", receipt), CHANNEL).getPayload());
+    }
+
+    @Test
+    void coalescedArray_IsOneCompactFrame() throws Exception {
+        connect("compact-session", "compact");
+        GlobalMessageResponse.SenderInfo sender = sender();
+        LocalDateTime now = LocalDateTime.now();
+
+        Message<?> out = wireFormat.preSend(frame("compact-session",
+                objectMapper.writeValueAsBytes(List.of(message(sender, now), message(sender, now)))), CHANNEL);
+
+        JsonNode batch = objectMapper.readTree((byte[]) out.getPayload());
+        assertEquals(2, batch.size());
+        assertTrue(batch.get(0).get(5).isArray());
+        assertEquals(0, batch.get(1).get(5).asInt());
+        assertEquals(1L, wireFormat.getMetrics().get("framesCompacted"));
+    }
+
+    private void connect(String sessionId, String wireFormatHeader) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        if (wireFormatHeader != null) {
+            accessor.setNativeHeader(CompactWireFormat.WIRE_FORMAT_HEADER, wireFormatHeader);
+        }
+        wireFormat.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), CHANNEL);
+    }
+
+    private JsonNode send(String sessionId, GlobalMessageResponse message) throws Exception {
+        Message<?> out = wireFormat.preSend(frame(sessionId, objectMapper.writeValueAsBytes(message)), CHANNEL);
+        assertEquals(CompactWireFormat.CONTENT_TYPE, out.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        return objectMapper.readTree((byte[]) out.getPayload());
+    }
+
+    private static Message<byte[]> frame(String sessionId, byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/topic/global-chat/room");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+
+    private static GlobalMessageResponse.SenderInfo sender() {
+        GlobalMessageResponse.SenderInfo sender = new GlobalMessageResponse.SenderInfo();
+        sender.setId(UUID.randomUUID());
+        sender.setName("Ada Lovelace");
+        sender.setYear((short) 3);
+        return sender;
+    }
+
+    private static GlobalMessageResponse message(GlobalMessageResponse.SenderInfo sender, LocalDateTime createdAt) {
+        GlobalMessageResponse message = new GlobalMessageResponse();
+        message.setId(UUID.randomUUID());
+        message.setSeq(7L);
+        message.setMessageText("Anyone heading to the library?");
+        message.setCreatedAt(createdAt);
+        message.setGlobalChatId(UUID.randomUUID());
+        message.setSender(sender);
+        return message;
+    }
+}
@@ -0,0 +1,142 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import com.unibuddy.collegeBuddy.dto.conversation.ConversationResponse;
+import com.unibuddy.collegeBuddy.entity.Conversation;
+import com.unibuddy.collegeBuddy.entity.Listing;
+import com.unibuddy.collegeBuddy.entity.Message;
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.ConversationRepository;
+import com.unibuddy.collegeBuddy.repository.ListingRepository;
+import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional
+public class ConversationInboxQueryTest {
+
+    private static final int CONVERSATIONS = 20;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RoomSequenceAllocator roomSequenceAllocator;
+
+    private User buyer;
+
+    @BeforeEach
+    void setUp() {
+        buyer = saveUser("buyer@example.com");
+
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            User seller = saveUser("seller" + i + "@example.com");
+
+            Listing listing = new Listing();
+            listing.setTitle("Listing " + i);
+            listing.setDescription("A listing used by the inbox query test");
+            listing.setPrice(new BigDecimal("10.00"));
+            listing.setCategory("Books");
+            listing.setImages(List.of("first-" + i + ".png", "second-" + i + ".png"));
+            listing.setSeller(seller);
+            listing = listingRepository.save(listing);
+
+            Conversation conversation = new Conversation();
+            conversation.setListing(listing);
+            conversation.setBuyer(buyer);
+            conversation.setSeller(seller);
+            conversation = conversationRepository.save(conversation);
+
+            saveMessage(conversation, buyer, "Question " + i);
+            saveMessage(conversation, seller, "Reply " + i);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getUserConversations_RunsConstantNumberOfStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<ConversationResponse> inbox = conversationService.getUserConversations(buyer.getId(), 0, CONVERSATIONS);
+
+        // The inbox query, plus the count query because the page is full
+        assertEquals(CONVERSATIONS, inbox.getNumberOfElements());
+        assertTrue(statistics.getPrepareStatementCount() <= 2,
+                "inbox took " + statistics.getPrepareStatementCount() + " statements");
+
+        ConversationResponse first = inbox.getContent().get(0);
+        String index = first.getListing().getTitle().substring("Listing ".length());
+        assertEquals("first-" + index + ".png", first.getListing().getFirstImage());
+        assertEquals("Reply " + index, first.getLastMessage().getMessageText());
+        assertFalse(first.getLastMessage().isFromCurrentUser());
+        assertEquals(1, first.getUnreadCount());
+        assertNotEquals(buyer.getId(), first.getOtherUser().getId());
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPasswordHash("hashedPassword");
+        user.setEmailVerified(true);
+        user.setRole(User.Role.STUDENT);
+        return userRepository.save(user);
+    }
+
+    private void saveMessage(Conversation conversation, User sender, String text) {
+        Message message = new Message();
+        message.setConversation(conversation);
+        message.setSender(sender);
+        message.setMessageText(text);
+        message.setSeq(roomSequenceAllocator.nextForConversation(conversation.getId()));
+        message = messageRepository.saveAndFlush(message);
+        // Same bookkeeping sendMessage does, without its rate limit
+        conversationRepository.recordMessage(conversation.getId(), sender.getId(), text, message.getCreatedAt());
+        unreadCounterService.onMessage(conversation.getId(), message);
+    }
+}
@@ -1,10 +1,10 @@
 package com.unibuddy.collegeBuddy.service;
 
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
 import com.unibuddy.collegeBuddy.dto.message.MessageResponse;
 import com.unibuddy.collegeBuddy.dto.message.SendMessageRequest;
 import com.unibuddy.collegeBuddy.entity.Listing;
 import com.unibuddy.collegeBuddy.entity.User;
-import com.unibuddy.collegeBuddy.repository.ConversationRepository;
 import com.unibuddy.collegeBuddy.repository.ListingRepository;
 import com.unibuddy.collegeBuddy.repository.MessageRepository;
 import com.unibuddy.collegeBuddy.repository.UserRepository;
@@ -12,24 +12,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+// Starting a conversation is an ON CONFLICT upsert and the message queries are Postgres-only,
+// so none of this can run on H2
 @SpringBootTest
-@ActiveProfiles("test")
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
 @Transactional
 public class ConversationServiceIntegrationTest {
 
     @Autowired
     private ConversationService conversationService;
 
-    @Autowired
-    private ConversationRepository conversationRepository;
-
     @Autowired
     private MessageRepository messageRepository;
 
@@ -73,22 +78,6 @@ public class ConversationServiceIntegrationTest {
         listing = listingRepository.save(listing);
     }
 
-    @Test
-    void testGetOrCreateConversation() {
-        // When
-        var response = conversationService.getOrCreateConversation(listing.getId(), buyer);
-
-        // Then
-        assertNotNull(response);
-        assertNotNull(response.getId());
-        assertEquals(listing.getId(), response.getListing().getId());
-        assertEquals(seller.getId(), response.getOtherUser().getId());
-
-        // Verify conversation was created in database
-        var conversations = conversationRepository.findByListingIdAndBuyerId(listing.getId(), buyer.getId());
-        assertTrue(conversations.isPresent());
-    }
-
     @Test
     void testSendMessage() {
         // Given - Create conversation first
@@ -107,8 +96,55 @@ public class ConversationServiceIntegrationTest {
         assertEquals(buyer.getId(), messageResponse.getSender().getId());
 
         // Verify message was saved to database
-        var messages = messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationResponse.getId(), null);
-        assertEquals(1, messages.getTotalElements());
+        var messages = messageRepository.findLatest(conversationResponse.getId(), 10);
+        assertEquals(1, messages.size());
+    }
+
+    @Test
+    void testGetConversationMessagesWithCursors() {
+        // Given
+        var conversationResponse = conversationService.getOrCreateConversation(listing.getId(), buyer);
+        for (String text : new String[] {"First", "Second", "Third"}) {
+            SendMessageRequest request = new SendMessageRequest();
+            request.setMessageText(text);
+            conversationService.sendMessage(conversationResponse.getId(), request, buyer);
+        }
+
+        // When - the latest window, then scrolling back from its oldest message
+        var latest = conversationService.getConversationMessages(conversationResponse.getId(), buyer.getId(), null, null, null, 2);
+        var older = conversationService.getConversationMessages(
+                conversationResponse.getId(), buyer.getId(), latest.getContent().get(0).getId(), null, null, 2);
+
+        // Then
+        assertEquals(List.of("Second", "Third"), latest.getContent().stream().map(MessageResponse::getMessageText).toList());
+        assertTrue(latest.isHasOlder());
+        assertFalse(latest.isHasNewer());
+
+        assertEquals(List.of("First"), older.getContent().stream().map(MessageResponse::getMessageText).toList());
+        assertFalse(older.isHasOlder());
+        assertTrue(older.isHasNewer());
+    }
+
+    @Test
+    void testGetConversationMessagesSinceSeq() {
+        // Given
+        var conversationResponse = conversationService.getOrCreateConversation(listing.getId(), buyer);
+        List<MessageResponse> sent = new ArrayList<>();
+        for (String text : new String[] {"First", "Second", "Third"}) {
+            SendMessageRequest request = new SendMessageRequest();
+            request.setMessageText(text);
+            sent.add(conversationService.sendMessage(conversationResponse.getId(), request, buyer));
+        }
+
+        // When - a client that last saw the first message asks for the gap
+        var gap = conversationService.getConversationMessages(
+                conversationResponse.getId(), buyer.getId(), null, null, sent.get(0).getSeq(), 10);
+
+        // Then
+        assertEquals(List.of(sent.get(0).getSeq() + 1, sent.get(0).getSeq() + 2),
+                sent.subList(1, 3).stream().map(MessageResponse::getSeq).toList());
+        assertEquals(List.of("Second", "Third"), gap.getContent().stream().map(MessageResponse::getMessageText).toList());
+        assertFalse(gap.isHasNewer());
     }
 
     @Test
@@ -0,0 +1,128 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import com.unibuddy.collegeBuddy.dto.conversation.ConversationResponse;
+import com.unibuddy.collegeBuddy.entity.Listing;
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.ListingRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class ConversationStartConcurrencyTest {
+
+    private static final int STARTERS = 32;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void start_CreatesTheConversationOnce() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User seller = saveUser("seller-" + suffix + "@example.com");
+        User buyer = saveUser("buyer-" + suffix + "@example.com");
+
+        Listing listing = new Listing();
+        listing.setTitle("Test Book");
+        listing.setDescription("A great textbook");
+        listing.setPrice(new BigDecimal("50.00"));
+        listing.setCategory("Books");
+        listing.setSeller(seller);
+        Listing saved = listingRepository.save(listing);
+
+        ConversationResponse response = conversationService.getOrCreateConversation(saved.getId(), buyer);
+
+        assertNotNull(response.getId());
+        assertEquals(saved.getId(), response.getListing().getId());
+        assertEquals(seller.getId(), response.getOtherUser().getId());
+        // Starting again returns the stored row instead of inserting another
+        assertEquals(response.getId(), conversationService.getOrCreateConversation(saved.getId(), buyer).getId());
+    }
+
+    @Test
+    void parallelStarts_AllGetTheSameConversation() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User seller = saveUser("seller-" + suffix + "@example.com");
+        User buyer = saveUser("buyer-" + suffix + "@example.com");
+
+        Listing listing = new Listing();
+        listing.setTitle("Bike");
+        listing.setDescription("Raced by many double taps");
+        listing.setPrice(new BigDecimal("80.00"));
+        listing.setCategory("Sports");
+        listing.setImages(List.of("bike.jpg"));
+        listing.setSeller(seller);
+        Listing saved = listingRepository.save(listing);
+
+        // Released together so the inserts really overlap
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService starters = Executors.newFixedThreadPool(STARTERS);
+        try {
+            List<Future<ConversationResponse>> results = new ArrayList<>();
+            for (int i = 0; i < STARTERS; i++) {
+                results.add(starters.submit(() -> {
+                    start.await();
+                    return conversationService.getOrCreateConversation(saved.getId(), buyer);
+                }));
+            }
+            start.countDown();
+
+            Set<UUID> ids = new HashSet<>();
+            for (Future<ConversationResponse> result : results) {
+                ConversationResponse response = result.get();
+                ids.add(response.getId());
+                assertEquals(seller.getId(), response.getOtherUser().getId());
+                assertEquals("bike.jpg", response.getListing().getFirstImage());
+            }
+            assertEquals(1, ids.size());
+        } finally {
+            starters.shutdown();
+        }
+
+        Integer stored = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM conversations WHERE listing_id = ? AND buyer_id = ?",
+                Integer.class, saved.getId(), buyer.getId());
+        assertEquals(1, stored);
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPasswordHash("hashedPassword");
+        user.setEmailVerified(true);
+        user.setRole(User.Role.STUDENT);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,113 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.unibuddy.collegeBuddy.dto.globalchat.GlobalChatResponse;
+import com.unibuddy.collegeBuddy.dto.globalchat.GlobalMessageResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalChatDirectoryTest {
+
+    private static final Long COLLEGE_ID = 7L;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final List<Message<?>> frames = new CopyOnWriteArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final UUID chatId = UUID.randomUUID();
+    private GlobalChatDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> frames.add(message));
+        directory = new GlobalChatDirectory(
+                new SharedPayloadBroadcaster(template, new ObjectMapper().registerModule(new JavaTimeModule())));
+        ReflectionTestUtils.setField(directory, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void loadRacingAMessage_IsNotInstalled() {
+        // The message commits after the loader read the chat but before the snapshot would go in
+        List<GlobalChatResponse> raced = directory.get(COLLEGE_ID, () -> {
+            List<GlobalChatResponse> chats = load();
+            directory.record(COLLEGE_ID, message("late", START));
+            return chats;
+        });
+
+        assertNull(raced.get(0).getLastMessage());
+        assertTrue(frames.isEmpty(), "no snapshot yet, so nobody needs the delta");
+
+        // The next read loads again instead of serving the list that missed the message
+        directory.get(COLLEGE_ID, this::load);
+        assertEquals(2, loads.get());
+        directory.get(COLLEGE_ID, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void outOfOrderCommits_OnlyMoveThePreviewForward() {
+        directory.get(COLLEGE_ID, this::load);
+
+        directory.record(COLLEGE_ID, message("newer", START.plusSeconds(2)));
+        directory.record(COLLEGE_ID, message("older", START.plusSeconds(1)));
+
+        GlobalChatResponse chat = directory.get(COLLEGE_ID, this::load).get(0);
+        assertEquals(1, loads.get());
+        assertEquals("newer", chat.getLastMessage().getMessageText());
+        assertEquals(12, chat.getMessageCount(), "both messages are counted");
+        assertEquals(2, frames.size());
+        assertEquals(GlobalChatDirectory.topic(COLLEGE_ID),
+                SimpMessageHeaderAccessor.getDestination(frames.get(0).getHeaders()));
+    }
+
+    @Test
+    void snapshot_IsRebuiltAfterTheTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(directory, "ttlMs", 50L);
+
+        directory.get(COLLEGE_ID, this::load);
+        directory.get(COLLEGE_ID, this::load);
+        assertEquals(1, loads.get());
+
+        Thread.sleep(80);
+
+        directory.get(COLLEGE_ID, this::load);
+        assertEquals(2, loads.get());
+        assertEquals(1L, directory.getMetrics().get("hits"));
+        assertEquals(2L, directory.getMetrics().get("misses"));
+    }
+
+    private List<GlobalChatResponse> load() {
+        loads.incrementAndGet();
+        GlobalChatResponse chat = new GlobalChatResponse();
+        chat.setId(chatId);
+        chat.setName("General");
+        chat.setCollegeId(COLLEGE_ID);
+        chat.setMessageCount(10L);
+        return List.of(chat);
+    }
+
+    private GlobalMessageResponse message(String text, LocalDateTime createdAt) {
+        GlobalMessageResponse.SenderInfo sender = new GlobalMessageResponse.SenderInfo();
+        sender.setId(UUID.randomUUID());
+        sender.setName("Ada");
+        GlobalMessageResponse message = new GlobalMessageResponse();
+        message.setId(UUID.randomUUID());
+        message.setGlobalChatId(chatId);
+        message.setMessageText(text);
+        message.setCreatedAt(createdAt);
+        message.setSender(sender);
+        return message;
+    }
+}
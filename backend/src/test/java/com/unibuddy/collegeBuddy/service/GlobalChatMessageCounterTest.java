@@ -0,0 +1,138 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.entity.GlobalChat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalChatMessageCounterTest {
+
+    private RecordingJdbcTemplate jdbcTemplate;
+    private GlobalChatMessageCounter counter;
+    private GlobalChat chat;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new RecordingJdbcTemplate();
+        counter = new GlobalChatMessageCounter(jdbcTemplate);
+        chat = new GlobalChat();
+        chat.setId(UUID.randomUUID());
+        chat.setMessageCount(10L);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void count_AddsPendingDeltaToTheColumn() {
+        assertEquals(10, counter.count(chat));
+
+        counter.increment(chat.getId());
+        counter.increment(chat.getId());
+
+        assertEquals(12, counter.count(chat));
+    }
+
+    @Test
+    void incrementAfterCommit_CountsOnlyOnceCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+        counter.incrementAfterCommit(chat.getId());
+
+        assertEquals(10, counter.count(chat), "not counted while the send is uncommitted");
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(11, counter.count(chat));
+    }
+
+    @Test
+    void incrementAfterCommit_IgnoresRolledBackSends() {
+        TransactionSynchronizationManager.initSynchronization();
+        counter.incrementAfterCommit(chat.getId());
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(10, counter.count(chat));
+
+        counter.flush();
+        assertTrue(jdbcTemplate.batches.isEmpty());
+    }
+
+    @Test
+    void flush_WritesDeltasAndResetsThem() {
+        UUID other = UUID.randomUUID();
+        counter.increment(chat.getId());
+        counter.increment(chat.getId());
+        counter.increment(other);
+
+        counter.flush();
+
+        assertEquals(1, jdbcTemplate.batches.size());
+        List<List<Object>> rows = jdbcTemplate.batches.get(0).stream().map(Arrays::asList).toList();
+        assertEquals(2, rows.size());
+        assertTrue(rows.contains(List.of(2L, chat.getId())));
+        assertTrue(rows.contains(List.of(1L, other)));
+
+        // Once flushed, the column carries the messages and nothing is written twice
+        assertEquals(10, counter.count(chat));
+        counter.flush();
+        assertEquals(1, jdbcTemplate.batches.size());
+    }
+
+    @Test
+    void flush_RestoresDeltasWhenTheUpdateFails() {
+        counter.increment(chat.getId());
+        counter.increment(chat.getId());
+        jdbcTemplate.failing = true;
+
+        counter.flush();
+
+        assertEquals(12, counter.count(chat), "a failed flush must not lose messages");
+
+        // Messages sent before the retry are added to the restored delta
+        counter.increment(chat.getId());
+        jdbcTemplate.failing = false;
+        counter.flush();
+
+        assertEquals(1, jdbcTemplate.batches.size());
+        assertEquals(List.of(3L, chat.getId()), Arrays.asList(jdbcTemplate.batches.get(0).get(0)));
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static final class RecordingJdbcTemplate extends JdbcTemplate {
+        private final List<List<Object[]>> batches = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (failing) {
+                throw new DataAccessResourceFailureException("Connection refused");
+            }
+            batches.add(List.copyOf(batchArgs));
+            return new int[batchArgs.size()];
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageArchiveTest {
+
+    private static final MessageArchive.Table TABLE = MessageArchive.Table.GLOBAL_MESSAGES;
+
+    @TempDir
+    Path directory;
+
+    private MessageArchive archive;
+    private final UUID room = UUID.randomUUID();
+    private final List<MessageArchive.ArchivedMessage> messages = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        archive = new MessageArchive(null, new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(archive, "directory", directory.toString());
+
+        // Two messages at the end of January, two at the start of February
+        LocalDateTime start = LocalDateTime.of(2025, 1, 31, 23, 58);
+        for (int i = 0; i < 4; i++) {
+            messages.add(new MessageArchive.ArchivedMessage(UUID.randomUUID(), room, i + 1, UUID.randomUUID(),
+                    "message " + i, null, start.plusMinutes(i)));
+        }
+    }
+
+    @Test
+    void reads_CrossMonthFilesInOrder() {
+        archive.write(TABLE, room, messages);
+
+        assertTrue(archive.hasHistory(TABLE, room));
+        assertFalse(archive.hasHistory(TABLE, UUID.randomUUID()));
+
+        assertEquals(List.of("message 3", "message 2", "message 1"),
+                texts(archive.readOlder(TABLE, room, null, null, 3)));
+        MessageArchive.ArchivedMessage february = messages.get(2);
+        assertEquals(List.of("message 1", "message 0"),
+                texts(archive.readOlder(TABLE, room, february.createdAt(), february.id(), 10)));
+
+        MessageArchive.ArchivedMessage first = messages.get(0);
+        assertEquals(List.of("message 1", "message 2"),
+                texts(archive.readNewer(TABLE, room, first.createdAt(), first.id(), 2)));
+        assertEquals(messages.get(3), archive.find(TABLE, room, messages.get(3).id()).orElseThrow());
+    }
+
+    @Test
+    void write_MergesRepeatedExportsById() {
+        archive.write(TABLE, room, messages.subList(0, 3));
+        // An interrupted export being re-run overlaps what was already written
+        archive.write(TABLE, room, messages.subList(1, 4));
+
+        assertEquals(List.of("message 3", "message 2", "message 1", "message 0"),
+                texts(archive.readOlder(TABLE, room, null, null, 10)));
+    }
+
+    private static List<String> texts(List<MessageArchive.ArchivedMessage> rows) {
+        return rows.stream().map(MessageArchive.ArchivedMessage::messageText).toList();
+    }
+}
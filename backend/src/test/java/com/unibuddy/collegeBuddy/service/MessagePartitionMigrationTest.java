@@ -0,0 +1,115 @@
+package com.unibuddy.collegeBuddy.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Flyway migrations over a database seeded at V7, the way production gets partitioned.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MessagePartitionMigrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    @Test
+    void partitioningKeepsRowsAndSeqGuard() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // Created by Hibernate rather than Flyway
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE colleges (id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL)");
+        jdbcTemplate.update("INSERT INTO colleges (id, name) VALUES (1, 'Test College')");
+
+        migrate(dataSource, "7");
+
+        UUID buyer = UUID.randomUUID();
+        UUID seller = UUID.randomUUID();
+        UUID listing = UUID.randomUUID();
+        UUID conversation = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id) VALUES (?), (?)", buyer, seller);
+        jdbcTemplate.update("""
+                INSERT INTO listings (id, title, description, price, category, seller_id)
+                VALUES (?, 'Desk', 'Oak desk', 40, 'Furniture', ?)
+                """, listing, seller);
+        jdbcTemplate.update("INSERT INTO conversations (id, listing_id, buyer_id, seller_id) VALUES (?, ?, ?, ?)",
+                conversation, listing, buyer, seller);
+        UUID globalChat = jdbcTemplate.queryForObject(
+                "SELECT id FROM global_chats WHERE name = 'General'", UUID.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime> sentAt = List.of(now.minusMonths(3), now.minusMonths(1), now);
+        for (int i = 0; i < sentAt.size(); i++) {
+            jdbcTemplate.update("""
+                    INSERT INTO messages (conversation_id, sender_id, message_text, created_at, seq)
+                    VALUES (?, ?, ?, ?, ?)
+                    """, conversation, buyer, "message " + i, Timestamp.valueOf(sentAt.get(i)), i + 1);
+            jdbcTemplate.update("""
+                    INSERT INTO global_messages (global_chat_id, sender_id, message_text, created_at, seq)
+                    VALUES (?, ?, ?, ?, ?)
+                    """, globalChat, seller, "message " + i, Timestamp.valueOf(sentAt.get(i)), i + 1);
+        }
+
+        migrate(dataSource, "latest");
+
+        for (String table : List.of("messages", "global_messages")) {
+            assertEquals("p", jdbcTemplate.queryForObject(
+                    "SELECT relkind::text FROM pg_class WHERE relname = ?", String.class, table));
+            assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class));
+            assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + "_legacy", Integer.class));
+            // Upcoming months were created beyond the legacy partition
+            assertTrue(jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) FROM pg_inherits i JOIN pg_class p ON p.oid = i.inhparent
+                    WHERE p.relname = ?
+                    """, Integer.class, table) >= 3);
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_constraint WHERE conname LIKE '%legacy_bound'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_index WHERE NOT indisvalid", Integer.class));
+
+        // New sends land in the partitioned tables, and a repeated (room, seq, created_at) is rejected
+        Timestamp nextSend = Timestamp.valueOf(now.plusSeconds(1));
+        jdbcTemplate.update("""
+                INSERT INTO messages (conversation_id, sender_id, message_text, created_at, seq)
+                VALUES (?, ?, 'message 3', ?, 4)
+                """, conversation, seller, nextSend);
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update("""
+                INSERT INTO messages (conversation_id, sender_id, message_text, created_at, seq)
+                VALUES (?, ?, 'duplicate', ?, 4)
+                """, conversation, seller, nextSend));
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update("""
+                INSERT INTO global_messages (global_chat_id, sender_id, message_text, created_at, seq)
+                VALUES (?, ?, 'duplicate', ?, 3)
+                """, globalChat, seller, Timestamp.valueOf(now)));
+
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT message_count FROM global_chats WHERE id = ?", Long.class, globalChat));
+    }
+
+    private static void migrate(DriverManagerDataSource dataSource, String target) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .target(target)
+                .load()
+                .migrate();
+    }
+}
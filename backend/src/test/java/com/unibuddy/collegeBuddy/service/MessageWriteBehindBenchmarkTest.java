@@ -0,0 +1,157 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import com.unibuddy.collegeBuddy.entity.College;
+import com.unibuddy.collegeBuddy.entity.GlobalChat;
+import com.unibuddy.collegeBuddy.entity.GlobalMessage;
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.CollegeRepository;
+import com.unibuddy.collegeBuddy.repository.GlobalChatRepository;
+import com.unibuddy.collegeBuddy.repository.GlobalMessageRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import com.unibuddy.collegeBuddy.util.TimeOrderedUuid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Persists the same burst of global chat messages through the per-message transaction path and
+ * through the write-behind queue (ack after commit), from enough threads to saturate the pool.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "app.chat.write-behind.enabled=true",
+        "app.chat.write-behind.durability=commit",
+        "spring.datasource.hikari.maximum-pool-size=10"
+})
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class MessageWriteBehindBenchmarkTest {
+
+    private static final int SENDERS = 32;
+    private static final int MESSAGES_PER_SENDER = 250;
+
+    @Autowired
+    private MessageWriteBehindQueue messageWriteBehindQueue;
+
+    @Autowired
+    private GlobalMessageRepository globalMessageRepository;
+
+    @Autowired
+    private GlobalChatRepository globalChatRepository;
+
+    @Autowired
+    private CollegeRepository collegeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomSequenceAllocator roomSequenceAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private GlobalChat globalChat;
+    private User sender;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+
+        College college = new College();
+        college.setName("Benchmark College " + suffix);
+        college.setDomain(suffix + ".edu");
+        college = collegeRepository.save(college);
+
+        globalChat = new GlobalChat();
+        globalChat.setCollege(college);
+        globalChat.setName("General");
+        globalChat = globalChatRepository.save(globalChat);
+
+        sender = new User();
+        sender.setName("Benchmark Sender");
+        sender.setEmail("sender@" + suffix + ".edu");
+        sender.setPasswordHash("hashedPassword");
+        sender.setEmailVerified(true);
+        sender.setRole(User.Role.STUDENT);
+        sender.setCollege(college);
+        sender = userRepository.save(sender);
+    }
+
+    @Test
+    void compareThroughputWithTransactionPerMessage() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        double perMessage = measure("transaction per message", () -> transaction.executeWithoutResult(status -> {
+            GlobalMessage message = new GlobalMessage();
+            message.setGlobalChat(globalChat);
+            message.setSender(sender);
+            message.setMessageText("benchmark");
+            message.setSeq(roomSequenceAllocator.nextForGlobalChat(globalChat.getId()));
+            globalMessageRepository.save(message);
+        }));
+
+        double writeBehind = measure("write-behind", () -> {
+            MessageWriteBehindQueue.PendingMessage message = new MessageWriteBehindQueue.PendingMessage(
+                    MessageWriteBehindQueue.Target.GLOBAL_CHAT, TimeOrderedUuid.next(), globalChat.getId(),
+                    roomSequenceAllocator.nextForGlobalChat(globalChat.getId()), sender.getId(), "benchmark", null, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+            messageWriteBehindQueue.enqueue(message);
+            messageWriteBehindQueue.awaitDurability(message);
+        });
+
+        System.out.printf("Write-behind speedup: %.1fx%n", writeBehind / perMessage);
+        Integer stored = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM global_messages WHERE global_chat_id = ?", Integer.class, globalChat.getId());
+        assertEquals(2 * SENDERS * MESSAGES_PER_SENDER, stored);
+        assertEquals(0L, messageWriteBehindQueue.getMetrics().get("failed"));
+    }
+
+    private double measure(String name, Runnable send) throws Exception {
+        ExecutorService senders = Executors.newFixedThreadPool(SENDERS);
+        try {
+            long startedAt = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < SENDERS; i++) {
+                results.add(senders.submit(() -> {
+                    for (int j = 0; j < MESSAGES_PER_SENDER; j++) {
+                        send.run();
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            double throughput = SENDERS * MESSAGES_PER_SENDER / seconds;
+            System.out.printf("%-24s %8.0f messages/s (%.2f s)%n", name, throughput, seconds);
+            return throughput;
+        } finally {
+            senders.shutdown();
+        }
+    }
+}
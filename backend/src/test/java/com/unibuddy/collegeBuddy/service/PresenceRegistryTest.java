@@ -0,0 +1,118 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresenceRegistryTest {
+
+    private static final String ROOM = "global-chat/" + UUID.randomUUID();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Message<?>> frames = new CopyOnWriteArrayList<>();
+    private PresenceRegistry presence;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> frames.add(message));
+        SharedPayloadBroadcaster broadcaster = new SharedPayloadBroadcaster(template, objectMapper);
+        presence = new PresenceRegistry(
+                new StaticListableBeanFactory(Map.of("broadcaster", broadcaster)).getBeanProvider(SharedPayloadBroadcaster.class));
+        ReflectionTestUtils.setField(presence, "sessionTtlMs", 30_000L);
+        ReflectionTestUtils.setField(presence, "typingTtlMs", 50L);
+        ReflectionTestUtils.setField(presence, "tickMs", 10L);
+    }
+
+    @Test
+    void changesWithinAnInterval_AreMergedIntoOneDelta() throws Exception {
+        UUID ada = UUID.randomUUID();
+        UUID alan = UUID.randomUUID();
+        connect("s1", ada);
+        connect("s2", alan);
+        subscribe("s1", "/topic/" + ROOM + "/presence");
+        subscribe("s2", "/topic/" + ROOM + "/presence");
+        presence.onUnsubscribe(new SessionUnsubscribeEvent(this, subscription(StompCommand.UNSUBSCRIBE, "s2", null)));
+
+        presence.flush();
+        presence.flush();
+
+        assertEquals(1, frames.size());
+        JsonNode update = body(0);
+        assertEquals("/topic/" + ROOM + "/presence", SimpMessageHeaderAccessor.getDestination(frames.get(0).getHeaders()));
+        assertEquals(1, update.get("count").asInt());
+        assertEquals(ada.toString(), update.get("online").get(0).asText());
+        assertEquals(alan.toString(), update.get("offline").get(0).asText());
+    }
+
+    @Test
+    void typing_ExpiresOnTheWheel() throws Exception {
+        UUID ada = UUID.randomUUID();
+        connect("s1", ada);
+        subscribe("s1", "/topic/" + ROOM + "/presence");
+        presence.typing(ROOM, ada, true);
+        presence.flush();
+        assertEquals(ada.toString(), body(0).get("typing").get(0).asText());
+
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (presence.snapshot(ROOM).typing().size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            presence.tick();
+        }
+        presence.flush();
+
+        assertTrue(presence.snapshot(ROOM).typing().isEmpty());
+        assertEquals(ada.toString(), body(1).get("stoppedTyping").get(0).asText());
+    }
+
+    @Test
+    void typing_IsIgnoredOutsideTheRoom() {
+        presence.typing(ROOM, UUID.randomUUID(), true);
+        presence.flush();
+
+        assertTrue(frames.isEmpty());
+    }
+
+    private void connect(String sessionId, UUID userId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        presence.onConnect(new SessionConnectEvent(this,
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), userId::toString));
+    }
+
+    private void subscribe(String sessionId, String destination) {
+        presence.onSubscribe(new SessionSubscribeEvent(this, subscription(StompCommand.SUBSCRIBE, sessionId, destination)));
+    }
+
+    private static Message<byte[]> subscription(StompCommand command, String sessionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-" + sessionId);
+        if (destination != null) {
+            accessor.setDestination(destination);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private JsonNode body(int frame) throws Exception {
+        return objectMapper.readTree((byte[]) frames.get(frame).getPayload());
+    }
+}
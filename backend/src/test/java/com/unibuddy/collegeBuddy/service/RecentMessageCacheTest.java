@@ -0,0 +1,103 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.dto.message.MessageHistoryResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentMessageCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private RecentMessageCache cache;
+    private final String room = RecentMessageCache.globalChatRoom(UUID.randomUUID());
+    private final List<RecentMessageCache.Entry> sent = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecentMessageCache();
+        ReflectionTestUtils.setField(cache, "messagesPerRoom", 4);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+    }
+
+    @Test
+    void appendedMessages_ServeLatestAndCatchUpReads() {
+        for (int i = 0; i < 6; i++) {
+            send("message " + i);
+        }
+
+        MessageHistoryResponse<String> latest = window(MessageHistoryResponse.Direction.LATEST, null, 2);
+        assertEquals(List.of("message 4", "message 5"), latest.getContent());
+        assertTrue(latest.isHasOlder());
+
+        MessageHistoryResponse<String> catchUp = window(MessageHistoryResponse.Direction.AFTER, sent.get(3).id(), 5);
+        assertEquals(List.of("message 4", "message 5"), catchUp.getContent());
+        assertFalse(catchUp.isHasNewer());
+
+        // Only the last four fit, and the buffer cannot know what came before them
+        assertTrue(cache.window(room, MessageHistoryResponse.Direction.LATEST, null, 10, String.class).isEmpty());
+        assertTrue(cache.window(room, MessageHistoryResponse.Direction.AFTER, sent.get(0).id(), 2, String.class).isEmpty());
+    }
+
+    @Test
+    void completeSeed_AnswersShortHistoriesWithoutOlderPages() {
+        send("first");
+        send("second");
+        cache.seed(room, List.of(sent.get(1), sent.get(0)), true);
+
+        MessageHistoryResponse<String> latest = window(MessageHistoryResponse.Direction.LATEST, null, 50);
+        assertEquals(List.of("first", "second"), latest.getContent());
+        assertFalse(latest.isHasOlder());
+
+        MessageHistoryResponse<String> older = window(MessageHistoryResponse.Direction.BEFORE, sent.get(1).id(), 50);
+        assertEquals(List.of("first"), older.getContent());
+        assertFalse(older.isHasOlder());
+    }
+
+    @Test
+    void memoryCeiling_EvictsLeastRecentlyUsedRoom() {
+        ReflectionTestUtils.setField(cache, "maxBytes", 900L);
+        String coldRoom = RecentMessageCache.conversationRoom(UUID.randomUUID());
+        cache.append(coldRoom, entry("cold", 0));
+        send("hot 1");
+        send("hot 2");
+
+        assertTrue(cache.window(coldRoom, MessageHistoryResponse.Direction.LATEST, null, 0, String.class).isEmpty());
+        assertEquals(1L, cache.getMetrics().get("evictions"));
+        assertTrue((Long) cache.getMetrics().get("estimatedBytes") <= 900L);
+    }
+
+    @Test
+    void sameTimestamp_OrdersIdsAsUnsignedLikePostgres() {
+        // Signed comparison puts the 8000... id first; Postgres, comparing bytes, puts it last
+        UUID low = UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff");
+        UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+        cache.seed(room, List.of(), true);
+        cache.append(room, RecentMessageCache.entry(high, START, "high", "high", null));
+        cache.append(room, RecentMessageCache.entry(low, START, "low", "low", null));
+
+        assertEquals(List.of("low", "high"), window(MessageHistoryResponse.Direction.LATEST, null, 10).getContent());
+        assertEquals(List.of("high"), window(MessageHistoryResponse.Direction.AFTER, low, 10).getContent());
+    }
+
+    private void send(String text) {
+        RecentMessageCache.Entry entry = entry(text, sent.size() + 1);
+        sent.add(entry);
+        cache.append(room, entry);
+    }
+
+    private static RecentMessageCache.Entry entry(String text, int second) {
+        return RecentMessageCache.entry(UUID.randomUUID(), START.plusSeconds(second), text, text, null);
+    }
+
+    private MessageHistoryResponse<String> window(MessageHistoryResponse.Direction direction, UUID cursor, int limit) {
+        return cache.window(room, direction, cursor, limit, String.class).orElseThrow();
+    }
+}
@@ -0,0 +1,159 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import com.unibuddy.collegeBuddy.repository.GlobalMessageRepository;
+import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two allocators stand in for two nodes sharing one database
+@SpringBootTest
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+public class RoomSequenceAllocatorClusterTest {
+
+    private static final int SENDERS_PER_NODE = 8;
+    private static final int SENDS_PER_SENDER = 100;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private GlobalMessageRepository globalMessageRepository;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RoomSequenceAllocator first;
+    private RoomSequenceAllocator second;
+
+    @BeforeEach
+    void setUp() {
+        // Created by V10, which the Hibernate-built test schema does not run
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS room_sequences (room_id UUID PRIMARY KEY, last_seq BIGINT NOT NULL)");
+        first = node();
+        second = node();
+    }
+
+    @Test
+    void nodesShareOneCounterPerRoom() {
+        UUID room = UUID.randomUUID();
+
+        assertEquals(1, first.nextForGlobalChat(room));
+        assertEquals(2, second.nextForGlobalChat(room), "a node seeding later must not start over");
+        assertEquals(3, first.nextForGlobalChat(room));
+        assertEquals(4, second.nextForGlobalChat(room));
+    }
+
+    @Test
+    void seedingNeverMovesTheCounterBackwards() {
+        UUID room = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO room_sequences (room_id, last_seq) VALUES (?, 7)", room);
+
+        assertEquals(8, first.nextForConversation(room));
+        assertEquals(9, second.nextForConversation(room));
+    }
+
+    @Test
+    void allocation_DoesNotHoldTheRowUntilTheSendCommits() throws Exception {
+        UUID room = UUID.randomUUID();
+        assertEquals(1, first.nextForConversation(room));
+
+        CountDownLatch allocated = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // A send that allocates and then stays open
+            Future<?> openSend = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                assertEquals(2, first.nextForConversation(room));
+                allocated.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            allocated.await();
+
+            Future<Long> otherNode = executor.submit(() -> second.nextForConversation(room));
+            assertEquals(3, otherNode.get(2, TimeUnit.SECONDS), "the other node must not wait for the open send");
+
+            release.countDown();
+            openSend.get();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentSendsOnBothNodes_NeverRepeatANumber() throws Exception {
+        UUID room = UUID.randomUUID();
+        Set<Long> allocated = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2 * SENDERS_PER_NODE);
+        try {
+            List<Future<?>> senders = new ArrayList<>();
+            for (RoomSequenceAllocator node : List.of(first, second)) {
+                for (int i = 0; i < SENDERS_PER_NODE; i++) {
+                    senders.add(executor.submit(() -> {
+                        start.await();
+                        for (int j = 0; j < SENDS_PER_SENDER; j++) {
+                            assertTrue(allocated.add(node.nextForConversation(room)));
+                        }
+                        return null;
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<?> sender : senders) {
+                sender.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<Long> expected = LongStream.rangeClosed(1, 2L * SENDERS_PER_NODE * SENDS_PER_SENDER)
+                .boxed().collect(Collectors.toSet());
+        assertEquals(expected, allocated);
+    }
+
+    private RoomSequenceAllocator node() {
+        RoomSequenceAllocator allocator = new RoomSequenceAllocator(
+                messageRepository, globalMessageRepository, messageArchive, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(allocator, "clusterEnabled", true);
+        return allocator;
+    }
+}
@@ -0,0 +1,154 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import com.unibuddy.collegeBuddy.repository.GlobalMessageRepository;
+import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The H2 test profile cannot boot (Flyway V1 is Postgres-only), so this runs on the Postgres base too
+@SpringBootTest
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class RoomSequenceAllocatorTest {
+
+    private static final int SENDERS = 16;
+    private static final int SENDS_PER_SENDER = 250;
+
+    @Autowired
+    private RoomSequenceAllocator allocator;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private GlobalMessageRepository globalMessageRepository;
+
+    @Autowired
+    private MessageArchive messageArchive;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentFirstSends_SeedOnceAndNeverRepeatANumber() throws Exception {
+        UUID conversationId = UUID.randomUUID();
+        Set<Long> allocated = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        try {
+            List<Future<?>> senders = new ArrayList<>();
+            for (int i = 0; i < SENDERS; i++) {
+                senders.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < SENDS_PER_SENDER; j++) {
+                        assertTrue(allocated.add(allocator.nextForConversation(conversationId)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> sender : senders) {
+                sender.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<Long> expected = LongStream.rangeClosed(1, SENDERS * SENDS_PER_SENDER).boxed().collect(Collectors.toSet());
+        assertEquals(expected, allocated);
+    }
+
+    @Test
+    void roomsAreNumberedIndependently() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertEquals(1, allocator.nextForGlobalChat(first));
+        assertEquals(2, allocator.nextForGlobalChat(first));
+        assertEquals(1, allocator.nextForGlobalChat(second));
+        assertEquals(1, allocator.nextForConversation(first));
+    }
+
+    @Test
+    void rolledBackSend_HandsItsNumberBack() {
+        UUID room = UUID.randomUUID();
+        assertEquals(1, allocator.nextForConversation(room));
+
+        TransactionTemplate send = new TransactionTemplate(transactionManager);
+        send.executeWithoutResult(status -> {
+            assertEquals(2, allocator.nextForConversation(room));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(2, allocator.nextForConversation(room), "the number of the rolled-back send is reused");
+    }
+
+    @Test
+    void withdrawnWriteBehindMessage_HandsItsNumberBackUnlessALaterOneWentOut() {
+        UUID room = UUID.randomUUID();
+        CompletableFuture<Void> withdrawn = new CompletableFuture<>();
+        CompletableFuture<Void> written = new CompletableFuture<>();
+
+        assertEquals(1, allocator.nextForGlobalChat(room, withdrawn));
+        withdrawn.cancel(false);
+        assertEquals(1, allocator.nextForGlobalChat(room, written));
+
+        // 2 is withdrawn after 3 went out, so handing it back would repeat 3
+        CompletableFuture<Void> late = new CompletableFuture<>();
+        assertEquals(2, allocator.nextForGlobalChat(room, late));
+        assertEquals(3, allocator.nextForGlobalChat(room));
+        late.cancel(false);
+        written.complete(null);
+        assertEquals(4, allocator.nextForGlobalChat(room));
+    }
+
+    @Test
+    void idleRooms_AreEvictedButRoomsWithNumbersInFlightStay() {
+        RoomSequenceAllocator bounded = new RoomSequenceAllocator(
+                messageRepository, globalMessageRepository, messageArchive, jdbcTemplate, transactionManager);
+        // One room per stripe
+        ReflectionTestUtils.setField(bounded, "maxRooms", 64);
+        bounded.initialize();
+
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        UUID busy = UUID.randomUUID();
+        assertEquals(1, bounded.nextForConversation(busy, pending));
+        for (int i = 0; i < 1000; i++) {
+            bounded.nextForConversation(UUID.randomUUID());
+        }
+
+        assertTrue((int) bounded.getMetrics().get("rooms") <= 64 + 1);
+        // Still counting from memory: reseeding from MAX(seq) would hand out 1 again
+        assertEquals(2, bounded.nextForConversation(busy));
+        pending.complete(null);
+    }
+}
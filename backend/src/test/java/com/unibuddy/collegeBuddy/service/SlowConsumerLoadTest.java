@@ -0,0 +1,194 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.entity.College;
+import com.unibuddy.collegeBuddy.entity.GlobalChat;
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.CollegeRepository;
+import com.unibuddy.collegeBuddy.repository.GlobalChatRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import com.unibuddy.collegeBuddy.util.JwtUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A room of 100 WebSocket clients receiving a stream of 2 KB chat frames, where 10 of them stop
+ * reading after their first frame. Heap in use after GC is sampled as the stream goes on: the
+ * stalled sessions are evicted once their writes stop completing, so it stays flat instead of
+ * growing with every frame queued for them (about 200 MB over this run without eviction).
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.chat.channels.send-time-limit-ms=1000",
+        "app.chat.channels.sweep-ms=200"
+})
+@ActiveProfiles("test")
+public class SlowConsumerLoadTest {
+
+    private static final int CLIENTS = 100;
+    private static final int STALLED = CLIENTS / 10;
+    private static final int MESSAGES = 10_000;
+    private static final int SAMPLE_EVERY = 1_000;
+    // Healthy clients may fall this far behind before the sender waits for them
+    private static final int MAX_LAG = 1_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SharedPayloadBroadcaster broadcaster;
+
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    @Autowired
+    private StompChannelExecutors stompChannelExecutors;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CollegeRepository collegeRepository;
+
+    @Autowired
+    private GlobalChatRepository globalChatRepository;
+
+    @Test
+    void heapStaysFlatWhileATenthOfClientsStall() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        College college = new College();
+        college.setName("Load College " + suffix);
+        college.setDomain(suffix + ".edu");
+        college = collegeRepository.save(college);
+
+        GlobalChat globalChat = new GlobalChat();
+        globalChat.setCollege(college);
+        globalChat.setName("General");
+        globalChat = globalChatRepository.save(globalChat);
+
+        User user = new User();
+        user.setName("Load User");
+        user.setEmail("load@" + suffix + ".edu");
+        user.setPasswordHash("hashedPassword");
+        user.setEmailVerified(true);
+        user.setRole(User.Role.STUDENT);
+        user.setCollege(college);
+        user = userRepository.save(user);
+
+        String token = jwtUtils.generateToken(user);
+        String topic = "/topic/global-chat/" + globalChat.getId();
+        HttpClient http = HttpClient.newHttpClient();
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(new Client(i < STALLED));
+        }
+        for (Client client : clients) {
+            client.socket = http.newWebSocketBuilder()
+                    .buildAsync(URI.create("ws://localhost:" + port + "/ws/websocket"), client).join();
+            client.socket.sendText("CONNECT\naccept-version:1.2\nheart-beat:0,0\nAuthorization:Bearer " + token + "\n\n\0", true).join();
+            client.socket.sendText("SUBSCRIBE\nid:0\ndestination:" + topic + "\n\n\0", true).join();
+        }
+
+        // Keep announcing until every client is subscribed; the stalled ones stop reading after this
+        String text = "x".repeat(2_000);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (clients.stream().anyMatch(c -> c.received.get() == 0) && System.currentTimeMillis() < deadline) {
+            broadcaster.send(topic, Map.of("messageText", "hello"));
+            Thread.sleep(50);
+        }
+        assertTrue(clients.stream().allMatch(c -> c.received.get() > 0), "every client subscribed");
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<Long> heap = new ArrayList<>();
+        heap.add(usedHeap(memory));
+        long start = System.nanoTime();
+        for (int m = 1; m <= MESSAGES; m++) {
+            broadcaster.send(topic, Map.of("seq", m, "messageText", text));
+            if (m % 100 == 0) {
+                long sent = m;
+                while (healthy(clients).mapToLong(c -> c.received.get()).min().orElse(0) < sent - MAX_LAG) {
+                    Thread.sleep(1);
+                }
+            }
+            if (m % SAMPLE_EVERY == 0) {
+                heap.add(usedHeap(memory));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d frames to %d clients (%d stalled) in %.1f s%n", MESSAGES, CLIENTS, STALLED, seconds);
+        System.out.printf("%-10s %12s%n", "frames", "heap (MB)");
+        for (int i = 0; i < heap.size(); i++) {
+            System.out.printf("%-10d %12.1f%n", i * SAMPLE_EVERY, heap.get(i) / 1e6);
+        }
+        System.out.println("slow consumers: " + slowConsumerGuard.getMetrics());
+        System.out.println("channels: " + stompChannelExecutors.getMetrics());
+
+        assertEquals(STALLED, (long) slowConsumerGuard.getMetrics().get("evictions"));
+        long growth = heap.get(heap.size() - 1) - heap.get(1);
+        assertTrue(growth < 32_000_000, "heap grew by " + growth / 1_000_000 + " MB");
+
+        for (Client client : clients) {
+            client.socket.abort();
+        }
+    }
+
+    private static Stream<Client> healthy(List<Client> clients) {
+        return clients.stream().filter(c -> !c.stalled);
+    }
+
+    private static long usedHeap(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    // Counts MESSAGE frames; a stalled client never asks for another one after its first
+    private static final class Client implements WebSocket.Listener {
+        private final boolean stalled;
+        private final AtomicLong received = new AtomicLong();
+        private final StringBuilder partial = new StringBuilder();
+        private WebSocket socket;
+
+        private Client(boolean stalled) {
+            this.stalled = stalled;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                if (partial.indexOf("MESSAGE") == 0) {
+                    received.incrementAndGet();
+                }
+                partial.setLength(0);
+            }
+            if (!stalled || received.get() == 0) {
+                webSocket.request(1);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
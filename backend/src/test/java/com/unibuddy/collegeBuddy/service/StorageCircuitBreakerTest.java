@@ -0,0 +1,221 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.unibuddy.collegeBuddy.exception.StorageUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs S3SupabaseStorageService against an in-process S3 stand-in that can be told to
+ * stall or fail, and checks that the timeouts and the circuit breaker keep callers fast.
+ */
+class StorageCircuitBreakerTest {
+
+    private FaultInjectingS3 s3;
+    private S3SupabaseStorageService storage;
+    private StorageCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        s3 = new FaultInjectingS3();
+
+        circuitBreaker = new StorageCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(circuitBreaker, "openDurationMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) {
+            storage.closeS3Client();
+        }
+        s3.stop();
+    }
+
+    @Test
+    void healthyStorage_RecordsLatency() throws IOException {
+        // A cold client's first request pays for class loading and the connection, so it gets
+        // production-sized timeouts; only the fault cases below need to time out quickly
+        storage = newStorage(10_000L, 5_000L, 2_000L, 5_000L);
+
+        String url = circuitBreaker.call("store", () -> storage.store("chats/a.png", image()));
+
+        assertTrue(url.endsWith("/uploads/chats/a.png"));
+        assertEquals(StorageCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(1L, operation("store").get("calls"));
+        assertEquals(0L, operation("store").get("errors"));
+    }
+
+    @Test
+    void stalledStorage_TimesOutInsteadOfBlocking() {
+        storage = newStorage(500L, 300L, 200L, 300L);
+        s3.delayMs = 5_000;
+
+        long startedAt = System.nanoTime();
+        assertThrows(RuntimeException.class,
+                () -> circuitBreaker.call("store", () -> storage.store("chats/b.png", image())));
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        assertTrue(elapsedMs < 2_000, "upload blocked for " + elapsedMs + " ms");
+        assertEquals(1L, operation("store").get("errors"));
+    }
+
+    @Test
+    void failingStorage_OpensCircuitAndFailsFast() {
+        storage = newStorage(500L, 300L, 200L, 300L);
+        s3.failWithStatus = 500;
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RuntimeException.class,
+                    () -> circuitBreaker.call("store", () -> storage.store("chats/c.png", image())));
+        }
+        assertEquals(StorageCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        int requestsWhenOpened = s3.requests.get();
+
+        long startedAt = System.nanoTime();
+        assertThrows(StorageUnavailableException.class,
+                () -> circuitBreaker.call("store", () -> storage.store("chats/d.png", image())));
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        assertTrue(elapsedMs < 50, "rejected call took " + elapsedMs + " ms");
+        assertEquals(requestsWhenOpened, s3.requests.get());
+        assertEquals(1L, operation("store").get("rejected"));
+        assertEquals(1L, circuitBreaker.getMetrics().get("circuitOpened"));
+    }
+
+    private S3SupabaseStorageService newStorage(long apiCallTimeoutMs, long apiCallAttemptTimeoutMs,
+                                                long connectionTimeoutMs, long socketTimeoutMs) {
+        S3SupabaseStorageService service = new S3SupabaseStorageService();
+        ReflectionTestUtils.setField(service, "s3Endpoint", s3.endpoint());
+        ReflectionTestUtils.setField(service, "s3Region", "us-east-1");
+        ReflectionTestUtils.setField(service, "s3AccessKey", "test");
+        ReflectionTestUtils.setField(service, "s3SecretKey", "test");
+        ReflectionTestUtils.setField(service, "bucketName", "uploads");
+        ReflectionTestUtils.setField(service, "projectId", "test");
+        ReflectionTestUtils.setField(service, "apiCallTimeoutMs", apiCallTimeoutMs);
+        ReflectionTestUtils.setField(service, "apiCallAttemptTimeoutMs", apiCallAttemptTimeoutMs);
+        ReflectionTestUtils.setField(service, "connectionTimeoutMs", connectionTimeoutMs);
+        ReflectionTestUtils.setField(service, "socketTimeoutMs", socketTimeoutMs);
+        ReflectionTestUtils.setField(service, "maxConnections", 4);
+        ReflectionTestUtils.setField(service, "connectionAcquisitionTimeoutMs", 100L);
+        ReflectionTestUtils.setField(service, "maxRetries", 0);
+        service.initializeS3Client();
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> operation(String name) {
+        Map<String, Object> operations = (Map<String, Object>) circuitBreaker.getMetrics().get("operations");
+        return (Map<String, Object>) operations.get(name);
+    }
+
+    private static MockMultipartFile image() {
+        return new MockMultipartFile("image", "photo.png", "image/png", "0123456789".getBytes());
+    }
+
+    /**
+     * Minimal path-style S3 PUT endpoint with injectable latency and error responses
+     */
+    private static class FaultInjectingS3 {
+        private final HttpServer server;
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile long delayMs;
+        private volatile int failWithStatus;
+
+        FaultInjectingS3() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", this::handle);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+        }
+
+        String endpoint() {
+            return "http://localhost:" + server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            byte[] body = readBody(exchange);
+            try {
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (failWithStatus > 0) {
+                byte[] error = "<Error><Code>InternalError</Code></Error>".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(failWithStatus, error.length);
+                exchange.getResponseBody().write(error);
+            } else {
+                // The SDK checks the returned ETag against the MD5 of what it sent
+                exchange.getResponseHeaders().add("ETag", "\"" + md5(body) + "\"");
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        }
+
+        private static byte[] readBody(HttpExchange exchange) throws IOException {
+            byte[] raw;
+            try (InputStream in = exchange.getRequestBody()) {
+                raw = in.readAllBytes();
+            }
+            // Plain-HTTP uploads are sent as signed aws-chunked frames: "<hex size>;chunk-signature=...\r\n<data>\r\n"
+            if (exchange.getRequestHeaders().getFirst("x-amz-decoded-content-length") == null) {
+                return raw;
+            }
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            int position = 0;
+            while (position < raw.length) {
+                int headerEnd = indexOfCrlf(raw, position);
+                String header = new String(raw, position, headerEnd - position, StandardCharsets.US_ASCII);
+                int size = Integer.parseInt(header.split(";")[0], 16);
+                if (size == 0) {
+                    break;
+                }
+                decoded.write(raw, headerEnd + 2, size);
+                position = headerEnd + 2 + size + 2;
+            }
+            return decoded.toByteArray();
+        }
+
+        private static int indexOfCrlf(byte[] bytes, int from) {
+            for (int i = from; i < bytes.length - 1; i++) {
+                if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                    return i;
+                }
+            }
+            return bytes.length;
+        }
+
+        private static String md5(byte[] body) {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(body));
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import com.unibuddy.collegeBuddy.entity.Conversation;
+import com.unibuddy.collegeBuddy.entity.Listing;
+import com.unibuddy.collegeBuddy.entity.Message;
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.ConversationRepository;
+import com.unibuddy.collegeBuddy.repository.GlobalMessageRepository;
+import com.unibuddy.collegeBuddy.repository.ListingRepository;
+import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The listing mark query unnests a jsonb column, which H2 cannot run
+@SpringBootTest
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional
+public class StorageGarbageCollectorTest {
+
+    private static final String BASE_URL = "http://localhost:8080";
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(3));
+
+    @TempDir
+    Path uploadDir;
+
+    @TempDir
+    Path archiveDir;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private GlobalMessageRepository globalMessageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private LocalFileStorageService storage;
+    private MessageArchive archive;
+    private StorageGarbageCollector collector;
+    private User seller;
+    private Listing listing;
+    private Conversation conversation;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new LocalFileStorageService();
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(storage, "baseUrl", BASE_URL);
+        ReflectionTestUtils.setField(storage, "fsync", "none");
+        storage.initialize();
+
+        archive = new MessageArchive(null, objectMapper);
+        ReflectionTestUtils.setField(archive, "directory", archiveDir.toString());
+
+        collector = new StorageGarbageCollector(storage, listingRepository, messageRepository,
+                globalMessageRepository, archive, transactionManager);
+        ReflectionTestUtils.setField(collector, "gracePeriodHours", 24L);
+        ReflectionTestUtils.setField(collector, "pageSize", 2);
+        ReflectionTestUtils.setField(collector, "batchSize", 100);
+        ReflectionTestUtils.setField(collector, "batchIntervalMs", 0L);
+        ReflectionTestUtils.setField(collector, "dryRun", false);
+
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        seller = saveUser("gc-seller-" + suffix + "@example.com");
+        User buyer = saveUser("gc-buyer-" + suffix + "@example.com");
+
+        listing = new Listing();
+        listing.setTitle("Bike");
+        listing.setDescription("A listing used by the storage GC test");
+        listing.setPrice(new BigDecimal("40.00"));
+        listing.setCategory("Sports");
+        listing.setImages(new ArrayList<>());
+        listing.setSeller(seller);
+        listing = listingRepository.save(listing);
+
+        conversation = new Conversation();
+        conversation.setListing(listing);
+        conversation.setBuyer(buyer);
+        conversation.setSeller(seller);
+        conversation = conversationRepository.saveAndFlush(conversation);
+    }
+
+    @Test
+    void collect_DeletesOnlyUnreferencedObjects() throws IOException {
+        String listingImage = storeSharded("marketplace", OLD);
+        String chatImage = storeSharded("chats", OLD);
+        String orphan = storeSharded("chats", OLD);
+        referenceFromListing(listingImage);
+        referenceFromMessage(chatImage);
+
+        StorageGarbageCollector.Report report = collector.collect();
+
+        assertEquals(3, report.getScanned());
+        assertEquals(2, report.getReferenced());
+        assertEquals(1, report.getDeleted());
+        assertTrue(exists(listingImage));
+        assertTrue(exists(chatImage));
+        assertFalse(exists(orphan));
+    }
+
+    @Test
+    void collect_KeepsImagesOfArchivedMessages() throws IOException {
+        String archivedImage = storeSharded("chats", OLD);
+        String orphan = storeSharded("chats", OLD);
+        // Its partition has been exported and dropped, so no table references it any more
+        archive.write(MessageArchive.Table.MESSAGES, conversation.getId(), List.of(
+                new MessageArchive.ArchivedMessage(UUID.randomUUID(), conversation.getId(), 1, seller.getId(),
+                        "photo", BASE_URL + "/api/files/" + archivedImage, LocalDateTime.now().minusYears(2))));
+
+        StorageGarbageCollector.Report report = collector.collect();
+
+        assertEquals(1, report.getReferenced());
+        assertEquals(1, report.getDeleted());
+        assertTrue(exists(archivedImage));
+        assertFalse(exists(orphan));
+    }
+
+    @Test
+    void collect_KeepsObjectsInsideTheGracePeriod() throws IOException {
+        // An upload whose row has not been committed yet looks exactly like an orphan
+        String inFlight = storeSharded("chats", Instant.now().minus(Duration.ofHours(1)));
+        String orphan = storeSharded("chats", OLD);
+
+        StorageGarbageCollector.Report report = collector.collect();
+
+        assertEquals(1, report.getDeleted());
+        assertTrue(exists(inFlight));
+        assertFalse(exists(orphan));
+    }
+
+    @Test
+    void collect_HandlesLegacyAndShardedKeys() throws IOException {
+        String legacyReferenced = storeLegacy("marketplace", OLD);
+        String legacyOrphan = storeLegacy("chats", OLD);
+        String shardedReferenced = storeSharded("marketplace", OLD);
+        String shardedOrphan = storeSharded("chats", OLD);
+        referenceFromListing(legacyReferenced);
+        referenceFromListing(shardedReferenced);
+        Path foreign = Files.writeString(uploadDir.resolve("README.txt"), "not an upload");
+        Files.setLastModifiedTime(foreign, FileTime.from(OLD));
+
+        StorageGarbageCollector.Report report = collector.collect();
+
+        assertEquals(5, report.getScanned());
+        assertEquals(2, report.getDeleted());
+        assertTrue(exists(legacyReferenced));
+        assertTrue(exists(shardedReferenced));
+        assertFalse(exists(legacyOrphan));
+        assertFalse(exists(shardedOrphan));
+        assertTrue(Files.exists(foreign), "keys without an object id are never touched");
+    }
+
+    @Test
+    void dryRun_ReportsWithoutDeleting() throws IOException {
+        ReflectionTestUtils.setField(collector, "dryRun", true);
+        String orphan = storeSharded("chats", OLD);
+        long size = storage.findLocalFile(orphan).map(this::size).orElseThrow();
+
+        StorageGarbageCollector.Report report = collector.collect();
+
+        assertEquals(1, report.getDeleted());
+        assertEquals(size, report.getReclaimedBytes());
+        assertTrue(exists(orphan));
+    }
+
+    @Test
+    void sweep_PausesBetweenBatches() throws IOException {
+        ReflectionTestUtils.setField(collector, "batchSize", 2);
+        ReflectionTestUtils.setField(collector, "batchIntervalMs", 200L);
+        List<String> orphans = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orphans.add(storeSharded("chats", OLD));
+        }
+
+        long start = System.nanoTime();
+        StorageGarbageCollector.Report report = collector.collect();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3, report.getBatches());
+        assertEquals(5, report.getDeleted());
+        assertTrue(elapsedMs >= 400, "two pauses between three batches, took " + elapsedMs + " ms");
+        assertTrue(orphans.stream().noneMatch(this::exists));
+    }
+
+    private String storeSharded(String folder, Instant lastModified) throws IOException {
+        String key = folder + "/" + UUID.randomUUID() + ".png";
+        storage.store(key, new MockMultipartFile("file", "image.png", "image/png", new byte[]{1, 2, 3}));
+        Files.setLastModifiedTime(storage.findLocalFile(key).orElseThrow(), FileTime.from(lastModified));
+        return key;
+    }
+
+    // Written before sharding: directly under the folder, no hash directories
+    private String storeLegacy(String folder, Instant lastModified) throws IOException {
+        String key = folder + "/" + UUID.randomUUID() + ".jpg";
+        Path path = uploadDir.resolve(key);
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[]{4, 5, 6, 7});
+        Files.setLastModifiedTime(path, FileTime.from(lastModified));
+        return key;
+    }
+
+    private void referenceFromListing(String key) {
+        listing.getImages().add(BASE_URL + "/api/files/" + key);
+        listing = listingRepository.saveAndFlush(listing);
+    }
+
+    private void referenceFromMessage(String key) {
+        Message message = new Message();
+        message.setConversation(conversation);
+        message.setSender(seller);
+        message.setMessageText("photo");
+        message.setImageUrl(BASE_URL + "/api/files/" + key);
+        message.setSeq(1L);
+        messageRepository.saveAndFlush(message);
+    }
+
+    private boolean exists(String key) {
+        return storage.findLocalFile(key).isPresent();
+    }
+
+    private long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPasswordHash("hashedPassword");
+        user.setEmailVerified(true);
+        user.setRole(User.Role.STUDENT);
+        return userRepository.save(user);
+    }
+}
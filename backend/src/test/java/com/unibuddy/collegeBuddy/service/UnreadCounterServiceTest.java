@@ -0,0 +1,274 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.unibuddy.collegeBuddy.PostgresTestConfiguration;
+import com.unibuddy.collegeBuddy.entity.Conversation;
+import com.unibuddy.collegeBuddy.entity.Listing;
+import com.unibuddy.collegeBuddy.entity.Message;
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.ConversationRepository;
+import com.unibuddy.collegeBuddy.repository.ListingRepository;
+import com.unibuddy.collegeBuddy.repository.MessageRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles({"test", "postgres"})
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional
+public class UnreadCounterServiceTest {
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RoomSequenceAllocator roomSequenceAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User buyer;
+    private User seller;
+    private Conversation conversation;
+
+    @BeforeEach
+    void setUp() {
+        buyer = saveUser("unread-buyer@example.com");
+        seller = saveUser("unread-seller@example.com");
+
+        Listing listing = new Listing();
+        listing.setTitle("Desk lamp");
+        listing.setDescription("A listing used by the unread counter test");
+        listing.setPrice(new BigDecimal("5.00"));
+        listing.setCategory("Furniture");
+        listing.setImages(List.of());
+        listing.setSeller(seller);
+        listing = listingRepository.save(listing);
+
+        conversation = new Conversation();
+        conversation.setListing(listing);
+        conversation.setBuyer(buyer);
+        conversation.setSeller(seller);
+        conversation = conversationRepository.saveAndFlush(conversation);
+    }
+
+    @Test
+    void markRead_UpdatesMemoryWithoutTouchingTheDatabase() {
+        send(seller, "Still available?");
+        send(seller, "I can drop the price");
+        Message latest = send(seller, "Let me know");
+
+        assertEquals(Map.of(conversation.getId(), 3), unreadCounterService.getUnreadCounts(buyer.getId()));
+        assertEquals(0, unreadCounterService.peekUnreadCount(conversation.getId(), seller.getId()).getAsInt());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertTrue(unreadCounterService.markRead(conversation.getId(), buyer.getId(), latest.getId()));
+        assertFalse(unreadCounterService.markRead(conversation.getId(), buyer.getId(), latest.getId()));
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(unreadCounterService.getUnreadCounts(buyer.getId()).isEmpty());
+    }
+
+    @Test
+    void restart_RecomputesCountsFromFlushedReadPointers() {
+        Message read = send(seller, "Still available?");
+        unreadCounterService.markRead(conversation.getId(), buyer.getId(), read.getId());
+        unreadCounterService.flush();
+
+        // Sent after the last flush, so only the messages table knows about it
+        send(seller, "Hello?");
+
+        UnreadCounterService restarted = new UnreadCounterService(conversationRepository, messageRepository, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(restarted, "stripeCount", 4);
+        ReflectionTestUtils.setField(restarted, "maxConversations", 1000);
+        ReflectionTestUtils.setField(restarted, "maxUsers", 1000);
+        restarted.initialize();
+
+        assertEquals(Map.of(conversation.getId(), 1), restarted.getUnreadCounts(buyer.getId()));
+        assertEquals(read.getId(), jdbcTemplate.queryForObject(
+                "SELECT buyer_last_read_message_id FROM conversations WHERE id = ?", UUID.class, conversation.getId()));
+    }
+
+    @Test
+    void restart_DoesNotNeedTheReadPointerMessage() {
+        send(seller, "Still available?");
+        Message read = send(seller, "I can drop the price");
+        unreadCounterService.markRead(conversation.getId(), buyer.getId(), read.getId());
+        unreadCounterService.flush();
+
+        // The pointer message is no longer in messages, as once it has been archived
+        jdbcTemplate.update("DELETE FROM messages WHERE id = ?", read.getId());
+        send(seller, "Hello?");
+
+        UnreadCounterService restarted = new UnreadCounterService(conversationRepository, messageRepository, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(restarted, "stripeCount", 4);
+        ReflectionTestUtils.setField(restarted, "maxConversations", 1000);
+        ReflectionTestUtils.setField(restarted, "maxUsers", 1000);
+        restarted.initialize();
+
+        assertEquals(Map.of(conversation.getId(), 1), restarted.getUnreadCounts(buyer.getId()));
+    }
+
+    @Test
+    void onMessageAfterCommit_CountsOnlyCommittedSends() {
+        assertEquals(0, unreadCounterService.getUnreadCounts(buyer.getId()).size());
+
+        endTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () ->
+                unreadCounterService.onMessageAfterCommit(conversation.getId(), save(seller, "Never sent")));
+        assertTrue(unreadCounterService.getUnreadCounts(buyer.getId()).isEmpty());
+
+        endTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            unreadCounterService.onMessageAfterCommit(conversation.getId(), save(seller, "Still available?"));
+            // Not counted before the commit
+            assertTrue(unreadCounterService.getUnreadCounts(buyer.getId()).isEmpty());
+        });
+        assertEquals(Map.of(conversation.getId(), 1), unreadCounterService.getUnreadCounts(buyer.getId()));
+    }
+
+    @Test
+    void flush_EvictsIdleStatesAndReloadsThemOnDemand() {
+        UnreadCounterService bounded = new UnreadCounterService(conversationRepository, messageRepository, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(bounded, "stripeCount", 1);
+        ReflectionTestUtils.setField(bounded, "maxConversations", 0);
+        ReflectionTestUtils.setField(bounded, "maxUsers", 1000);
+        bounded.initialize();
+
+        Message message = save(seller, "Still available?");
+        bounded.onMessage(conversation.getId(), message);
+        assertEquals(1, bounded.peekUnreadCount(conversation.getId(), buyer.getId()).getAsInt());
+
+        bounded.flush();
+
+        assertTrue(bounded.peekUnreadCount(conversation.getId(), buyer.getId()).isEmpty());
+        assertEquals(Map.of(conversation.getId(), 1), bounded.getUnreadCounts(buyer.getId()));
+        assertTrue(bounded.markRead(conversation.getId(), buyer.getId(), message.getId()));
+        assertTrue(bounded.getUnreadCounts(buyer.getId()).isEmpty());
+    }
+
+    @Test
+    void flush_AppliesChangesSoNodesDoNotOverwriteEachOther() {
+        UnreadCounterService first = node();
+        UnreadCounterService second = node();
+
+        // Each node counts the message sent through it
+        first.onMessage(conversation.getId(), save(seller, "Still available?"));
+        Message latest = save(seller, "I can drop the price");
+        second.onMessage(conversation.getId(), latest);
+        first.flush();
+        second.flush();
+        assertEquals(2, storedUnreadCount());
+
+        // Read on one node, then a send through the other whose flush lands afterwards
+        assertTrue(first.markRead(conversation.getId(), buyer.getId(), latest.getId()));
+        second.onMessage(conversation.getId(), save(seller, "Let me know"));
+        first.flush();
+        second.flush();
+
+        assertEquals(1, storedUnreadCount());
+        assertEquals(latest.getId(), jdbcTemplate.queryForObject(
+                "SELECT buyer_last_read_message_id FROM conversations WHERE id = ?", UUID.class, conversation.getId()));
+    }
+
+    /**
+     * Stands in for the end of a transaction without ending the test's own: runs the body with
+     * fresh synchronizations, completes them with the given status, then restores the outer ones
+     */
+    private void endTransaction(int status, Runnable body) {
+        List<TransactionSynchronization> outer = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.initSynchronization();
+            outer.forEach(TransactionSynchronizationManager::registerSynchronization);
+        }
+    }
+
+    private UnreadCounterService node() {
+        UnreadCounterService node = new UnreadCounterService(conversationRepository, messageRepository, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(node, "stripeCount", 4);
+        ReflectionTestUtils.setField(node, "maxConversations", 1000);
+        ReflectionTestUtils.setField(node, "maxUsers", 1000);
+        node.initialize();
+        return node;
+    }
+
+    private int storedUnreadCount() {
+        return jdbcTemplate.queryForObject(
+                "SELECT buyer_unread_count FROM conversations WHERE id = ?", Integer.class, conversation.getId());
+    }
+
+    private Message save(User sender, String text) {
+        Message message = new Message();
+        message.setConversation(conversation);
+        message.setSender(sender);
+        message.setMessageText(text);
+        message.setSeq(roomSequenceAllocator.nextForConversation(conversation.getId()));
+        return messageRepository.saveAndFlush(message);
+    }
+
+    private Message send(User sender, String text) {
+        Message message = save(sender, text);
+        unreadCounterService.onMessage(conversation.getId(), message);
+        entityManager.clear();
+        return message;
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPasswordHash("hashedPassword");
+        user.setEmailVerified(true);
+        user.setRole(User.Role.STUDENT);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,347 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unibuddy.collegeBuddy.dto.globalchat.GlobalMessageResponse;
+import com.unibuddy.collegeBuddy.entity.College;
+import com.unibuddy.collegeBuddy.entity.GlobalChat;
+import com.unibuddy.collegeBuddy.entity.User;
+import com.unibuddy.collegeBuddy.repository.CollegeRepository;
+import com.unibuddy.collegeBuddy.repository.GlobalChatRepository;
+import com.unibuddy.collegeBuddy.repository.UserRepository;
+import com.unibuddy.collegeBuddy.util.JwtUtils;
+import jakarta.websocket.ClientEndpointConfig;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.Extension;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import jakarta.websocket.WebSocketContainer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Connection setup time and bytes on the wire for a typical chat session over SockJS and over the
+ * native endpoint, with and without permessage-deflate. A session connects, subscribes to a global
+ * chat, its presence and the college chat list, receives 200 chat messages and sends 20 typing
+ * updates. Traffic goes through a counting proxy that adds 25 ms each way, so setup time reflects
+ * round trips: SockJS spends one on its info request before the upgrade.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class WebSocketTransportBenchmarkTest {
+
+    private static final int ROUNDS = 5;
+    private static final int MESSAGES = 200;
+    private static final int TYPING_UPDATES = 20;
+    private static final long LATENCY_MS = 25;
+    private static final Extension DEFLATE = new Extension() {
+        @Override
+        public String getName() {
+            return "permessage-deflate";
+        }
+
+        @Override
+        public List<Parameter> getParameters() {
+            return List.of();
+        }
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SharedPayloadBroadcaster broadcaster;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CollegeRepository collegeRepository;
+
+    @Autowired
+    private GlobalChatRepository globalChatRepository;
+
+    private record Result(long setupNanos, long setupBytes, long sessionBytes) {
+    }
+
+    @Test
+    void setupTimeAndBytesPerSession() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        College college = new College();
+        college.setName("Transport College " + suffix);
+        college.setDomain(suffix + ".edu");
+        college = collegeRepository.save(college);
+
+        GlobalChat globalChat = new GlobalChat();
+        globalChat.setCollege(college);
+        globalChat.setName("General");
+        globalChat = globalChatRepository.save(globalChat);
+
+        User user = new User();
+        user.setName("Transport User");
+        user.setEmail("transport@" + suffix + ".edu");
+        user.setPasswordHash("hashedPassword");
+        user.setEmailVerified(true);
+        user.setRole(User.Role.STUDENT);
+        user.setCollege(college);
+        user = userRepository.save(user);
+
+        String token = jwtUtils.generateToken(user);
+        String room = "global-chat/" + globalChat.getId();
+        List<String> topics = List.of("/topic/" + room, "/topic/" + room + "/presence",
+                "/topic/colleges/" + college.getId() + "/global-chats");
+        List<GlobalMessageResponse> stream = stream(globalChat.getId());
+
+        System.out.printf("%-22s %14s %14s %16s%n", "transport", "setup (ms)", "setup bytes", "session bytes");
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (boolean sockJs : new boolean[] {true, false}) {
+            for (boolean deflate : new boolean[] {false, true}) {
+                List<Result> rounds = new ArrayList<>();
+                for (int round = 0; round < ROUNDS; round++) {
+                    rounds.add(session(sockJs, deflate, token, room, topics, stream));
+                }
+                rounds.sort((a, b) -> Long.compare(a.setupNanos(), b.setupNanos()));
+                Result median = rounds.get(ROUNDS / 2);
+                String name = (sockJs ? "SockJS" : "native") + (deflate ? " + deflate" : "");
+                results.put(name, median);
+                System.out.printf("%-22s %14.1f %14d %16d%n", name, median.setupNanos() / 1e6,
+                        median.setupBytes(), median.sessionBytes());
+            }
+        }
+
+        Result sockJs = results.get("SockJS + deflate");
+        Result nativeDeflate = results.get("native + deflate");
+        assertTrue(nativeDeflate.setupNanos() < sockJs.setupNanos());
+        assertTrue(nativeDeflate.setupBytes() + nativeDeflate.sessionBytes() < sockJs.setupBytes() + sockJs.sessionBytes());
+        assertTrue(nativeDeflate.sessionBytes() < results.get("native").sessionBytes());
+    }
+
+    private Result session(boolean sockJs, boolean deflate, String token, String room, List<String> topics,
+                           List<GlobalMessageResponse> stream) throws Exception {
+        try (CountingProxy proxy = new CountingProxy(port)) {
+            Client client = new Client(sockJs);
+            ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
+                    .extensions(deflate ? List.of(DEFLATE) : List.of())
+                    .build();
+            WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+
+            long start = System.nanoTime();
+            URI uri;
+            if (sockJs) {
+                // Browsers ask the SockJS endpoint for its options before choosing a transport
+                HttpClient http = HttpClient.newHttpClient();
+                http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + proxy.port() + "/ws/info")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                uri = URI.create("ws://localhost:" + proxy.port() + "/ws/000/" + suffix() + "/websocket");
+            } else {
+                uri = URI.create("ws://localhost:" + proxy.port() + "/ws-native");
+            }
+            Session session = container.connectToServer(client, config, uri);
+            client.send(session, "CONNECT\naccept-version:1.2\nheart-beat:0,0\nAuthorization:Bearer " + token + "\n\n\0");
+            assertTrue(client.connected.await(10, TimeUnit.SECONDS));
+            long setupNanos = System.nanoTime() - start;
+            long setupBytes = proxy.bytes();
+            if (deflate) {
+                assertEquals("permessage-deflate", session.getNegotiatedExtensions().get(0).getName());
+            }
+
+            for (int i = 0; i < topics.size(); i++) {
+                client.send(session, "SUBSCRIBE\nid:" + i + "\ndestination:" + topics.get(i) + "\n\n\0");
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (client.messages.get() == 0 && System.currentTimeMillis() < deadline) {
+                broadcaster.send(topics.get(0), Map.of("probe", true));
+                Thread.sleep(20);
+            }
+
+            long before = proxy.bytes();
+            int expected = client.chatMessages.get() + MESSAGES;
+            for (int i = 0; i < MESSAGES; i++) {
+                broadcaster.send(topics.get(0), stream.get(i));
+                if (i % (MESSAGES / TYPING_UPDATES) == 0) {
+                    client.send(session, "SEND\ndestination:/app/" + room + "/typing\ncontent-type:application/json\n\n{\"typing\":true}\0");
+                }
+            }
+            deadline = System.currentTimeMillis() + 30_000;
+            while (client.chatMessages.get() < expected && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(expected, client.chatMessages.get());
+            long sessionBytes = proxy.bytes() - before;
+            session.close();
+            return new Result(setupNanos, setupBytes, sessionBytes);
+        }
+    }
+
+    private static String suffix() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    // Reads STOMP frames, unwrapping SockJS's "a[...]" arrays on the SockJS transport
+    private final class Client extends Endpoint {
+        private final boolean sockJs;
+        private final CountDownLatch connected = new CountDownLatch(1);
+        private final AtomicInteger messages = new AtomicInteger();
+        private final AtomicInteger chatMessages = new AtomicInteger();
+
+        private Client(boolean sockJs) {
+            this.sockJs = sockJs;
+        }
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            session.addMessageHandler(new MessageHandler.Whole<String>() {
+                @Override
+                public void onMessage(String text) {
+                    if (!sockJs) {
+                        frame(text);
+                    } else if (text.startsWith("a")) {
+                        try {
+                            for (JsonNode frame : objectMapper.readTree(text.substring(1))) {
+                                frame(frame.asText());
+                            }
+                        } catch (IOException ex) {
+                            throw new IllegalStateException(ex);
+                        }
+                    }
+                }
+            });
+        }
+
+        private void frame(String frame) {
+            if (frame.startsWith("CONNECTED")) {
+                connected.countDown();
+            } else if (frame.startsWith("MESSAGE")) {
+                messages.incrementAndGet();
+                if (frame.contains("\"seq\"")) {
+                    chatMessages.incrementAndGet();
+                }
+            }
+        }
+
+        private void send(Session session, String frame) throws IOException {
+            session.getBasicRemote().sendText(sockJs ? objectMapper.writeValueAsString(List.of(frame)) : frame);
+        }
+    }
+
+    // Forwards TCP connections to the server, counting bytes both ways and delaying each chunk
+    private static final class CountingProxy implements AutoCloseable {
+        private final ServerSocket server;
+        private final AtomicLong bytes = new AtomicLong();
+        private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+        private CountingProxy(int targetPort) throws IOException {
+            server = new ServerSocket(0);
+            Thread.ofVirtual().start(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        Socket client = server.accept();
+                        Socket target = new Socket("localhost", targetPort);
+                        client.setTcpNoDelay(true);
+                        target.setTcpNoDelay(true);
+                        sockets.add(client);
+                        sockets.add(target);
+                        Thread.ofVirtual().start(() -> pipe(client, target));
+                        Thread.ofVirtual().start(() -> pipe(target, client));
+                    } catch (IOException ex) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        private int port() {
+            return server.getLocalPort();
+        }
+
+        private long bytes() {
+            return bytes.get();
+        }
+
+        private void pipe(Socket from, Socket to) {
+            byte[] buffer = new byte[65_536];
+            try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    Thread.sleep(LATENCY_MS);
+                    bytes.addAndGet(read);
+                    out.write(buffer, 0, read);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException ex) {
+                // The other side went away
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private static List<GlobalMessageResponse> stream(UUID globalChatId) {
+        List<GlobalMessageResponse.SenderInfo> senders = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            GlobalMessageResponse.SenderInfo sender = new GlobalMessageResponse.SenderInfo();
+            sender.setId(UUID.randomUUID());
+            sender.setName("Student Number " + i);
+            sender.setAvatarUrl("https://cdn.example.edu/avatars/" + UUID.randomUUID() + ".png");
+            sender.setYear((short) (1 + i % 4));
+            senders.add(sender);
+        }
+
+        LocalDateTime time = LocalDateTime.of(2025, 9, 1, 9, 0);
+        List<GlobalMessageResponse> stream = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            time = time.plusSeconds(2 + i % 7);
+            GlobalMessageResponse message = new GlobalMessageResponse();
+            message.setId(UUID.randomUUID());
+            message.setSeq((long) i + 1);
+            message.setMessageText(i % 3 == 0 ? "ok" : "Does anyone have notes from Tuesday's lecture?");
+            message.setCreatedAt(time);
+            message.setGlobalChatId(globalChatId);
+            message.setSender(senders.get(i * 7 % senders.size()));
+            stream.add(message);
+        }
+        return stream;
+    }
+}
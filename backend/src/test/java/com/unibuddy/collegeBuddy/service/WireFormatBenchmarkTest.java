@@ -0,0 +1,140 @@
+package com.unibuddy.collegeBuddy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.unibuddy.collegeBuddy.dto.globalchat.GlobalMessageResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bytes per chat message on the wire for JSON and compact sessions over a realistic stream (a
+ * room of 25 regulars), and sending-thread CPU per broadcast as the share of compact subscribers
+ * grows: JSON is serialized once per broadcast, compact frames are written once per session.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class WireFormatBenchmarkTest {
+
+    private static final MessageChannel CHANNEL = (message, timeout) -> true;
+    private static final int SENDERS = 25;
+    private static final int MESSAGES = 2_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void bytesPerMessage() throws Exception {
+        CompactWireFormat wireFormat = wireFormat();
+        connect(wireFormat, "session");
+        List<GlobalMessageResponse> stream = stream();
+
+        long json = 0;
+        long compact = 0;
+        for (GlobalMessageResponse message : stream) {
+            byte[] payload = objectMapper.writeValueAsBytes(message);
+            json += payload.length;
+            compact += ((byte[]) wireFormat.preSend(frame("session", payload), CHANNEL).getPayload()).length;
+        }
+
+        System.out.printf("JSON: %.1f bytes/message, compact: %.1f bytes/message (%.0f%%)%n",
+                (double) json / MESSAGES, (double) compact / MESSAGES, 100.0 * compact / json);
+        assertTrue(compact < json / 2);
+    }
+
+    @Test
+    void cpuPerBroadcast() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        List<GlobalMessageResponse> stream = stream();
+        int subscribers = 1_000;
+
+        System.out.printf("%-16s %16s%n", "compact share", "CPU (us/bcast)");
+        for (int percent : new int[] {0, 10, 50, 100}) {
+            CompactWireFormat wireFormat = wireFormat();
+            int compactSessions = subscribers * percent / 100;
+            for (int i = 0; i < compactSessions; i++) {
+                connect(wireFormat, "session-" + i);
+            }
+
+            for (int round = 0; round < 2; round++) {
+                long before = threads.getCurrentThreadCpuTime();
+                for (int m = 0; m < 200; m++) {
+                    byte[] payload = objectMapper.writeValueAsBytes(stream.get(m));
+                    for (int i = 0; i < subscribers; i++) {
+                        wireFormat.preSend(frame("session-" + i, payload), CHANNEL);
+                    }
+                }
+                // The first round only warms up
+                if (round == 1) {
+                    System.out.printf("%-16s %16.1f%n", percent + "%",
+                            (threads.getCurrentThreadCpuTime() - before) / 200 / 1_000.0);
+                }
+            }
+        }
+    }
+
+    private CompactWireFormat wireFormat() {
+        CompactWireFormat wireFormat = new CompactWireFormat(objectMapper);
+        ReflectionTestUtils.setField(wireFormat, "enabled", true);
+        return wireFormat;
+    }
+
+    private static void connect(CompactWireFormat wireFormat, String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setNativeHeader(CompactWireFormat.WIRE_FORMAT_HEADER, "compact");
+        wireFormat.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), CHANNEL);
+    }
+
+    private static Message<byte[]> frame(String sessionId, byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+
+    private static List<GlobalMessageResponse> stream() {
+        List<GlobalMessageResponse.SenderInfo> senders = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            GlobalMessageResponse.SenderInfo sender = new GlobalMessageResponse.SenderInfo();
+            sender.setId(UUID.randomUUID());
+            sender.setName("Student Number " + i);
+            sender.setAvatarUrl("https://cdn.example.edu/avatars/" + UUID.randomUUID() + ".png");
+            sender.setYear((short) (1 + i % 4));
+            senders.add(sender);
+        }
+
+        UUID room = UUID.randomUUID();
+        LocalDateTime time = LocalDateTime.of(2025, 9, 1, 9, 0);
+        List<GlobalMessageResponse> stream = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            time = time.plusNanos(1_500_000_000L + i % 7 * 250_123_000L);
+            GlobalMessageResponse message = new GlobalMessageResponse();
+            message.setId(UUID.randomUUID());
+            message.setSeq((long) i + 1);
+            message.setMessageText(i % 3 == 0 ? "ok" : "Does anyone have notes from Tuesday's lecture?");
+            message.setCreatedAt(time);
+            message.setGlobalChatId(room);
+            message.setSender(senders.get(i * 7 % SENDERS));
+            stream.add(message);
+        }
+        return stream;
+    }
+}
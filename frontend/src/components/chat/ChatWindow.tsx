@@ -5,6 +5,9 @@ import { conversationApi } from '../../services/api';
 import MessageList from './MessageList';
 import { MessageComposer } from './MessageComposer';
 import { Button } from '../ui/button';
+import { useAuthStore } from '../../store/authStore';
+import { usePresence } from '../../hooks/usePresence';
+import { websocketService } from '../../services/websocket';
 import type { Message } from '../../types';
 
 interface ChatWindowProps {
@@ -15,6 +18,10 @@ export function ChatWindow({ conversationId }: ChatWindowProps) {
   const [optimisticMessages, setOptimisticMessages] = useState<Message[]>([]);
   const messagesEndRef = useRef<HTMLDivElement>(null);
   const queryClient = useQueryClient();
+  const { user } = useAuthStore();
+  const presence = usePresence(`conversations/${conversationId}`);
+  const otherOnline = [...presence.online].some(id => id !== user?.id);
+  const otherTyping = [...presence.typing].some(id => id !== user?.id);
 
   const { data: messagesData } = useQuery({
     queryKey: ['messages', conversationId],
@@ -63,7 +70,42 @@ export function ChatWindow({ conversationId }: ChatWindowProps) {
     scrollToBottom();
   }, [messagesData, optimisticMessages]);
 
+  // Messages sent over the socket come back on the conversation topic, ours included
+  useEffect(() => {
+    const token = localStorage.getItem('accessToken');
+    if (!conversationId || !token) return;
+
+    let unsubscribe = () => {};
+    let cancelled = false;
+    websocketService.connect(token).then(() => {
+      if (cancelled) return;
+      unsubscribe = websocketService.subscribeToConversation(conversationId, () => {
+        setOptimisticMessages([]);
+        queryClient.invalidateQueries({ queryKey: ['messages', conversationId] });
+        queryClient.invalidateQueries({ queryKey: ['conversations'] });
+      });
+    }).catch(console.error);
+
+    return () => {
+      cancelled = true;
+      unsubscribe();
+    };
+  }, [conversationId, queryClient]);
+
+  useEffect(() => websocketService.onSendError(() => setOptimisticMessages([])), []);
+
   const handleSendMessage = (messageText: string, image?: File) => {
+    presence.stopTyping();
+    // Text goes over the already authenticated socket; images still need the multipart upload
+    if (!image && websocketService.sendMessage(conversationId, messageText)) {
+      setOptimisticMessages(prev => [...prev, {
+        id: `temp-${Date.now()}`,
+        messageText,
+        sender: { id: user?.id || 'current-user', name: 'You' },
+        createdAt: new Date().toISOString(),
+      }]);
+      return;
+    }
     const formData = new FormData();
     formData.append('messageText', messageText);
     if (image) {
@@ -88,7 +130,9 @@ export function ChatWindow({ conversationId }: ChatWindowProps) {
           </div>
           <div>
             <h2 className="text-lg font-semibold text-gray-900">Conversation</h2>
-            <p className="text-sm text-gray-500">Active now</p>
+            <p className="text-sm text-gray-500">
+              {otherTyping ? 'typing…' : otherOnline ? 'Active now' : 'Offline'}
+            </p>
           </div>
         </div>
 
@@ -115,6 +159,7 @@ export function ChatWindow({ conversationId }: ChatWindowProps) {
       <div className="border-t border-gray-200 p-4 flex-shrink-0">
         <MessageComposer
           onSendMessage={handleSendMessage}
+          onTyping={presence.notifyTyping}
           disabled={sendMessageMutation.isPending}
         />
       </div>
@@ -7,6 +7,7 @@ import { MessageComposer } from './MessageComposer';
 import { Button } from '../ui/button';
 import { useAuthStore } from '../../store/authStore';
 import { websocketService } from '../../services/websocket';
+import { usePresence } from '../../hooks/usePresence';
 import type { GlobalMessage, GlobalChat } from '../../types';
 
 interface GlobalChatWindowProps {
@@ -19,6 +20,7 @@ export function GlobalChatWindow({ globalChatId, globalChat }: GlobalChatWindowP
   const messagesEndRef = useRef<HTMLDivElement>(null);
   const queryClient = useQueryClient();
   const { user } = useAuthStore();
+  const presence = usePresence(`global-chat/${globalChatId}`);
 
   const { data: messagesData } = useQuery({
     queryKey: ['global-messages', globalChatId],
@@ -56,7 +58,6 @@ export function GlobalChatWindow({ globalChatId, globalChat }: GlobalChatWindowP
     onSuccess: () => {
       setOptimisticMessages([]);
       queryClient.invalidateQueries({ queryKey: ['global-messages', globalChatId] });
-      queryClient.invalidateQueries({ queryKey: ['global-chats'] });
     },
     onError: () => {
       setOptimisticMessages([]);
@@ -73,22 +74,51 @@ export function GlobalChatWindow({ globalChatId, globalChat }: GlobalChatWindowP
 
   // Subscribe to WebSocket updates for this global chat
   useEffect(() => {
-    if (!globalChatId || !websocketService.isConnected()) return;
+    const token = localStorage.getItem('accessToken');
+    if (!globalChatId || !token) return;
 
     const handleGlobalMessage = (message: GlobalMessage) => {
-      // Only update if it's for this chat and not from current user
-      if (message.globalChatId === globalChatId && message.sender.id !== user?.id) {
-        queryClient.invalidateQueries({ queryKey: ['global-messages', globalChatId] });
-        queryClient.invalidateQueries({ queryKey: ['global-chats'] });
+      if (message.globalChatId !== globalChatId) return;
+      // Our own socket sends come back here too and replace the optimistic copy
+      if (message.sender.id === user?.id) {
+        setOptimisticMessages([]);
       }
+      queryClient.invalidateQueries({ queryKey: ['global-messages', globalChatId] });
     };
 
-    websocketService.subscribeToGlobalChat(globalChatId, handleGlobalMessage);
+    let unsubscribe = () => {};
+    let cancelled = false;
+    websocketService.connect(token).then(() => {
+      if (cancelled) return;
+      unsubscribe = websocketService.subscribeToGlobalChat(globalChatId, handleGlobalMessage);
+    }).catch(console.error);
 
-    // No need to return a cleanup function as the service handles subscriptions
+    return () => {
+      cancelled = true;
+      unsubscribe();
+    };
   }, [globalChatId, user?.id, queryClient]);
 
+  useEffect(() => websocketService.onSendError(() => setOptimisticMessages([])), []);
+
   const handleSendMessage = (messageText: string, image?: File) => {
+    presence.stopTyping();
+    // Text goes over the already authenticated socket; images still need the multipart upload
+    if (!image && websocketService.sendGlobalMessage(globalChatId, messageText)) {
+      setOptimisticMessages(prev => [...prev, {
+        id: `temp-${Date.now()}`,
+        messageText,
+        sender: {
+          id: user?.id || 'unknown',
+          name: user?.name || 'You',
+          avatarUrl: user?.avatarUrl,
+          year: user?.year,
+        },
+        createdAt: new Date().toISOString(),
+        globalChatId,
+      }]);
+      return;
+    }
     const formData = new FormData();
     formData.append('messageText', messageText);
     if (image) {
@@ -100,6 +130,19 @@ export function GlobalChatWindow({ globalChatId, globalChat }: GlobalChatWindowP
   const messages = messagesData?.data.content || [];
   const allMessages = [...messages, ...optimisticMessages]; // Messages now come in correct order from API
 
+  // Typing users are named from the messages on screen; presence updates only carry ids
+  const senderNames = new Map(allMessages.map(msg => [msg.sender.id, msg.sender.name]));
+  const typingNames = [...presence.typing]
+    .filter(id => id !== user?.id)
+    .map(id => senderNames.get(id) || 'Someone');
+  const typingLabel = typingNames.length === 0
+    ? null
+    : typingNames.length === 1
+      ? `${typingNames[0]} is typing…`
+      : typingNames.length === 2
+        ? `${typingNames[0]} and ${typingNames[1]} are typing…`
+        : 'Several people are typing…';
+
   // Convert GlobalMessage to Message format for MessageList component
   const convertedMessages = allMessages.map(msg => {
     console.log('Converting message:', msg.id, 'imageUrl:', msg.imageUrl);
@@ -142,7 +185,7 @@ export function GlobalChatWindow({ globalChatId, globalChat }: GlobalChatWindowP
               #{globalChat?.name || 'Channel'}
             </h2>
             <p className="text-sm text-gray-500">
-              {globalChat?.description || 'Global chat channel'}
+              {typingLabel || globalChat?.description || 'Global chat channel'}
             </p>
           </div>
         </div>
@@ -150,7 +193,9 @@ export function GlobalChatWindow({ globalChatId, globalChat }: GlobalChatWindowP
         <div className="flex items-center space-x-2">
           <Button variant="outline" size="sm">
             <Users className="w-4 h-4" />
-            <span className="ml-1 text-xs hidden sm:inline">Members</span>
+            <span className="ml-1 text-xs hidden sm:inline">
+              {presence.count > 0 ? `${presence.count} online` : 'Members'}
+            </span>
           </Button>
           <Button variant="outline" size="sm">
             <Settings className="w-4 h-4" />
@@ -170,6 +215,7 @@ export function GlobalChatWindow({ globalChatId, globalChat }: GlobalChatWindowP
       <div className="border-t border-gray-200 p-4 bg-white flex-shrink-0">
         <MessageComposer
           onSendMessage={handleSendMessage}
+          onTyping={presence.notifyTyping}
           disabled={sendMessageMutation.isPending}
           placeholder={`Message #${globalChat?.name || 'channel'}...`}
         />
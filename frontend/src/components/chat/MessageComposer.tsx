@@ -6,9 +6,10 @@ interface MessageComposerProps {
   onSendMessage: (message: string, image?: File) => void;
   disabled?: boolean;
   placeholder?: string;
+  onTyping?: () => void;
 }
 
-export function MessageComposer({ onSendMessage, disabled, placeholder = 'Type a message...' }: MessageComposerProps) {
+export function MessageComposer({ onSendMessage, disabled, placeholder = 'Type a message...', onTyping }: MessageComposerProps) {
   const [message, setMessage] = useState('');
   const [selectedImage, setSelectedImage] = useState<File | null>(null);
   const [imagePreview, setImagePreview] = useState<string | null>(null);
@@ -96,7 +97,10 @@ export function MessageComposer({ onSendMessage, disabled, placeholder = 'Type a
         <div className="flex-1">
           <textarea
             value={message}
-            onChange={(e) => setMessage(e.target.value)}
+            onChange={(e) => {
+              setMessage(e.target.value);
+              onTyping?.();
+            }}
             onKeyPress={handleKeyPress}
             placeholder={placeholder}
             rows={1}
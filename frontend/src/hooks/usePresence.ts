@@ -0,0 +1,80 @@
+import { useCallback, useEffect, useRef, useState } from 'react';
+import { websocketService } from '../services/websocket';
+import type { PresenceUpdate } from '../types';
+
+// Typing is re-announced at most this often while keys keep coming, and withdrawn after this long idle
+const TYPING_REFRESH_MS = 3000;
+const TYPING_IDLE_MS = 4000;
+
+interface PresenceState {
+  count: number;
+  online: Set<string>;
+  typing: Set<string>;
+}
+
+const EMPTY: PresenceState = { count: 0, online: new Set(), typing: new Set() };
+
+function apply(state: PresenceState, update: PresenceUpdate): PresenceState {
+  if (update.snapshot) {
+    return { count: update.count, online: new Set(update.online), typing: new Set(update.typing) };
+  }
+  const online = new Set(state.online);
+  update.online.forEach(id => online.add(id));
+  update.offline.forEach(id => online.delete(id));
+  const typing = new Set(state.typing);
+  update.typing.forEach(id => typing.add(id));
+  update.stoppedTyping.forEach(id => typing.delete(id));
+  return { count: update.count, online, typing };
+}
+
+/**
+ * Live presence for a room (`conversations/{id}` or `global-chat/{id}`), plus a `notifyTyping`
+ * to call on every keystroke and `stopTyping` to call once the message is sent.
+ */
+export function usePresence(room?: string) {
+  const [state, setState] = useState<PresenceState>(EMPTY);
+  const lastTypingSent = useRef(0);
+  const idleTimer = useRef<ReturnType<typeof setTimeout> | undefined>(undefined);
+
+  useEffect(() => {
+    const token = localStorage.getItem('accessToken');
+    if (!room || !token) return;
+
+    setState(EMPTY);
+    let unsubscribe = () => {};
+    let cancelled = false;
+    websocketService.connect(token).then(() => {
+      if (cancelled) return;
+      unsubscribe = websocketService.subscribeToPresence(room, (update) => setState(current => apply(current, update)));
+    }).catch(console.error);
+
+    return () => {
+      cancelled = true;
+      unsubscribe();
+    };
+  }, [room]);
+
+  const stopTyping = useCallback(() => {
+    clearTimeout(idleTimer.current);
+    if (room && lastTypingSent.current) {
+      lastTypingSent.current = 0;
+      websocketService.sendTyping(room, false);
+    }
+  }, [room]);
+
+  const notifyTyping = useCallback(() => {
+    if (!room) return;
+    const now = Date.now();
+    if (now - lastTypingSent.current > TYPING_REFRESH_MS) {
+      lastTypingSent.current = now;
+      websocketService.sendTyping(room, true);
+    }
+    clearTimeout(idleTimer.current);
+    idleTimer.current = setTimeout(stopTyping, TYPING_IDLE_MS);
+  }, [room, stopTyping]);
+
+  // Leaving the room withdraws any typing it announced
+  useEffect(() => stopTyping, [stopTyping]);
+
+  return { ...state, notifyTyping, stopTyping };
+}
@@ -1,5 +1,5 @@
 import { useState, useEffect, useRef } from 'react';
-import { useQuery } from '@tanstack/react-query';
+import { useQuery, useQueryClient } from '@tanstack/react-query';
 import { MessageSquare, Users, ChevronDown, ArrowLeft } from 'lucide-react';
 import { ConversationList } from '../components/chat/ConversationList';
 import { GlobalChatList } from '../components/chat/GlobalChatList';
@@ -9,10 +9,12 @@ import { useAuthStore } from '../store/authStore';
 import { websocketService } from '../services/websocket';
 import { conversationApi, globalChatApi } from '../services/api';
 import { Button } from '../components/ui/button';
-import type { ChatTab } from '../types';
+import type { AxiosResponse } from 'axios';
+import type { ChatTab, GlobalChat } from '../types';
 
 export default function ChatPage() {
   const { user } = useAuthStore();
+  const queryClient = useQueryClient();
   const [activeTab, setActiveTab] = useState<'marketplace' | 'global'>('global');
   const [selectedConversationId, setSelectedConversationId] = useState<string | null>(null);
   const [selectedGlobalChatId, setSelectedGlobalChatId] = useState<string | null>(null);
@@ -86,6 +88,27 @@ export default function ChatPage() {
     };
   }, []);
 
+  // Patch the chat list from pushed room updates instead of refetching it on every message
+  useEffect(() => {
+    const token = localStorage.getItem('accessToken');
+    if (!token || !user?.collegeId) return;
+
+    let unsubscribe = () => {};
+    let cancelled = false;
+    websocketService.connect(token).then(() => {
+      if (cancelled) return;
+      unsubscribe = websocketService.subscribeToCollegeChats(user.collegeId, (chat) => {
+        queryClient.setQueryData<AxiosResponse<GlobalChat[]>>(['global-chats'], (current) =>
+          current && { ...current, data: current.data.map(c => (c.id === chat.id ? chat : c)) });
+      });
+    }).catch(console.error);
+
+    return () => {
+      cancelled = true;
+      unsubscribe();
+    };
+  }, [user?.collegeId, queryClient]);
+
   // Auto-select first global chat when switching to global tab
   useEffect(() => {
     if (activeTab === 'global' && globalChatsData?.data && globalChatsData.data.length > 0 && !selectedGlobalChatId) {
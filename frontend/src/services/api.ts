@@ -9,6 +9,7 @@ import type {
   Conversation,
   GlobalChat,
   GlobalMessage,
+  MessageHistory,
 } from '../types';
 
 import type {
@@ -149,8 +150,10 @@ export const conversationApi = {
   getConversations: (page = 0, size = 20): Promise<AxiosResponse<{ content: Conversation[]; totalPages: number; totalElements: number }>> =>
     api.get('/conversations', { params: { page, size } }),
   
-  getConversationMessages: (conversationId: string, page = 0, size = 50): Promise<AxiosResponse<{ content: Message[]; totalPages: number; totalElements: number }>> =>
-    api.get(`/conversations/${conversationId}/messages`, { params: { page, size } }),
+  // Latest messages by default; pass before/after a message id to scroll back or catch up,
+  // or sinceSeq to fetch exactly the messages after the last sequence number seen
+  getConversationMessages: (conversationId: string, cursor: { before?: string; after?: string; sinceSeq?: number } = {}, size = 50): Promise<AxiosResponse<MessageHistory<Message>>> =>
+    api.get(`/conversations/${conversationId}/messages`, { params: { ...cursor, size } }),
   
   sendMessage: (conversationId: string, data: FormData): Promise<AxiosResponse<Message>> =>
     api.post(`/conversations/${conversationId}/messages`, data, {
@@ -166,8 +169,8 @@ export const globalChatApi = {
   getGlobalChats: (): Promise<AxiosResponse<GlobalChat[]>> =>
     api.get('/global-chats'),
   
-  getGlobalChatMessages: (globalChatId: string, page = 0, size = 50): Promise<AxiosResponse<{ content: GlobalMessage[]; totalPages: number; totalElements: number }>> =>
-    api.get(`/global-chats/${globalChatId}/messages`, { params: { page, size } }),
+  getGlobalChatMessages: (globalChatId: string, cursor: { before?: string; after?: string; sinceSeq?: number } = {}, size = 50): Promise<AxiosResponse<MessageHistory<GlobalMessage>>> =>
+    api.get(`/global-chats/${globalChatId}/messages`, { params: { ...cursor, size } }),
   
   sendGlobalMessage: (globalChatId: string, data: FormData): Promise<AxiosResponse<GlobalMessage>> =>
     api.post(`/global-chats/${globalChatId}/messages`, data, {
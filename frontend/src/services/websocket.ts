@@ -1,27 +1,77 @@
-import { Client } from '@stomp/stompjs';
+import { Client, type IMessage, type IStompSocket } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
-import type { Message, GlobalMessage } from '../types';
+import type { Message, GlobalMessage, GlobalChat, PresenceUpdate } from '../types';
+
+// Opt in with VITE_WS_WIRE_FORMAT=compact; servers that do not know the header keep sending JSON
+const WIRE_FORMAT = import.meta.env.VITE_WS_WIRE_FORMAT === 'compact' ? 'compact' : 'json';
+const COMPACT_CONTENT_TYPE = 'application/vnd.unibuddy.compact+json';
+
+const API_BASE = import.meta.env.VITE_API_URL || 'http://localhost:8080';
+// Plain WebSocket skips SockJS's info request and framing, and browsers compress it with
+// permessage-deflate; SockJS remains for networks that refuse the upgrade
+type Transport = 'native' | 'sockjs';
+const PREFERRED_TRANSPORT: Transport = import.meta.env.VITE_WS_TRANSPORT === 'sockjs' ? 'sockjs' : 'native';
+
+// [ref, id, name, avatarUrl, year] the first time a sender appears on this connection, the bare ref after
+type CompactSender = [number, string, string, string | null, number | null];
+// [id, seq, messageText, imageUrl, milliseconds since the previous message, sender]
+type CompactMessage = [string, number, string, string | null, number, number | CompactSender];
+
+// UUIDs travel as 22 base64url characters
+function fromShortUuid(short: string): string {
+  const hex = Array.from(atob(short.replace(/-/g, '+').replace(/_/g, '/')),
+    (c) => c.charCodeAt(0).toString(16).padStart(2, '0')).join('');
+  return `${hex.slice(0, 8)}-${hex.slice(8, 12)}-${hex.slice(12, 16)}-${hex.slice(16, 20)}-${hex.slice(20)}`;
+}
 
 class WebSocketService {
   private client: Client | null = null;
   private connected = false;
+  private connecting: Promise<void> | null = null;
   private messageCallbacks: ((message: Message) => void)[] = [];
   private globalMessageCallbacks: ((message: GlobalMessage) => void)[] = [];
+  private sendErrorCallbacks: ((error: string) => void)[] = [];
+  // Compact frames refer back to earlier ones on the same connection
+  private compactSenders = new Map<number, GlobalMessage['sender']>();
+  private compactMillis = 0;
+  private transport: Transport = PREFERRED_TRANSPORT;
+  private openedWith: Transport | null = null;
+  private socketConnected = false;
+
+  private openSocket(): IStompSocket {
+    this.openedWith = this.transport;
+    this.socketConnected = false;
+    if (this.transport === 'native') {
+      return new WebSocket(`${API_BASE.replace(/^http/, 'ws')}/ws-native`);
+    }
+    return new SockJS(`${API_BASE}/ws`);
+  }
 
   connect(token?: string): Promise<void> {
-    return new Promise((resolve, reject) => {
+    // Callers racing on mount share one client instead of opening one each
+    if (this.connecting) {
+      return this.connecting;
+    }
+
+    this.connecting = new Promise<void>((resolve, reject) => {
       if (this.connected) {
         resolve();
         return;
       }
 
-      // Create SockJS connection
-      const socket = new SockJS(`${import.meta.env.VITE_API_URL || 'http://localhost:8080'}/ws`);
-      
       this.client = new Client({
-        webSocketFactory: () => socket,
+        // A fresh socket per attempt, so automatic reconnects do not reuse a closed one
+        webSocketFactory: () => this.openSocket(),
         connectHeaders: {
           Authorization: `Bearer ${token || localStorage.getItem('accessToken') || ''}`,
+          'wire-format': WIRE_FORMAT,
+        },
+        // The session is authenticated once, on CONNECT, so reconnects pick up a refreshed token
+        beforeConnect: () => {
+          const current = localStorage.getItem('accessToken');
+          if (current && this.client) {
+            this.client.connectHeaders = { ...this.client.connectHeaders, Authorization: `Bearer ${current}` };
+          }
         },
         debug: (str) => {
           console.log('STOMP: ' + str);
@@ -33,6 +83,14 @@ class WebSocketService {
 
       this.client.onConnect = () => {
         this.connected = true;
+        this.socketConnected = true;
+        this.compactSenders.clear();
+        this.compactMillis = 0;
+        // Sends that fail on the server are reported back to this session only
+        this.subscribe('/user/queue/errors', (message) => {
+          const error = JSON.parse(message.body).message || 'Message could not be sent';
+          this.sendErrorCallbacks.forEach(cb => cb(error));
+        });
         console.log('WebSocket connected');
         resolve();
       };
@@ -43,8 +101,24 @@ class WebSocketService {
         reject(new Error(frame.headers['message'] || 'WebSocket connection failed'));
       };
 
+      // A native socket that closes before STOMP ever connected was most likely refused by a
+      // proxy; retry straight away over SockJS and stay on it for the rest of the page's life
+      this.client.onWebSocketClose = () => {
+        this.connected = false;
+        if (this.openedWith === 'native' && !this.socketConnected && this.transport === 'native') {
+          console.warn('Native WebSocket unavailable, falling back to SockJS');
+          this.transport = 'sockjs';
+          const client = this.client;
+          void client?.deactivate().then(() => {
+            if (this.client === client) client?.activate();
+          });
+        }
+      };
+
       this.client.onWebSocketError = (error) => {
         console.error('WebSocket error:', error);
+        // The close that follows switches to SockJS; keep the caller waiting for that attempt
+        if (this.openedWith === 'native' && !this.socketConnected && this.transport === 'native') return;
         this.connected = false;
         reject(error);
       };
@@ -55,7 +129,10 @@ class WebSocketService {
       };
 
       this.client.activate();
+    }).finally(() => {
+      this.connecting = null;
     });
+    return this.connecting;
   }
 
   disconnect(): void {
@@ -65,99 +142,192 @@ class WebSocketService {
       this.connected = false;
       this.messageCallbacks = [];
       this.globalMessageCallbacks = [];
+      this.sendErrorCallbacks = [];
     }
   }
 
-  subscribeToConversation(conversationId: string, callback: (message: Message) => void): void {
+  // Subscription ids are the destination itself, so every subscriber of a room receives the same
+  // frame bytes and the server encodes each broadcast once per room rather than once per client
+  private subscribe(destination: string, handler: (message: IMessage) => void) {
+    return this.client!.subscribe(destination, handler, { id: destination });
+  }
+
+  // Chat messages from a frame, which may hold one message, a coalesced burst, or compact messages
+  private parseMessages<T>(message: IMessage, extra: object = {}): T[] {
+    if (!message.headers['content-type']?.startsWith(COMPACT_CONTENT_TYPE)) {
+      const parsed: T | T[] = JSON.parse(message.body);
+      return Array.isArray(parsed) ? parsed : [parsed];
+    }
+
+    const compact: CompactMessage[] = JSON.parse(message.body);
+    return compact.map(([id, seq, messageText, imageUrl, delta, sender]) => {
+      if (Array.isArray(sender)) {
+        const [ref, senderId, name, avatarUrl, year] = sender;
+        this.compactSenders.set(ref, {
+          id: fromShortUuid(senderId),
+          name,
+          avatarUrl: avatarUrl ?? undefined,
+          ...(year != null && { year }),
+        });
+      }
+      this.compactMillis += delta;
+      return {
+        id: fromShortUuid(id),
+        seq,
+        messageText,
+        imageUrl: imageUrl ?? undefined,
+        // The server's local timestamp, rebuilt without a zone exactly as JSON frames carry it
+        createdAt: new Date(this.compactMillis).toISOString().slice(0, -1),
+        sender: this.compactSenders.get(Array.isArray(sender) ? sender[0] : sender)!,
+        ...extra,
+      } as T;
+    });
+  }
+
+  subscribeToConversation(conversationId: string, callback: (message: Message) => void): () => void {
     if (!this.client || !this.connected) {
       console.error('WebSocket not connected');
-      return;
+      return () => {};
     }
 
-    this.client.subscribe(`/topic/conversations/${conversationId}`, (message) => {
+    const subscription = this.subscribe(`/topic/conversations/${conversationId}`, (message) => {
       try {
-        const parsedMessage: Message = JSON.parse(message.body);
-        callback(parsedMessage);
-        
-        // Also call global message callbacks
-        this.messageCallbacks.forEach(cb => cb(parsedMessage));
+        this.parseMessages<Message>(message).forEach(parsedMessage => {
+          callback(parsedMessage);
+
+          // Also call global message callbacks
+          this.messageCallbacks.forEach(cb => cb(parsedMessage));
+        });
       } catch (error) {
         console.error('Error parsing message:', error);
       }
     });
+    return () => subscription.unsubscribe();
   }
 
-  subscribeToGlobalChat(globalChatId: string, callback: (message: GlobalMessage) => void): void {
+  subscribeToGlobalChat(globalChatId: string, callback: (message: GlobalMessage) => void): () => void {
     if (!this.client || !this.connected) {
       console.error('WebSocket not connected');
-      return;
+      return () => {};
     }
 
-    this.client.subscribe(`/topic/global-chat/${globalChatId}`, (message) => {
+    const subscription = this.subscribe(`/topic/global-chat/${globalChatId}`, (message) => {
       try {
-        const parsedMessage: GlobalMessage = JSON.parse(message.body);
-        callback(parsedMessage);
-        
-        // Also call global message callbacks
-        this.globalMessageCallbacks.forEach(cb => cb(parsedMessage));
+        // Busy rooms may deliver a burst as one array frame
+        this.parseMessages<GlobalMessage>(message, { globalChatId }).forEach(parsedMessage => {
+          callback(parsedMessage);
+
+          // Also call global message callbacks
+          this.globalMessageCallbacks.forEach(cb => cb(parsedMessage));
+        });
       } catch (error) {
         console.error('Error parsing global message:', error);
       }
     });
+    return () => subscription.unsubscribe();
   }
 
-  subscribeToUserMessages(userId: string, callback: (message: Message) => void): void {
+  // The server pushes a room whenever its last message or count changes, so the list never needs refetching
+  subscribeToCollegeChats(collegeId: number, callback: (chat: GlobalChat) => void): () => void {
     if (!this.client || !this.connected) {
       console.error('WebSocket not connected');
-      return;
+      return () => {};
     }
 
-    this.client.subscribe(`/user/${userId}/messages`, (message) => {
+    const subscription = this.subscribe(`/topic/colleges/${collegeId}/global-chats`, (message) => {
       try {
-        const parsedMessage: Message = JSON.parse(message.body);
-        callback(parsedMessage);
-        
-        // Also call global message callbacks
-        this.messageCallbacks.forEach(cb => cb(parsedMessage));
+        callback(JSON.parse(message.body));
       } catch (error) {
-        console.error('Error parsing message:', error);
+        console.error('Error parsing global chat update:', error);
       }
     });
+    return () => subscription.unsubscribe();
   }
 
-  sendMessage(conversationId: string, content: string, imageUrl?: string): void {
+  // Rooms are `conversations/{id}` or `global-chat/{id}`; the server counts this subscription as being in the room
+  subscribeToPresence(room: string, callback: (update: PresenceUpdate) => void): () => void {
     if (!this.client || !this.connected) {
       console.error('WebSocket not connected');
-      return;
+      return () => {};
     }
 
-    const message = {
-      conversationId,
-      content,
-      imageUrl,
+    const handler = (message: IMessage) => {
+      try {
+        callback(JSON.parse(message.body));
+      } catch (error) {
+        console.error('Error parsing presence update:', error);
+      }
     };
+    // Changes first, so none are missed between the snapshot and the topic
+    const changes = this.subscribe(`/topic/${room}/presence`, handler);
+    const snapshot = this.subscribe(`/app/${room}/presence`, handler);
+    return () => {
+      snapshot.unsubscribe();
+      changes.unsubscribe();
+    };
+  }
+
+  sendTyping(room: string, typing: boolean): void {
+    if (!this.client || !this.connected) {
+      return;
+    }
 
     this.client.publish({
-      destination: '/app/chat.sendMessage',
-      body: JSON.stringify(message),
+      destination: `/app/${room}/typing`,
+      body: JSON.stringify({ typing }),
     });
   }
 
-  sendGlobalMessage(globalChatId: string, content: string, imageUrl?: string): void {
+  subscribeToUserMessages(userId: string, callback: (message: Message) => void): void {
     if (!this.client || !this.connected) {
       console.error('WebSocket not connected');
       return;
     }
 
-    const message = {
-      messageText: content,
-      imageUrl,
-    };
+    this.subscribe(`/user/${userId}/messages`, (message) => {
+      try {
+        this.parseMessages<Message>(message).forEach(parsedMessage => {
+          callback(parsedMessage);
+
+          // Also call global message callbacks
+          this.messageCallbacks.forEach(cb => cb(parsedMessage));
+        });
+      } catch (error) {
+        console.error('Error parsing message:', error);
+      }
+    });
+  }
+
+  // Text messages go over the open socket; returns false when it is not connected so callers can fall back to HTTP
+  sendMessage(conversationId: string, content: string): boolean {
+    if (!this.client || !this.connected) {
+      return false;
+    }
+
+    this.client.publish({
+      destination: `/app/conversations/${conversationId}`,
+      body: JSON.stringify({ messageText: content }),
+    });
+    return true;
+  }
+
+  sendGlobalMessage(globalChatId: string, content: string): boolean {
+    if (!this.client || !this.connected) {
+      return false;
+    }
 
     this.client.publish({
       destination: `/app/global-chat/${globalChatId}`,
-      body: JSON.stringify(message),
+      body: JSON.stringify({ messageText: content }),
     });
+    return true;
+  }
+
+  onSendError(callback: (error: string) => void): () => void {
+    this.sendErrorCallbacks.push(callback);
+    return () => {
+      this.sendErrorCallbacks = this.sendErrorCallbacks.filter(cb => cb !== callback);
+    };
   }
 
   onMessage(callback: (message: Message) => void): void {
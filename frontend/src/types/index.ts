@@ -87,6 +87,7 @@ export interface Conversation {
 
 export interface Message {
   id: string;
+  seq: number;
   messageText: string;
   imageUrl?: string;
   sender: {
@@ -121,6 +122,7 @@ export interface GlobalChat {
 
 export interface GlobalMessage {
   id: string;
+  seq: number;
   messageText: string;
   imageUrl?: string;
   createdAt: string;
@@ -133,6 +135,23 @@ export interface GlobalMessage {
   globalChatId: string;
 }
 
+// Who is in a chat room and typing; after the snapshot, updates only carry changes
+export interface PresenceUpdate {
+  snapshot: boolean;
+  count: number;
+  online: string[];
+  offline: string[];
+  typing: string[];
+  stoppedTyping: string[];
+}
+
+// One window of chat history, oldest first
+export interface MessageHistory<T> {
+  content: T[];
+  hasOlder: boolean;
+  hasNewer: boolean;
+}
+
 export interface SendGlobalMessageRequest {
   messageText: string;
   image?: File;